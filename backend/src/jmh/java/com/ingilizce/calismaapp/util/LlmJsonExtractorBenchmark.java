@@ -0,0 +1,148 @@
+package com.ingilizce.calismaapp.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ingilizce.calismaapp.dto.PracticeSentence;
+import com.ingilizce.calismaapp.dto.TranslationCheckResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * LlmJsonExtractor vs. the previous regex / double-parse code (copied below unchanged)
+ * on typical LLM answers: fenced, with prose around the JSON and aliased keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LlmJsonExtractorBenchmark {
+
+    private static final String SENTENCES = """
+            Sure! Here are the sentences you asked for:
+            ```json
+            [
+              {"englishSentence": "She \\"borrowed\\" my book yesterday.", "turkish_translation": "ödünç aldı",
+               "turkishFullTranslation": "Dün kitabımı ödünç aldı."},
+              {"englishSentence": "Can I borrow your pen for a minute?", "turkish": "ödünç alabilir miyim",
+               "turkishFullTranslation": "Bir dakikalığına kalemini ödünç alabilir miyim?"},
+              {"englishSentence": "He never borrows money from friends.", "turkishTranslation": "ödünç almaz",
+               "turkishFullTranslation": "Arkadaşlarından asla borç para almaz."},
+              {"englishSentence": "We borrowed a tent for the trip.", "turkishTranslation": "ödünç aldık",
+               "turkishFullTranslation": "Gezi için bir çadır ödünç aldık."},
+              {"englishSentence": "You can borrow three books at a time.", "turkishTranslation": "ödünç alabilirsin",
+               "turkishFullTranslation": "Bir seferde üç kitap ödünç alabilirsin."}
+            ]
+            ```
+            Let me know if you need more!
+            """;
+
+    private static final String TRANSLATION_CHECK = """
+            ```json
+            {"isCorrect": false, "correctTranslation": "Dün kitabımı ödünç aldı.",
+             "feedback": "Neredeyse doğru! \\"borrowed\\" geçmiş zaman, bu yüzden \\"aldı\\" kullanmalısın."}
+            ```
+            """;
+
+    private final ObjectMapper legacyMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Benchmark
+    public List<PracticeSentence> sentencesExtractor() {
+        return LlmJsonExtractor.practiceSentences(SENTENCES);
+    }
+
+    @Benchmark
+    public List<PracticeSentence> sentencesLegacy() {
+        return legacySentences(SENTENCES);
+    }
+
+    @Benchmark
+    public TranslationCheckResult translationCheckExtractor() {
+        return LlmJsonExtractor.translationCheck(TRANSLATION_CHECK);
+    }
+
+    @Benchmark
+    public Map<String, Object> translationCheckLegacy() {
+        return legacyTranslationCheck(TRANSLATION_CHECK);
+    }
+
+    // PracticeSentenceParser.parse before LlmJsonExtractor
+    private List<PracticeSentence> legacySentences(String jsonResponse) {
+        jsonResponse = jsonResponse.trim();
+        jsonResponse = jsonResponse.replaceAll("```json", "").replaceAll("```", "").trim();
+        int arrayStartIndex = jsonResponse.indexOf('[');
+        if (arrayStartIndex > 0) {
+            jsonResponse = jsonResponse.substring(arrayStartIndex);
+        }
+        int arrayEndIndex = jsonResponse.lastIndexOf(']');
+        if (arrayEndIndex > 0 && arrayEndIndex < jsonResponse.length() - 1) {
+            jsonResponse = jsonResponse.substring(0, arrayEndIndex + 1);
+        }
+        jsonResponse = jsonResponse.trim();
+        jsonResponse = jsonResponse.replaceAll("\"turkishTransliteration\"", "\"turkishTranslation\"");
+        jsonResponse = jsonResponse.replaceAll("\"turkish_translation\"", "\"turkishTranslation\"");
+        jsonResponse = jsonResponse.replaceAll("\"turkish\"", "\"turkishTranslation\"");
+
+        try {
+            Object parsed = legacyMapper.readValue(jsonResponse, Object.class);
+            if (parsed instanceof List) {
+                return legacyMapper.readValue(jsonResponse, new TypeReference<List<PracticeSentence>>() {
+                });
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> map = (Map<String, Object>) parsed;
+            if (map.containsKey("sentences") && map.get("sentences") instanceof List) {
+                return legacyMapper.convertValue(map.get("sentences"), new TypeReference<List<PracticeSentence>>() {
+                });
+            }
+            List<PracticeSentence> single = new ArrayList<>();
+            single.add(legacyMapper.convertValue(parsed, PracticeSentence.class));
+            return single;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse LLM response: " + e.getMessage(), e);
+        }
+    }
+
+    // ChatbotController.parseJsonResponse before LlmJsonExtractor
+    private static Map<String, Object> legacyTranslationCheck(String response) {
+        Map<String, Object> result = new HashMap<>();
+        response = response.trim();
+        response = response.replaceAll("```json", "").replaceAll("```", "").trim();
+        int jsonStart = response.indexOf("{");
+        int jsonEnd = response.lastIndexOf("}") + 1;
+        if (jsonStart >= 0 && jsonEnd > jsonStart) {
+            String jsonStr = response.substring(jsonStart, jsonEnd);
+
+            Pattern isCorrectPattern = Pattern.compile("\"isCorrect\"\\s*:\\s*(true|false)");
+            Matcher isCorrectMatcher = isCorrectPattern.matcher(jsonStr);
+            result.put("isCorrect", isCorrectMatcher.find() && Boolean.parseBoolean(isCorrectMatcher.group(1)));
+
+            Pattern correctPattern = Pattern.compile("\"correctTranslation\"\\s*:\\s*\"([^\"]+)\"");
+            Matcher correctMatcher = correctPattern.matcher(jsonStr);
+            result.put("correctTranslation", correctMatcher.find() ? correctMatcher.group(1) : "");
+
+            Pattern feedbackPattern = Pattern.compile("\"feedback\"\\s*:\\s*\"([^\"]+)\"");
+            Matcher feedbackMatcher = feedbackPattern.matcher(jsonStr);
+            result.put("feedback", feedbackMatcher.find() ? feedbackMatcher.group(1) : "Çeviri kontrol edildi.");
+        }
+        return result;
+    }
+}
@@ -0,0 +1,12 @@
+package com.ingilizce.calismaapp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background jobs (stats reconcile etc.)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
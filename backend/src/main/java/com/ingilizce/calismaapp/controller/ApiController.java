@@ -19,7 +19,8 @@ public class ApiController {
         response.put("endpoints", Map.of(
             "words", "/api/words",
             "sentences", "/api/sentences",
-            "reviews", "/api/reviews"
+            "reviews", "/api/reviews",
+            "sync", "/api/sync"
         ));
         return response;
     }
@@ -0,0 +1,41 @@
+package com.ingilizce.calismaapp.controller;
+
+import com.ingilizce.calismaapp.service.CacheStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST Controller for the Hibernate second-level cache
+ */
+@RestController
+@RequestMapping("/api/cache")
+@CrossOrigin(originPatterns = "*")
+public class CacheController {
+
+    @Autowired
+    private CacheStatsService cacheStatsService;
+
+    /**
+     * Get hit/miss statistics per cache region
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        try {
+            return ResponseEntity.ok(cacheStatsService.getStats());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Evict every cache region
+     */
+    @PostMapping("/evict")
+    public ResponseEntity<Void> evictAll() {
+        cacheStatsService.evictAll();
+        return ResponseEntity.ok().build();
+    }
+}
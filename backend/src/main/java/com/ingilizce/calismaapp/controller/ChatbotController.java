@@ -1,23 +1,37 @@
 package com.ingilizce.calismaapp.controller;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ingilizce.calismaapp.dto.PracticeSentence;
+import com.ingilizce.calismaapp.dto.TranslationCheckResult;
 import com.ingilizce.calismaapp.service.ChatbotService;
+import com.ingilizce.calismaapp.service.OpenAiCompatibleClient;
+import com.ingilizce.calismaapp.service.PracticeSentenceParser;
+import com.ingilizce.calismaapp.service.SentencePoolService;
+import com.ingilizce.calismaapp.service.SpeakingEvaluationJobService;
+import com.ingilizce.calismaapp.service.SpeakingQuestionBankService;
 import com.ingilizce.calismaapp.service.WordService;
 import com.ingilizce.calismaapp.service.GrammarCheckService;
+import com.ingilizce.calismaapp.service.GroqService;
+import com.ingilizce.calismaapp.service.LlmAdmissionController;
+import com.ingilizce.calismaapp.service.LlmApiException;
+import com.ingilizce.calismaapp.service.LocalTranslationChecker;
+import com.ingilizce.calismaapp.entity.SpeakingEvaluationJob;
 import com.ingilizce.calismaapp.entity.Word;
+import com.ingilizce.calismaapp.entity.Sentence;
+import com.ingilizce.calismaapp.util.LlmJsonExtractor;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @RestController
@@ -30,27 +44,41 @@ public class ChatbotController {
     @Autowired
     private WordService wordService;
 
-    @Autowired(required = false)
-    private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private GroqService groqService;
+
+    @Autowired
+    private LlmAdmissionController admissionController;
+
+    @Autowired
+    private SentencePoolService sentencePoolService;
+
+    @Autowired
+    private PracticeSentenceParser practiceSentenceParser;
+
+    @Autowired
+    private SpeakingQuestionBankService speakingQuestionBankService;
+
+    @Autowired
+    private SpeakingEvaluationJobService speakingEvaluationJobService;
+
+    @Autowired
+    private LocalTranslationChecker localTranslationChecker;
 
     @Autowired(required = false)
     private GrammarCheckService grammarCheckService;
 
-    @Value("${cache.sentences.ttl:604800}") // Default: 7 days
-    private long cacheTtlSeconds;
-
-    private final ObjectMapper objectMapper;
-    private static final String CACHE_KEY_PREFIX = "sentences:";
+    @Value("${chatbot.stream.timeout-ms:60000}")
+    private long chatStreamTimeoutMs;
 
-    public ChatbotController() {
-        this.objectMapper = new ObjectMapper();
-        // Ignore unknown properties (LLM bazen farklı field isimleri kullanabilir)
-        this.objectMapper.configure(com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,
-                false);
-    }
+    @Value("${speaking.jobs.events-timeout-ms:180000}")
+    private long evaluationEventsTimeoutMs;
 
     @PostMapping("/generate-sentences")
-    public ResponseEntity<Map<String, Object>> generateSentences(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<Map<String, Object>> generateSentences(@RequestBody Map<String, Object> request,
+            @RequestHeader(value = "X-User-Id", required = false) String userHeader,
+            HttpServletRequest httpRequest) {
+        String userId = clientId(userHeader, httpRequest);
         String word = (String) request.get("word");
         @SuppressWarnings("unchecked")
         List<String> levels = request.get("levels") != null ? (List<String>) request.get("levels")
@@ -79,106 +107,28 @@ public class ChatbotController {
             lengths = java.util.Arrays.asList("medium");
 
         String normalizedWord = word.trim().toLowerCase();
-        String cacheKey = CACHE_KEY_PREFIX + normalizedWord + ":" + String.join(",", levels) + ":"
-                + String.join(",", lengths);
 
         try {
-            // Redis cache kontrolü (DISABLED for randomness)
-            if (redisTemplate != null && false) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> cachedData = (Map<String, Object>) redisTemplate.opsForValue().get(cacheKey);
-                if (cachedData != null) {
-                    System.out.println("Cache HIT for word: " + normalizedWord);
-                    return ResponseEntity.ok(cachedData);
-                }
-                System.out.println("Cache MISS for word: " + normalizedWord);
-            }
+            List<PracticeSentence> allSentences = null;
+            boolean fromPool = false;
 
-            // Tüm kombinasyonları tek bir prompt'ta belirtip, LLM'den hepsini birden
-            // üretmesini iste
-            // Bu yaklaşım çok daha hızlıdır çünkü tek bir istek yapılır
-            StringBuilder levelLengthInfo = new StringBuilder();
-            levelLengthInfo.append("Generate 5 diverse sentences total, covering these combinations:\n");
-            for (String level : levels) {
-                for (String length : lengths) {
-                    levelLengthInfo.append(String.format("- Level: %s, Length: %s\n", level, length));
+            // Önce sentence pool (Redis): kullanıcının görmediği rastgele cümleler, LLM çağrısı yok.
+            // Kullanıcı kotası yalnızca havuzda eksik kalınca (LLM isteği) düşülür
+            if (sentencePoolService.isAvailable()) {
+                try {
+                    SentencePoolService.PoolDraw draw = sentencePoolService.draw(userId, normalizedWord, levels,
+                            lengths, 5, () -> admissionController.checkUser(userIdOrNull(userHeader)));
+                    allSentences = draw.sentences();
+                    fromPool = draw.fromPool();
+                } catch (DataAccessException e) {
+                    // Only Redis errors fall back; a failed generation is not sent a second time
+                    System.err.println("Sentence pool unavailable, generating directly: " + e.getMessage());
                 }
             }
-            levelLengthInfo.append(
-                    "Distribute the 5 sentences across these combinations. Make sentences diverse and cover different meanings if the word has multiple meanings.");
-
-            String message = String.format("Target word: '%s'.\n%s", normalizedWord, levelLengthInfo.toString());
-
-            String jsonResponse = chatbotService.generateSentences(message);
-
-            // JSON'u temizle (markdown code blocks varsa kaldır)
-            jsonResponse = jsonResponse.trim();
-            jsonResponse = jsonResponse.replaceAll("```json", "").replaceAll("```", "").trim();
-
-            // LLM bazen açıklama metni ekliyor, JSON array'i bul (ilk [ karakterinden
-            // başla)
-            int arrayStartIndex = jsonResponse.indexOf('[');
-            if (arrayStartIndex > 0) {
-                // Array'den önce metin var, onu kaldır
-                jsonResponse = jsonResponse.substring(arrayStartIndex);
-            }
-
-            // Array'in sonunu bul (son ] karakterine kadar)
-            int arrayEndIndex = jsonResponse.lastIndexOf(']');
-            if (arrayEndIndex > 0 && arrayEndIndex < jsonResponse.length() - 1) {
-                // Array'den sonra metin var, onu kaldır
-                jsonResponse = jsonResponse.substring(0, arrayEndIndex + 1);
-            }
-
-            jsonResponse = jsonResponse.trim();
-
-            // LLM bazen yanlış field name kullanabilir, düzelt
-            jsonResponse = jsonResponse.replaceAll("\"turkishTransliteration\"", "\"turkishTranslation\"");
-            jsonResponse = jsonResponse.replaceAll("\"turkish_translation\"", "\"turkishTranslation\"");
-            jsonResponse = jsonResponse.replaceAll("\"turkish\"", "\"turkishTranslation\"");
 
-            List<PracticeSentence> allSentences = new ArrayList<>();
-            try {
-                // Önce JSON'un array mi object mi olduğunu kontrol et
-                Object parsed = objectMapper.readValue(jsonResponse, Object.class);
-
-                if (parsed instanceof List) {
-                    // Array ise direkt parse et
-                    allSentences = objectMapper.readValue(
-                            jsonResponse,
-                            new TypeReference<List<PracticeSentence>>() {
-                            });
-                } else if (parsed instanceof Map) {
-                    // Object ise, içinde "sentences" veya benzer bir key var mı kontrol et
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> map = (Map<String, Object>) parsed;
-
-                    // "sentences" key'i varsa onu kullan
-                    if (map.containsKey("sentences") && map.get("sentences") instanceof List) {
-                        allSentences = objectMapper.convertValue(
-                                map.get("sentences"),
-                                new TypeReference<List<PracticeSentence>>() {
-                                });
-                    } else {
-                        // Tek bir object ise, onu array'e çevir
-                        try {
-                            PracticeSentence single = objectMapper.convertValue(parsed, PracticeSentence.class);
-                            allSentences.add(single);
-                        } catch (Exception ex) {
-                            System.err.println("Could not parse as single PracticeSentence: " + ex.getMessage());
-                            throw new RuntimeException(
-                                    "LLM returned unexpected JSON format. Expected array or object with 'sentences' key.",
-                                    ex);
-                        }
-                    }
-                } else {
-                    throw new RuntimeException("LLM returned unexpected JSON format. Expected array or object.");
-                }
-            } catch (Exception e) {
-                System.err.println("Error parsing JSON: " + e.getMessage());
-                System.err.println("JSON response (first 500 chars): " +
-                        (jsonResponse.length() > 500 ? jsonResponse.substring(0, 500) + "..." : jsonResponse));
-                throw new RuntimeException("Failed to parse LLM response: " + e.getMessage(), e);
+            if (allSentences == null) {
+                admissionController.checkUser(userIdOrNull(userHeader));
+                allSentences = generateSentencesDirectly(normalizedWord, levels, lengths);
             }
 
             // Toplam 5 cümle olacak şekilde sınırla (eğer fazla varsa)
@@ -209,26 +159,11 @@ public class ChatbotController {
                     .map(ps -> ps.turkishFullTranslation() != null ? ps.turkishFullTranslation() : "")
                     .collect(Collectors.toList());
 
-            // Redis'e cache'le (sentences ve translations birlikte)
             Map<String, Object> result = new HashMap<>();
             result.put("sentences", sentences);
             result.put("translations", translations);
             result.put("count", sentences.size());
-            result.put("cached", false);
-
-            if (redisTemplate != null && false) {
-                try {
-                    redisTemplate.opsForValue().set(
-                            cacheKey,
-                            result,
-                            Duration.ofSeconds(cacheTtlSeconds));
-                    System.out.println(
-                            "Cached sentences for word: " + normalizedWord + " (TTL: " + cacheTtlSeconds + "s)");
-                } catch (Exception e) {
-                    System.err.println("Failed to cache sentences: " + e.getMessage());
-                    // Cache hatası olsa bile devam et
-                }
-            }
+            result.put("cached", fromPool);
 
             // Debug için structured data'yı da logla
             System.out
@@ -240,14 +175,30 @@ public class ChatbotController {
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             System.err.println("Error generating sentences: " + e.getMessage());
-            System.err.println("Response was: " + (e.getMessage().contains("Response") ? "" : ""));
-            e.printStackTrace();
-            Map<String, Object> error = new HashMap<>();
-            error.put("error", "Failed to generate sentences: " + e.getMessage());
-            return ResponseEntity.internalServerError().body(error);
+            if (!(e instanceof LlmApiException)) {
+                e.printStackTrace();
+            }
+            return llmErrorResponse(e, "Failed to generate sentences");
         }
     }
 
+    // Pool yoksa (Redis kapalı): tüm kombinasyonlar tek prompt'ta, tek LLM isteği
+    private List<PracticeSentence> generateSentencesDirectly(String normalizedWord, List<String> levels,
+            List<String> lengths) {
+        StringBuilder levelLengthInfo = new StringBuilder();
+        levelLengthInfo.append("Generate 5 diverse sentences total, covering these combinations:\n");
+        for (String level : levels) {
+            for (String length : lengths) {
+                levelLengthInfo.append(String.format("- Level: %s, Length: %s\n", level, length));
+            }
+        }
+        levelLengthInfo.append(
+                "Distribute the 5 sentences across these combinations. Make sentences diverse and cover different meanings if the word has multiple meanings.");
+
+        String message = String.format("Target word: '%s'.\n%s", normalizedWord, levelLengthInfo.toString());
+        return practiceSentenceParser.parse(chatbotService.generateSentences(message, 5));
+    }
+
     @PostMapping("/check-translation")
     public ResponseEntity<Map<String, Object>> checkTranslation(@RequestBody Map<String, String> request) {
         String direction = request.getOrDefault("direction", "EN_TO_TR"); // EN_TO_TR or TR_TO_EN
@@ -261,6 +212,7 @@ public class ChatbotController {
 
         try {
             String response;
+            LocalTranslationChecker.Result local;
 
             if ("TR_TO_EN".equals(direction)) {
                 // User translating from Turkish to English
@@ -277,6 +229,12 @@ public class ChatbotController {
                 System.out.println("Turkish Source: " + turkishSentence);
                 System.out.println("User English: " + userTranslation);
 
+                // Referansla aynı / neredeyse aynı cevaplar için LLM'e gitme
+                local = localTranslationChecker.check(direction, userTranslation, englishRef);
+                if (local.verdict() != LocalTranslationChecker.Verdict.UNDECIDED) {
+                    return ResponseEntity.ok(local.toResponse());
+                }
+
                 String combinedMessage = "Turkish sentence: " + turkishSentence + ". User's English translation: "
                         + userTranslation + ".";
                 if (englishRef != null) {
@@ -289,6 +247,7 @@ public class ChatbotController {
             } else {
                 // Default: EN_TO_TR (English to Turkish)
                 String englishSentence = request.get("englishSentence");
+                String turkishRef = request.get("turkishSentence"); // Optional reference
 
                 if (englishSentence == null) {
                     Map<String, Object> error = new HashMap<>();
@@ -300,8 +259,17 @@ public class ChatbotController {
                 System.out.println("English Source: " + englishSentence);
                 System.out.println("User Turkish: " + userTranslation);
 
+                local = localTranslationChecker.check("EN_TO_TR", userTranslation, turkishRef);
+                if (local.verdict() != LocalTranslationChecker.Verdict.UNDECIDED) {
+                    return ResponseEntity.ok(local.toResponse());
+                }
+
                 String combinedMessage = "English sentence: " + englishSentence + ". User's Turkish translation: "
-                        + userTranslation + ". Evaluate this translation generously. Return ONLY JSON.";
+                        + userTranslation + ".";
+                if (turkishRef != null) {
+                    combinedMessage += " (Reference Turkish translation: " + turkishRef + ")";
+                }
+                combinedMessage += " Evaluate this translation generously. Return ONLY JSON.";
 
                 response = chatbotService.checkTranslation(combinedMessage);
             }
@@ -310,6 +278,7 @@ public class ChatbotController {
 
             // Parse JSON response
             Map<String, Object> result = parseJsonResponse(response);
+            localTranslationChecker.recordLlmVerdict(local, Boolean.TRUE.equals(result.get("isCorrect")));
 
             return ResponseEntity.ok(result);
         } catch (Exception e) {
@@ -326,50 +295,17 @@ public class ChatbotController {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            // Clean response - remove markdown code blocks if present
-            response = response.trim();
-            response = response.replaceAll("```json", "").replaceAll("```", "").trim();
-
-            // Try to extract JSON object
-            int jsonStart = response.indexOf("{");
-            int jsonEnd = response.lastIndexOf("}") + 1;
-
-            if (jsonStart >= 0 && jsonEnd > jsonStart) {
-                String jsonStr = response.substring(jsonStart, jsonEnd);
-
-                // Parse isCorrect
-                Pattern isCorrectPattern = Pattern.compile("\"isCorrect\"\\s*:\\s*(true|false)");
-                Matcher isCorrectMatcher = isCorrectPattern.matcher(jsonStr);
-                if (isCorrectMatcher.find()) {
-                    result.put("isCorrect", Boolean.parseBoolean(isCorrectMatcher.group(1)));
-                } else {
-                    result.put("isCorrect", false);
-                }
-
-                // Extract correctTranslation
-                Pattern correctPattern = Pattern.compile("\"correctTranslation\"\\s*:\\s*\"([^\"]+)\"");
-                Matcher correctMatcher = correctPattern.matcher(jsonStr);
-                if (correctMatcher.find()) {
-                    result.put("correctTranslation", correctMatcher.group(1));
-                } else {
-                    result.put("correctTranslation", "");
-                }
-
-                // Extract feedback
-                Pattern feedbackPattern = Pattern.compile("\"feedback\"\\s*:\\s*\"([^\"]+)\"");
-                Matcher feedbackMatcher = feedbackPattern.matcher(jsonStr);
-                if (feedbackMatcher.find()) {
-                    result.put("feedback", feedbackMatcher.group(1));
-                } else {
-                    result.put("feedback", "Çeviri kontrol edildi.");
-                }
+            // Tek geçişte JSON'u bul ve oku (code fence / açıklama metni atlanır)
+            TranslationCheckResult check = LlmJsonExtractor.translationCheck(response);
+            if (check != null) {
+                result.put("isCorrect", check.isCorrect() != null && check.isCorrect());
+                result.put("correctTranslation", check.correctTranslation() != null ? check.correctTranslation() : "");
+                result.put("feedback", check.feedback() != null ? check.feedback() : "Çeviri kontrol edildi.");
             } else {
                 // If no JSON found, try to infer from text
-                boolean isCorrect = response.toLowerCase().contains("\"isCorrect\":true") ||
-                        response.toLowerCase().contains("doğru") ||
-                        (!response.toLowerCase().contains("incorrect") &&
-                                !response.toLowerCase().contains("yanlış") &&
-                                !response.toLowerCase().contains("\"isCorrect\":false"));
+                String lower = response.toLowerCase();
+                boolean isCorrect = lower.contains("doğru") ||
+                        (!lower.contains("incorrect") && !lower.contains("yanlış"));
 
                 result.put("isCorrect", isCorrect);
                 result.put("correctTranslation", "");
@@ -418,23 +354,26 @@ public class ChatbotController {
             // Save word first
             Word savedWord = wordService.saveWord(word);
 
-            // Add sentences if provided
+            // Add sentences if provided (single batched insert, XP awarded once)
             if (sentences != null && !sentences.isEmpty()) {
+                List<Sentence> newSentences = new ArrayList<>();
                 for (String sentenceStr : sentences) {
                     // Sentences now only contain English text (no Turkish translation in
                     // parentheses)
                     String englishSentence = sentenceStr.trim();
-
-                    wordService.addSentence(
-                            savedWord.getId(),
+                    newSentences.add(new Sentence(
                             englishSentence,
                             "", // No Turkish translation stored anymore
-                            "medium");
+                            "medium",
+                            null));
                 }
-            }
 
-            // Reload word with sentences
-            savedWord = wordService.getWordById(savedWord.getId()).orElse(savedWord);
+                List<Sentence> savedSentences = wordService.addSentences(savedWord.getId(), newSentences);
+                if (savedSentences != null) {
+                    // Attach for the response instead of reloading the word
+                    savedWord.getSentences().addAll(savedSentences);
+                }
+            }
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
@@ -450,69 +389,285 @@ public class ChatbotController {
         }
     }
 
+    // Async: the servlet thread is released while Groq answers
+    // sessionId ties messages to one conversation of the caller; without it the message is answered
+    // without memory (nothing is stored)
     @PostMapping("/chat")
-    public ResponseEntity<Map<String, Object>> chat(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> chat(@RequestBody Map<String, String> request,
+            @RequestHeader(value = "X-User-Id", required = false) String userHeader,
+            HttpServletRequest httpRequest) {
+        String userId = clientId(userHeader, httpRequest);
         String message = request.get("message");
+        String sessionId = sessionIdOrNull(request.get("sessionId"));
 
         if (message == null || message.trim().isEmpty()) {
             Map<String, Object> error = new HashMap<>();
             error.put("error", "Please provide a message");
-            return ResponseEntity.badRequest().body(error);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(error));
         }
+        try {
+            admissionController.checkUser(userIdOrNull(userHeader));
+        } catch (LlmApiException e) {
+            return CompletableFuture.completedFuture(llmErrorResponse(e, "Failed to get response"));
+        }
+
+        CompletableFuture<String> answer = sessionId != null
+                ? chatbotService.chatAsync(userId, sessionId, message.trim())
+                : chatbotService.chatAsync(message.trim());
+        return answer
+                .thenApply(response -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("response", response);
+                    result.put("sessionId", sessionId);
+                    result.put("timestamp", System.currentTimeMillis());
+                    return ResponseEntity.ok(result);
+                })
+                .exceptionally(e -> {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    System.err.println("Error in chat: " + cause.getMessage());
+                    return llmErrorResponse(cause, "Failed to get response");
+                });
+    }
 
+    /**
+     * Buddy chat with token streaming (Server-Sent Events)
+     * GET /api/chatbot/chat/stream?message=...&sessionId=... or POST with {"message": "...", "sessionId": "..."}
+     * Events: "token" (text piece), "done" ({response, sessionId, timestamp}), "error" ({error})
+     */
+    @RequestMapping(value = "/chat/stream", method = { RequestMethod.GET,
+            RequestMethod.POST }, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@RequestParam(required = false) String message,
+            @RequestParam(required = false) String sessionId,
+            @RequestBody(required = false) Map<String, String> request,
+            @RequestHeader(value = "X-User-Id", required = false) String userHeader,
+            HttpServletRequest httpRequest) {
+        String userId = clientId(userHeader, httpRequest);
+        String text = message != null ? message : (request != null ? request.get("message") : null);
+        String session = sessionIdOrNull(sessionId != null ? sessionId
+                : (request != null ? request.get("sessionId") : null));
+        SseEmitter emitter = new SseEmitter(chatStreamTimeoutMs);
+
+        if (text == null || text.trim().isEmpty()) {
+            sendStreamError(emitter, "Please provide a message");
+            return emitter;
+        }
         try {
-            String response = chatbotService.chat(message.trim());
+            admissionController.checkUser(userIdOrNull(userHeader));
+        } catch (LlmApiException e) {
+            sendStreamError(emitter, "Failed to get response: " + e.getMessage());
+            return emitter;
+        }
 
-            Map<String, Object> result = new HashMap<>();
-            result.put("response", response);
-            result.put("timestamp", System.currentTimeMillis());
+        StringBuilder fullResponse = new StringBuilder();
+        OpenAiCompatibleClient.TokenListener listener = new OpenAiCompatibleClient.TokenListener() {
+            @Override
+            public void onToken(String token) throws Exception {
+                // Blocks until written: a slow client slows down reading from Groq
+                emitter.send(SseEmitter.event().name("token").data(token));
+                fullResponse.append(token);
+            }
 
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            System.err.println("Error in chat: " + e.getMessage());
-            e.printStackTrace();
+            @Override
+            public void onComplete() {
+                try {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("response", fullResponse.toString());
+                    result.put("sessionId", session);
+                    result.put("timestamp", System.currentTimeMillis());
+                    emitter.send(SseEmitter.event().name("done").data(result, MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                } catch (Exception e) {
+                    emitter.completeWithError(e);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                System.err.println("Error in chat stream: " + error.getMessage());
+                sendStreamError(emitter, "Failed to get response: " + error.getMessage());
+            }
+        };
+        OpenAiCompatibleClient.TokenStream stream = session != null
+                ? chatbotService.chatStream(userId, session, text.trim(), listener)
+                : chatbotService.chatStream(text.trim(), listener);
+
+        // Client went away or timed out: stop the Groq request too
+        emitter.onCompletion(stream::cancel);
+        emitter.onTimeout(stream::cancel);
+        emitter.onError(e -> stream.cancel());
+        return emitter;
+    }
+
+    /**
+     * Forget a chat conversation (e.g. "new chat" in the app)
+     */
+    @DeleteMapping("/chat/session/{sessionId}")
+    public ResponseEntity<Map<String, Object>> resetChatSession(@PathVariable String sessionId,
+            @RequestHeader(value = "X-User-Id", required = false) String userHeader,
+            HttpServletRequest httpRequest) {
+        // Only the caller's own conversation with this id
+        chatbotService.resetConversation(clientId(userHeader, httpRequest), sessionId);
+        Map<String, Object> result = new HashMap<>();
+        result.put("sessionId", sessionId);
+        result.put("cleared", true);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Caller identity for per-user state (seen sentences, conversations): X-User-Id when the client
+     * sends one, otherwise the remote address (behind a proxy see server.forward-headers-strategy).
+     * Rate limits and owned data use userIdOrNull instead
+     */
+    private static String clientId(String userHeader, HttpServletRequest httpRequest) {
+        String userId = userIdOrNull(userHeader);
+        return userId != null ? userId : "ip:" + httpRequest.getRemoteAddr();
+    }
+
+    /**
+     * The user's own id (X-User-Id), null for anonymous callers. Data that belongs to a user is never
+     * keyed on the address: users behind one NAT would share it
+     */
+    private static String userIdOrNull(String userHeader) {
+        if (userHeader == null || userHeader.isBlank() || userHeader.trim().length() > 60) {
+            return null;
+        }
+        return userHeader.trim();
+    }
+
+    private static ResponseEntity<Map<String, Object>> userRequired() {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", "X-User-Id header is required");
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+    }
+
+    private static ResponseEntity<Map<String, Object>> invalidTestType() {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", "testType must be one of " + SpeakingEvaluationJobService.TEST_TYPES);
+        return ResponseEntity.badRequest().body(error);
+    }
+
+    private static String sessionIdOrNull(String sessionId) {
+        if (sessionId == null || sessionId.isBlank() || sessionId.length() > 100) {
+            return null;
+        }
+        return sessionId.trim();
+    }
+
+    private void sendStreamError(SseEmitter emitter, String message) {
+        try {
             Map<String, Object> error = new HashMap<>();
-            error.put("error", "Failed to get response: " + e.getMessage());
-            return ResponseEntity.internalServerError().body(error);
+            error.put("error", message);
+            emitter.send(SseEmitter.event().name("error").data(error, MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (Exception e) {
+            emitter.completeWithError(e);
         }
     }
 
     @PostMapping("/speaking-test/generate-questions")
-    public ResponseEntity<Map<String, Object>> generateSpeakingTestQuestions(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> generateSpeakingTestQuestions(
+            @RequestBody Map<String, String> request,
+            @RequestHeader(value = "X-User-Id", required = false) String userHeader,
+            HttpServletRequest httpRequest) {
+        String userId = clientId(userHeader, httpRequest);
         String testType = request.get("testType"); // "IELTS" or "TOEFL"
         String part = request.get("part"); // "part1", "part2", "part3" for IELTS, "task1", "task2", etc. for TOEFL
 
         if (testType == null || part == null) {
             Map<String, Object> error = new HashMap<>();
             error.put("error", "Please provide testType and part");
-            return ResponseEntity.badRequest().body(error);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(error));
+        }
+        if (!SpeakingEvaluationJobService.TEST_TYPES.contains(testType)) {
+            return CompletableFuture.completedFuture(invalidTestType());
         }
 
+        // Önce soru bankası: kullanıcının görmediği hazır bir set, LLM çağrısı yok
         try {
-            String message = String.format("Generate %s Speaking test questions for %s. Return ONLY JSON.", testType,
-                    part);
-            String response = chatbotService.generateSpeakingTestQuestions(message);
+            Map<String, Object> banked = speakingQuestionBankService.draw(userId, testType, part);
+            if (banked != null) {
+                banked.put("cached", true);
+                return CompletableFuture.completedFuture(ResponseEntity.ok(banked));
+            }
+        } catch (Exception e) {
+            System.err.println("Speaking question bank unavailable, generating directly: " + e.getMessage());
+        }
 
-            // Parse JSON response
-            response = response.trim();
-            response = response.replaceAll("```json", "").replaceAll("```", "").trim();
+        try {
+            admissionController.checkUser(userIdOrNull(userHeader));
+        } catch (LlmApiException e) {
+            return CompletableFuture.completedFuture(llmErrorResponse(e, "Failed to generate questions"));
+        }
 
-            Map<String, Object> result = objectMapper.readValue(response, new TypeReference<Map<String, Object>>() {
-            });
+        String message = String.format("Generate %s Speaking test questions for %s. Return ONLY JSON.", testType,
+                part);
+        return chatbotService.generateSpeakingTestQuestionsAsync(message)
+                .thenApply(response -> {
+                    Map<String, Object> questions = parseJsonObject(response);
+                    speakingQuestionBankService.store(testType, part, questions);
+                    Map<String, Object> result = new HashMap<>(questions);
+                    result.put("cached", false);
+                    return ResponseEntity.ok(result);
+                })
+                .exceptionally(e -> {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    System.err.println("Error generating speaking test questions: " + cause.getMessage());
+                    return llmErrorResponse(cause, "Failed to generate questions");
+                });
+    }
 
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            System.err.println("Error generating speaking test questions: " + e.getMessage());
-            e.printStackTrace();
+    @PostMapping("/speaking-test/evaluate")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> evaluateSpeakingTest(
+            @RequestBody Map<String, String> request,
+            @RequestHeader(value = "X-User-Id", required = false) String userHeader,
+            HttpServletRequest httpRequest) {
+        String userId = clientId(userHeader, httpRequest);
+        String testType = request.get("testType"); // "IELTS" or "TOEFL"
+        String question = request.get("question");
+        String response = request.get("response");
+
+        if (testType == null || question == null || response == null) {
             Map<String, Object> error = new HashMap<>();
-            error.put("error", "Failed to generate questions: " + e.getMessage());
-            return ResponseEntity.internalServerError().body(error);
+            error.put("error", "Please provide testType, question, and response");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(error));
+        }
+        if (!SpeakingEvaluationJobService.TEST_TYPES.contains(testType)) {
+            return CompletableFuture.completedFuture(invalidTestType());
+        }
+
+        try {
+            admissionController.checkUser(userIdOrNull(userHeader));
+        } catch (LlmApiException e) {
+            return CompletableFuture.completedFuture(llmErrorResponse(e, "Failed to evaluate response"));
         }
+
+        String message = String.format(
+                "Evaluate this %s Speaking test response. Question: %s. Candidate's response: %s. Return ONLY JSON.",
+                testType, question, response);
+        return chatbotService.evaluateSpeakingTestAsync(message)
+                .thenApply(llmResponse -> ResponseEntity.ok(parseJsonObject(llmResponse)))
+                .exceptionally(e -> {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    System.err.println("Error evaluating speaking test: " + cause.getMessage());
+                    return llmErrorResponse(cause, "Failed to evaluate response");
+                });
     }
 
-    @PostMapping("/speaking-test/evaluate")
-    public ResponseEntity<Map<String, Object>> evaluateSpeakingTest(@RequestBody Map<String, String> request) {
-        String testType = request.get("testType"); // "IELTS" or "TOEFL"
+    /**
+     * Start a speaking test evaluation in the background (requires X-User-Id, jobs belong to that user)
+     * Request: {"testType": "IELTS", "question": "...", "response": "..."}
+     * Response (202): {"jobId": "...", "status": "PENDING", ...}; poll GET /speaking-test/evaluations/{jobId}
+     * or subscribe to /speaking-test/evaluations/{jobId}/events. Socket.IO clients of the same user (userId of
+     * join_queue or of the connection query) get "speaking_evaluation"
+     */
+    @PostMapping("/speaking-test/evaluations")
+    public ResponseEntity<Map<String, Object>> submitSpeakingEvaluation(@RequestBody Map<String, String> request,
+            @RequestHeader(value = "X-User-Id", required = false) String userHeader) {
+        String userId = userIdOrNull(userHeader);
+        if (userId == null) {
+            return userRequired();
+        }
+        String testType = request.get("testType");
         String question = request.get("question");
         String response = request.get("response");
 
@@ -521,27 +676,135 @@ public class ChatbotController {
             error.put("error", "Please provide testType, question, and response");
             return ResponseEntity.badRequest().body(error);
         }
+        if (!SpeakingEvaluationJobService.TEST_TYPES.contains(testType)) {
+            return invalidTestType();
+        }
 
         try {
-            String message = String.format(
-                    "Evaluate this %s Speaking test response. Question: %s. Candidate's response: %s. Return ONLY JSON.",
-                    testType, question, response);
-            String llmResponse = chatbotService.evaluateSpeakingTest(message);
+            admissionController.checkUser(userId);
+            SpeakingEvaluationJob job = speakingEvaluationJobService.submit(userId, testType, question, response);
+            return ResponseEntity.accepted().body(speakingEvaluationJobService.toMap(job));
+        } catch (Exception e) {
+            System.err.println("Error submitting speaking evaluation: " + e.getMessage());
+            return llmErrorResponse(e, "Failed to start evaluation");
+        }
+    }
 
-            // Parse JSON response
-            llmResponse = llmResponse.trim();
-            llmResponse = llmResponse.replaceAll("```json", "").replaceAll("```", "").trim();
+    /**
+     * Status of an evaluation job; "result" holds the evaluation once status is DONE, "error" when FAILED
+     */
+    @GetMapping("/speaking-test/evaluations/{jobId}")
+    public ResponseEntity<Map<String, Object>> getSpeakingEvaluation(@PathVariable String jobId,
+            @RequestHeader(value = "X-User-Id", required = false) String userHeader) {
+        String userId = userIdOrNull(userHeader);
+        if (userId == null) {
+            return userRequired();
+        }
+        return speakingEvaluationJobService.find(jobId)
+                .filter(job -> job.getUserId().equals(userId))
+                .map(job -> ResponseEntity.ok(speakingEvaluationJobService.toMap(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 
-            Map<String, Object> result = objectMapper.readValue(llmResponse, new TypeReference<Map<String, Object>>() {
-            });
+    /**
+     * Evaluation job updates (Server-Sent Events)
+     * Events: "status" (job with status PENDING/RUNNING), "done" (job with status DONE or FAILED), "error" ({error})
+     */
+    @GetMapping(value = "/speaking-test/evaluations/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> speakingEvaluationEvents(@PathVariable String jobId,
+            @RequestHeader(value = "X-User-Id", required = false) String userHeader) {
+        String userId = userIdOrNull(userHeader);
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        SseEmitter emitter = new SseEmitter(evaluationEventsTimeoutMs);
+        Optional<SpeakingEvaluationJob> job = speakingEvaluationJobService.find(jobId)
+                .filter(j -> j.getUserId().equals(userId));
+        if (job.isEmpty()) {
+            sendStreamError(emitter, "Evaluation job not found");
+            return ResponseEntity.ok(emitter);
+        }
 
-            return ResponseEntity.ok(result);
+        Consumer<Map<String, Object>> listener = update -> {
+            boolean finished = "DONE".equals(update.get("status")) || "FAILED".equals(update.get("status"));
+            try {
+                emitter.send(SseEmitter.event().name(finished ? "done" : "status")
+                        .data(update, MediaType.APPLICATION_JSON));
+                if (finished) {
+                    emitter.complete();
+                }
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+        };
+        emitter.onCompletion(() -> speakingEvaluationJobService.unsubscribe(jobId, listener));
+        emitter.onTimeout(() -> speakingEvaluationJobService.unsubscribe(jobId, listener));
+        if (!job.get().isFinished()) {
+            listener.accept(speakingEvaluationJobService.toMap(job.get()));
+        }
+        speakingEvaluationJobService.subscribe(jobId, listener);
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Single-flight statistics of the LLM layer (upstream calls vs. coalesced / reused requests)
+     */
+    @GetMapping("/llm-stats")
+    public ResponseEntity<Map<String, Object>> getLlmStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(groqService.getCoalescingStats());
+        stats.put("chatMemory", chatbotService.getConversationMemoryStats());
+        stats.put("admission", groqService.getAdmissionStats());
+        stats.put("providers", groqService.getProviderStats());
+        stats.put("hedging", groqService.getHedgingStats());
+        stats.put("usage", groqService.getUsageSummary().get("totals"));
+        stats.put("speakingEvaluationJobs", speakingEvaluationJobService.getStats());
+        stats.put("translationLocal", localTranslationChecker.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Speaking question bank: sets per (testType, part), serve and generation counters
+     */
+    @GetMapping("/speaking-test/question-bank")
+    public ResponseEntity<Map<String, Object>> getSpeakingQuestionBankStats() {
+        return ResponseEntity.ok(speakingQuestionBankService.getStats());
+    }
+
+    /**
+     * Token usage, latency and estimated cost of the LLM calls per operation since startup
+     * Response:
+     * {
+     *   "since": "...",
+     *   "totals": { "calls": 1200, "promptTokens": 950000, "completionTokens": 310000, "estimatedCostUsd": 0.81, ... },
+     *   "operations": [ { "operation": "GENERATE_SENTENCES", "provider": "Groq", "model": "...",
+     *                     "totalTokens": 640000, "tokenShare": 0.51, "latency": { "p95Ms": 4200, ... }, ... } ]
+     * }
+     */
+    @GetMapping("/usage")
+    public ResponseEntity<Map<String, Object>> getLlmUsage() {
+        return ResponseEntity.ok(groqService.getUsageSummary());
+    }
+
+    // 429/503 with Retry-After when the user is rate limited or the AI service is busy/unavailable, 500 otherwise
+    private ResponseEntity<Map<String, Object>> llmErrorResponse(Throwable cause, String message) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", message + ": " + cause.getMessage());
+        if (cause instanceof LlmApiException && ((LlmApiException) cause).isLocal()) {
+            long retryAfterSeconds = ((LlmApiException) cause).getRetryAfterSeconds();
+            error.put("retryAfterSeconds", retryAfterSeconds);
+            return ResponseEntity.status(((LlmApiException) cause).getStatusCode())
+                    .header("Retry-After", String.valueOf(retryAfterSeconds))
+                    .body(error);
+        }
+        return ResponseEntity.internalServerError().body(error);
+    }
+
+    // Parse an LLM JSON object response (``` fences and surrounding text are skipped)
+    private Map<String, Object> parseJsonObject(String llmResponse) {
+        try {
+            return LlmJsonExtractor.object(llmResponse);
         } catch (Exception e) {
-            System.err.println("Error evaluating speaking test: " + e.getMessage());
-            e.printStackTrace();
-            Map<String, Object> error = new HashMap<>();
-            error.put("error", "Failed to evaluate response: " + e.getMessage());
-            return ResponseEntity.internalServerError().body(error);
+            throw new RuntimeException("Invalid JSON from AI service: " + e.getMessage(), e);
         }
     }
 }
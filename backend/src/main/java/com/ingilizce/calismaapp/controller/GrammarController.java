@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST Controller for grammar checking functionality
@@ -24,8 +25,10 @@ public class GrammarController {
     /**
      * Check grammar for a single sentence
      * 
-     * @param request Map containing "sentence" key
+     * @param request Map containing "sentence" key (and optionally "deep")
+     * @param deep    Skip the local rule check and always ask the LLM
      * @return Grammar check results with errors and suggestions
+     *         ("source": "rules" when the local rules decided)
      * 
      *         Example request:
      *         {
@@ -48,30 +51,33 @@ public class GrammarController {
      *         }
      */
     @PostMapping("/check")
-    public ResponseEntity<Map<String, Object>> checkGrammar(@RequestBody Map<String, String> request) {
-        try {
-            String sentence = request.get("sentence");
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> checkGrammar(@RequestBody Map<String, String> request,
+            @RequestParam(defaultValue = "false") boolean deep) {
+        String sentence = request.get("sentence");
+        // deep=true (query or body): skip the local rules, always ask the LLM
+        boolean deepCheck = deep || Boolean.parseBoolean(request.get("deep"));
 
-            if (sentence == null || sentence.trim().isEmpty()) {
-                Map<String, Object> errorResponse = new HashMap<>();
-                errorResponse.put("hasErrors", false);
-                errorResponse.put("errorCount", 0);
-                errorResponse.put("errors", List.of());
-                errorResponse.put("message", "Empty sentence provided");
-                return ResponseEntity.badRequest().body(errorResponse);
-            }
-
-            Map<String, Object> result = grammarCheckService.checkGrammar(sentence);
-            return ResponseEntity.ok(result);
-
-        } catch (Exception e) {
+        if (sentence == null || sentence.trim().isEmpty()) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("hasErrors", false);
             errorResponse.put("errorCount", 0);
             errorResponse.put("errors", List.of());
-            errorResponse.put("message", "Grammar check failed: " + e.getMessage());
-            return ResponseEntity.internalServerError().body(errorResponse);
+            errorResponse.put("message", "Empty sentence provided");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
         }
+
+        // Async: the servlet thread is released while Groq answers
+        return grammarCheckService.checkGrammarAsync(sentence, deepCheck)
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(e -> {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    Map<String, Object> errorResponse = new HashMap<>();
+                    errorResponse.put("hasErrors", false);
+                    errorResponse.put("errorCount", 0);
+                    errorResponse.put("errors", List.of());
+                    errorResponse.put("message", "Grammar check failed: " + cause.getMessage());
+                    return ResponseEntity.internalServerError().body(errorResponse);
+                });
     }
 
     /**
@@ -102,22 +108,18 @@ public class GrammarController {
      *         }
      */
     @PostMapping("/check-multiple")
-    public ResponseEntity<Map<String, List<Map<String, Object>>>> checkMultipleSentences(
-            @RequestBody Map<String, List<String>> request) {
-        try {
-            List<String> sentences = request.get("sentences");
-
-            if (sentences == null || sentences.isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of());
-            }
+    public CompletableFuture<ResponseEntity<Map<String, List<Map<String, Object>>>>> checkMultipleSentences(
+            @RequestBody Map<String, List<String>> request, @RequestParam(defaultValue = "false") boolean deep) {
+        List<String> sentences = request.get("sentences");
 
-            Map<String, List<Map<String, Object>>> results = grammarCheckService.checkMultipleSentences(sentences);
-
-            return ResponseEntity.ok(results);
-
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().body(Map.of());
+        if (sentences == null || sentences.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of()));
         }
+
+        // Sentences are packed into batch prompts, about one LLM round trip in total
+        return grammarCheckService.checkMultipleSentencesAsync(sentences, deep)
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(e -> ResponseEntity.internalServerError().body(Map.of()));
     }
 
     /**
@@ -132,6 +134,8 @@ public class GrammarController {
         status.put("service", "JLanguageTool");
         status.put("language", "en-US");
         status.put("version", "6.4");
+        status.put("cache", grammarCheckService.getCacheStats());
+        status.put("localEngine", grammarCheckService.getLocalEngineStats());
         return ResponseEntity.ok(status);
     }
 
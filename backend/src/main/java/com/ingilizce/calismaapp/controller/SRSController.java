@@ -44,7 +44,8 @@ public class SRSController {
      *         Example request:
      *         {
      *         "wordId": 123,
-     *         "quality": 4
+     *         "quality": 4,
+     *         "responseTimeMs": 2300 (optional)
      *         }
      */
     @PostMapping("/submit-review")
@@ -52,8 +53,11 @@ public class SRSController {
         try {
             Long wordId = Long.valueOf(request.get("wordId").toString());
             int quality = Integer.parseInt(request.get("quality").toString());
+            Long responseTimeMs = request.get("responseTimeMs") != null
+                    ? Long.valueOf(request.get("responseTimeMs").toString())
+                    : null;
 
-            Word updatedWord = srsService.submitReview(wordId, quality);
+            Word updatedWord = srsService.submitReview(wordId, quality, responseTimeMs);
             return ResponseEntity.ok(updatedWord);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
@@ -71,7 +75,8 @@ public class SRSController {
      *         {
      *         "dueToday": 5,
      *         "totalWords": 100,
-     *         "reviewedWords": 80
+     *         "reviewedWords": 80,
+     *         "telemetry": { "accuracy": 0.82, "responseTime": { "p50Ms": 2100, ... }, ... }
      *         }
      */
     @GetMapping("/stats")
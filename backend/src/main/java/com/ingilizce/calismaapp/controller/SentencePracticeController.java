@@ -3,6 +3,8 @@ package com.ingilizce.calismaapp.controller;
 import com.ingilizce.calismaapp.entity.SentencePractice;
 import com.ingilizce.calismaapp.entity.Sentence;
 import com.ingilizce.calismaapp.service.SentencePracticeService;
+import com.ingilizce.calismaapp.service.SentenceStatsService;
+import com.ingilizce.calismaapp.service.WordService;
 import com.ingilizce.calismaapp.repository.SentenceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -25,6 +27,12 @@ public class SentencePracticeController {
     @Autowired
     private SentenceRepository sentenceRepository;
     
+    @Autowired
+    private WordService wordService;
+    
+    @Autowired
+    private SentenceStatsService sentenceStatsService;
+    
     // Get all sentences from both tables
     @GetMapping
     public ResponseEntity<List<Map<String, Object>>> getAllSentences() {
@@ -124,7 +132,7 @@ public class SentencePracticeController {
                 Long sentenceId = Long.parseLong(id.substring(5)); // Remove "word_" prefix
                 System.out.println("Deleting word sentence with ID: " + sentenceId);
                 // Delete from sentences table
-                sentenceRepository.deleteById(sentenceId);
+                wordService.deleteSentenceById(sentenceId);
                 System.out.println("Word sentence deleted successfully");
                 return ResponseEntity.ok().build();
             } else {
@@ -194,33 +202,10 @@ public class SentencePracticeController {
         }
     }
     
-    // Get statistics from both tables
+    // Get statistics from both tables (served from the in-memory rollup)
     @GetMapping("/stats")
-    public ResponseEntity<Object> getStatistics() {
-        // Count from sentence_practices table
-        long practiceTotal = sentencePracticeService.getTotalSentenceCount();
-        long practiceEasy = sentencePracticeService.getSentenceCountByDifficulty(SentencePractice.DifficultyLevel.EASY);
-        long practiceMedium = sentencePracticeService.getSentenceCountByDifficulty(SentencePractice.DifficultyLevel.MEDIUM);
-        long practiceHard = sentencePracticeService.getSentenceCountByDifficulty(SentencePractice.DifficultyLevel.HARD);
-        
-        // Count from sentences table with actual difficulty
-        long wordTotal = sentenceRepository.count();
-        long wordEasy = sentenceRepository.countByDifficulty("easy");
-        long wordMedium = sentenceRepository.countByDifficulty("medium");
-        long wordHard = sentenceRepository.countByDifficulty("hard");
-        
-        // Combine statistics
-        long totalCount = practiceTotal + wordTotal;
-        long easyCount = practiceEasy + wordEasy;
-        long mediumCount = practiceMedium + wordMedium;
-        long hardCount = practiceHard + wordHard;
-        
-        return ResponseEntity.ok(new Object() {
-            public final long total = totalCount;
-            public final long easy = easyCount;
-            public final long medium = mediumCount;
-            public final long hard = hardCount;
-        });
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(sentenceStatsService.getStats());
     }
 }
 
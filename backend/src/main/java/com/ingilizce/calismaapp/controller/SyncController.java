@@ -0,0 +1,55 @@
+package com.ingilizce.calismaapp.controller;
+
+import com.ingilizce.calismaapp.service.SyncService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * REST Controller for delta sync (offline-first clients)
+ */
+@RestController
+@RequestMapping("/api/sync")
+@CrossOrigin(originPatterns = "*")
+public class SyncController {
+
+    @Autowired
+    private SyncService syncService;
+
+    /**
+     * Get words, sentences, reviews and progress changed since a token
+     *
+     * @param since Token returned by the previous sync; omit for a full sync
+     * @return Changed rows, deleted ids and the token for the next call
+     *
+     *         Example response:
+     *         {
+     *         "token": "x90412",
+     *         "words": [{ "id": 12, "englishWord": "plot", ..., "changeVersion": 1540 }],
+     *         "sentences": [],
+     *         "reviews": [{ "id": 88, "wordId": 12, "reviewDate": "2025-01-10", ... }],
+     *         "progress": null,
+     *         "deleted": { "words": [], "sentences": [7], "reviews": [] }
+     *         }
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> sync(@RequestParam(required = false) String since) {
+        long[] sinceToken = SyncService.parseToken(since);
+        if (sinceToken == null) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Invalid sync token");
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        try {
+            return ResponseEntity.ok(syncService.getChangesSince(sinceToken[0], sinceToken[1]));
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Sync failed: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.ingilizce.calismaapp.controller;
 
 import com.ingilizce.calismaapp.entity.Word;
+import com.ingilizce.calismaapp.entity.Sentence;
 import com.ingilizce.calismaapp.dto.CreateWordRequest;
 import com.ingilizce.calismaapp.service.WordService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +10,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
@@ -92,6 +94,31 @@ public class WordController {
         return ResponseEntity.notFound().build();
     }
     
+    // Add several sentences with a single batched insert
+    // Body: [{"sentence": "...", "translation": "...", "difficulty": "easy"}, ...]
+    @PostMapping("/{wordId}/sentences:batch")
+    public ResponseEntity<List<Sentence>> addSentences(@PathVariable Long wordId,
+            @RequestBody List<Map<String, String>> request) {
+        if (request == null || request.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        List<Sentence> sentences = new ArrayList<>();
+        for (Map<String, String> item : request) {
+            String sentence = item.get("sentence");
+            if (sentence == null || sentence.trim().isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+            sentences.add(new Sentence(sentence.trim(), item.get("translation"), item.get("difficulty"), null));
+        }
+        
+        List<Sentence> saved = wordService.addSentences(wordId, sentences);
+        if (saved != null) {
+            return ResponseEntity.ok(saved);
+        }
+        return ResponseEntity.notFound().build();
+    }
+    
     @DeleteMapping("/{wordId}/sentences/{sentenceId}")
     public ResponseEntity<Word> deleteSentence(@PathVariable Long wordId, @PathVariable Long sentenceId) {
         Word updatedWord = wordService.deleteSentence(wordId, sentenceId);
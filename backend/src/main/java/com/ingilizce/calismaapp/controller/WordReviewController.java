@@ -1,13 +1,22 @@
 package com.ingilizce.calismaapp.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ingilizce.calismaapp.entity.WordReview;
+import com.ingilizce.calismaapp.service.ReviewTelemetryService;
 import com.ingilizce.calismaapp.service.WordReviewService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,6 +27,13 @@ public class WordReviewController {
     @Autowired
     private WordReviewService wordReviewService;
     
+    @Autowired
+    private ReviewTelemetryService reviewTelemetryService;
+    
+    // Spring's mapper, so the report follows the application's Jackson settings and modules
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     // Add a review for a word
     @PostMapping("/words/{wordId}")
     public ResponseEntity<WordReview> addReview(
@@ -65,10 +81,15 @@ public class WordReviewController {
         return ResponseEntity.ok(count);
     }
     
-    // Get review dates for a word
+    // Get review dates for a word (optionally limited to a range for calendar months)
     @GetMapping("/words/{wordId}/dates")
-    public ResponseEntity<List<LocalDate>> getReviewDates(@PathVariable Long wordId) {
-        List<LocalDate> dates = wordReviewService.getReviewDates(wordId);
+    public ResponseEntity<List<LocalDate>> getReviewDates(
+            @PathVariable Long wordId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        List<LocalDate> dates = (from == null && to == null)
+                ? wordReviewService.getReviewDates(wordId)
+                : wordReviewService.getReviewDates(wordId, from, to);
         return ResponseEntity.ok(dates);
     }
     
@@ -79,6 +100,85 @@ public class WordReviewController {
         return ResponseEntity.ok(summary);
     }
     
+    // Per-card review results from the client, buffered and written in batches
+    // Body: [{"wordId": 1, "quality": 4, "wasCorrect": true, "responseTimeMs": 2300, "reviewDate": "2024-01-15", "reviewType": "quiz"}]
+    @PostMapping("/telemetry")
+    public ResponseEntity<Map<String, Object>> recordTelemetry(@RequestBody List<Map<String, Object>> events) {
+        // Whole batch is validated first: a bad event rejects the request with nothing queued,
+        // so a client retry cannot write the valid events twice
+        List<ReviewTelemetryService.ReviewEvent> parsed = new ArrayList<>(events.size());
+        try {
+            for (Map<String, Object> event : events) {
+                Long wordId = Long.valueOf(event.get("wordId").toString());
+                Integer quality = event.get("quality") != null ? Integer.valueOf(event.get("quality").toString()) : null;
+                Boolean wasCorrect = event.get("wasCorrect") != null ? Boolean.valueOf(event.get("wasCorrect").toString()) : null;
+                Long responseTimeMs = event.get("responseTimeMs") != null ? Long.valueOf(event.get("responseTimeMs").toString()) : null;
+                LocalDate reviewDate = event.get("reviewDate") != null ? LocalDate.parse(event.get("reviewDate").toString()) : null;
+                String reviewType = event.get("reviewType") != null ? event.get("reviewType").toString() : "practice";
+                
+                parsed.add(new ReviewTelemetryService.ReviewEvent(wordId, reviewDate, quality, wasCorrect,
+                        responseTimeMs, reviewType));
+            }
+        } catch (RuntimeException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Invalid telemetry event " + parsed.size() + ": " + e.getMessage());
+            error.put("accepted", 0);
+            return ResponseEntity.badRequest().body(error);
+        }
+        
+        int accepted = 0;
+        for (ReviewTelemetryService.ReviewEvent event : parsed) {
+            if (reviewTelemetryService.record(event)) {
+                accepted++;
+            }
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("accepted", accepted);
+        response.put("dropped", parsed.size() - accepted);
+        return ResponseEntity.accepted().body(response);
+    }
+    
+    // Accuracy and response time percentiles
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getReviewStats() {
+        return ResponseEntity.ok(reviewTelemetryService.getStats());
+    }
+    
+    // Review activity across words for a date range (defaults to the last 30 days)
+    // GET /api/reviews/report?from=2024-01-01&to=2024-03-31&groupBy=day|word|type
+    @GetMapping("/report")
+    public ResponseEntity<StreamingResponseBody> getReport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String groupBy) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (start.isAfter(end) || !WordReviewService.REPORT_GROUPINGS.contains(groupBy)) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartObject();
+                json.writeStringField("from", start.toString());
+                json.writeStringField("to", end.toString());
+                json.writeStringField("groupBy", groupBy);
+                json.writeArrayFieldStart("rows");
+                wordReviewService.streamReport(start, end, groupBy, row -> {
+                    try {
+                        json.writeObject(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+    
     // Delete a review
     @DeleteMapping("/{reviewId}")
     public ResponseEntity<Void> deleteReview(@PathVariable Long reviewId) {
@@ -0,0 +1,10 @@
+package com.ingilizce.calismaapp.dto;
+
+/**
+ * Translation check DTO for structured output from LLM (fields are null when the LLM left them out)
+ */
+public record TranslationCheckResult(
+    Boolean isCorrect,
+    String correctTranslation, // Doğru çeviri (yanlışsa) veya referans çeviri
+    String feedback
+) {}
@@ -0,0 +1,22 @@
+package com.ingilizce.calismaapp.entity;
+
+import com.ingilizce.calismaapp.util.ReviewDateBitmap;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores ReviewDateBitmap in a bytea column (null stays null = not built yet)
+ */
+@Converter
+public class ReviewDateBitmapConverter implements AttributeConverter<ReviewDateBitmap, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(ReviewDateBitmap bitmap) {
+        return bitmap != null ? bitmap.toBytes() : null;
+    }
+
+    @Override
+    public ReviewDateBitmap convertToEntityAttribute(byte[] bytes) {
+        return bytes != null ? ReviewDateBitmap.fromBytes(bytes) : null;
+    }
+}
@@ -2,13 +2,19 @@ package com.ingilizce.calismaapp.entity;
 
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "sentences")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "sentence")
 public class Sentence {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sentences_seq")
+    @SequenceGenerator(name = "sentences_seq", sequenceName = "sentences_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -25,6 +31,16 @@ public class Sentence {
     @JsonBackReference
     private Word word;
     
+    // Set by a database trigger on every insert/update (delta sync, see V004)
+    @Column(name = "change_version", insertable = false, updatable = false)
+    @JsonIgnore
+    private Long changeVersion;
+
+    // Transaction that wrote the row, the sync watermark (see V012)
+    @Column(name = "change_xid", insertable = false, updatable = false)
+    @JsonIgnore
+    private Long changeXid;
+    
     // Constructors
     public Sentence() {}
     
@@ -76,6 +92,14 @@ public class Sentence {
         this.difficulty = difficulty;
     }
     
+    public Long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public Long getChangeXid() {
+        return changeXid;
+    }
+    
     // Helper method to get wordId for JSON serialization
     @com.fasterxml.jackson.annotation.JsonGetter("wordId")
     public Long getWordId() {
@@ -8,7 +8,8 @@ import java.time.LocalDate;
 public class SentencePractice {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sentence_practices_seq")
+    @SequenceGenerator(name = "sentence_practices_seq", sequenceName = "sentence_practices_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false, columnDefinition = "TEXT")
@@ -0,0 +1,136 @@
+package com.ingilizce.calismaapp.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.time.LocalDateTime;
+
+/**
+ * One pre-generated speaking test question set (see V010)
+ * Same content as a generate-questions answer: questions, instructions, time limits.
+ */
+@Entity
+@Table(name = "speaking_question_sets")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "speakingQuestionSet")
+public class SpeakingQuestionSet {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "speaking_question_sets_seq")
+    @SequenceGenerator(name = "speaking_question_sets_seq", sequenceName = "speaking_question_sets_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "test_type", nullable = false, length = 10)
+    private String testType; // "IELTS", "TOEFL"
+
+    @Column(nullable = false, length = 10)
+    private String part; // "part1".."part3", "task1".."task4"
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String questions; // JSON array of strings
+
+    @Column(columnDefinition = "TEXT")
+    private String instructions;
+
+    @Column(name = "time_limit")
+    private Integer timeLimit; // seconds
+
+    @Column(name = "preparation_time")
+    private Integer preparationTime; // seconds
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public SpeakingQuestionSet() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public SpeakingQuestionSet(String testType, String part, String questions, String instructions,
+            Integer timeLimit, Integer preparationTime, String contentHash) {
+        this();
+        this.testType = testType;
+        this.part = part;
+        this.questions = questions;
+        this.instructions = instructions;
+        this.timeLimit = timeLimit;
+        this.preparationTime = preparationTime;
+        this.contentHash = contentHash;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTestType() {
+        return testType;
+    }
+
+    public void setTestType(String testType) {
+        this.testType = testType;
+    }
+
+    public String getPart() {
+        return part;
+    }
+
+    public void setPart(String part) {
+        this.part = part;
+    }
+
+    public String getQuestions() {
+        return questions;
+    }
+
+    public void setQuestions(String questions) {
+        this.questions = questions;
+    }
+
+    public String getInstructions() {
+        return instructions;
+    }
+
+    public void setInstructions(String instructions) {
+        this.instructions = instructions;
+    }
+
+    public Integer getTimeLimit() {
+        return timeLimit;
+    }
+
+    public void setTimeLimit(Integer timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    public Integer getPreparationTime() {
+        return preparationTime;
+    }
+
+    public void setPreparationTime(Integer preparationTime) {
+        this.preparationTime = preparationTime;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,59 @@
+package com.ingilizce.calismaapp.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * A deleted word/sentence/review, written by database triggers (see V004)
+ * and handed to delta sync clients so they can drop the row locally.
+ */
+@Entity
+@Immutable
+@Table(name = "sync_tombstones")
+public class SyncTombstone {
+
+    @Id
+    private Long id;
+
+    @Column(name = "entity_type", nullable = false)
+    private String entityType; // "word", "sentence", "review"
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "change_version", nullable = false)
+    private Long changeVersion;
+
+    @Column(name = "change_xid", nullable = false)
+    private Long changeXid;
+
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public Long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public Long getChangeXid() {
+        return changeXid;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+}
@@ -8,7 +8,8 @@ import java.time.LocalDateTime;
 public class UserAchievement {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_achievements_seq")
+    @SequenceGenerator(name = "user_achievements_seq", sequenceName = "user_achievements_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_id")
@@ -1,15 +1,22 @@
 package com.ingilizce.calismaapp.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "user_progress")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "userProgress")
 public class UserProgress {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_progress_seq")
+    @SequenceGenerator(name = "user_progress_seq", sequenceName = "user_progress_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_id")
@@ -36,6 +43,16 @@ public class UserProgress {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Set by a database trigger on every insert/update (delta sync, see V004)
+    @Column(name = "change_version", insertable = false, updatable = false)
+    @JsonIgnore
+    private Long changeVersion;
+
+    // Transaction that wrote the row, the sync watermark (see V012)
+    @Column(name = "change_xid", insertable = false, updatable = false)
+    @JsonIgnore
+    private Long changeXid;
+
     // Constructors
     public UserProgress() {
         this.createdAt = LocalDateTime.now();
@@ -120,6 +137,14 @@ public class UserProgress {
         this.updatedAt = updatedAt;
     }
 
+    public Long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public Long getChangeXid() {
+        return changeXid;
+    }
+
     /**
      * Add XP and check for level up
      * 
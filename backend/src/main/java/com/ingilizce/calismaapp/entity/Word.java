@@ -1,17 +1,24 @@
 package com.ingilizce.calismaapp.entity;
 
 import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import com.ingilizce.calismaapp.util.ReviewDateBitmap;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.ArrayList;
 
 @Entity
 @Table(name = "words")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "word")
 public class Word {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "words_seq")
+    @SequenceGenerator(name = "words_seq", sequenceName = "words_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -42,7 +49,25 @@ public class Word {
     @Column(name = "last_review_date")
     private LocalDate lastReviewDate;
 
+    // Set by a database trigger on every insert/update (delta sync, see V004)
+    @Column(name = "change_version", insertable = false, updatable = false)
+    @JsonIgnore
+    private Long changeVersion;
+
+    // Transaction that wrote the row, the sync watermark (see V012)
+    @Column(name = "change_xid", insertable = false, updatable = false)
+    @JsonIgnore
+    private Long changeXid;
+
+    // Review dates as run-length encoded epoch days, answers calendar queries without
+    // reading word_reviews. Null until first built from the reviews table (see V006)
+    @Convert(converter = ReviewDateBitmapConverter.class)
+    @Column(name = "review_bitmap")
+    @JsonIgnore
+    private ReviewDateBitmap reviewBitmap;
+
     @OneToMany(mappedBy = "word", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "word.sentences")
     @JsonManagedReference
     private List<Sentence> sentences = new ArrayList<>();
 
@@ -155,4 +180,20 @@ public class Word {
     public void setLastReviewDate(LocalDate lastReviewDate) {
         this.lastReviewDate = lastReviewDate;
     }
+
+    public Long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public Long getChangeXid() {
+        return changeXid;
+    }
+
+    public ReviewDateBitmap getReviewBitmap() {
+        return reviewBitmap;
+    }
+
+    public void setReviewBitmap(ReviewDateBitmap reviewBitmap) {
+        this.reviewBitmap = reviewBitmap;
+    }
 }
@@ -1,14 +1,18 @@
 package com.ingilizce.calismaapp.entity;
 
 import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "word_reviews")
+@Table(name = "word_reviews", indexes = {
+        @Index(name = "idx_word_reviews_date_word", columnList = "review_date, word_id")
+})
 public class WordReview {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "word_reviews_seq")
+    @SequenceGenerator(name = "word_reviews_seq", sequenceName = "word_reviews_id_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne
@@ -24,6 +28,26 @@ public class WordReview {
     @Column(name = "notes")
     private String notes;
     
+    // Review telemetry (see ReviewTelemetryService)
+    @Column(name = "quality")
+    private Integer quality; // SM-2 quality 0-5
+    
+    @Column(name = "was_correct")
+    private Boolean wasCorrect;
+    
+    @Column(name = "response_time_seconds")
+    private Integer responseTimeSeconds;
+    
+    // Set by a database trigger on every insert/update (delta sync, see V004)
+    @Column(name = "change_version", insertable = false, updatable = false)
+    @JsonIgnore
+    private Long changeVersion;
+
+    // Transaction that wrote the row, the sync watermark (see V012)
+    @Column(name = "change_xid", insertable = false, updatable = false)
+    @JsonIgnore
+    private Long changeXid;
+    
     // Constructors
     public WordReview() {}
     
@@ -72,4 +96,36 @@ public class WordReview {
     public void setNotes(String notes) {
         this.notes = notes;
     }
+    
+    public Long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public Long getChangeXid() {
+        return changeXid;
+    }
+    
+    public Integer getQuality() {
+        return quality;
+    }
+    
+    public void setQuality(Integer quality) {
+        this.quality = quality;
+    }
+    
+    public Boolean getWasCorrect() {
+        return wasCorrect;
+    }
+    
+    public void setWasCorrect(Boolean wasCorrect) {
+        this.wasCorrect = wasCorrect;
+    }
+    
+    public Integer getResponseTimeSeconds() {
+        return responseTimeSeconds;
+    }
+    
+    public void setResponseTimeSeconds(Integer responseTimeSeconds) {
+        this.responseTimeSeconds = responseTimeSeconds;
+    }
 }
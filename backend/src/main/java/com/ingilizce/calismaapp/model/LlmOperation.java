@@ -0,0 +1,47 @@
+package com.ingilizce.calismaapp.model;
+
+import java.time.Duration;
+
+/**
+ * LLM call types
+ * Each operation has its own response timeout: interactive calls fail fast,
+ * long generations (speaking test evaluation) are given more time.
+ * Operations that deliberately send the same prompt several times to get different
+ * answers (sentence pool / question bank refill) are not coalesced.
+ * Background operations (nobody is waiting for the answer) queue behind interactive ones
+ * when the admission limit is reached.
+ */
+public enum LlmOperation {
+    CHAT(Duration.ofSeconds(20), true, false),
+    CHAT_SUMMARY(Duration.ofSeconds(30), true, true),
+    GENERATE_SENTENCES(Duration.ofSeconds(45), true, false),
+    SENTENCE_POOL_REFILL(Duration.ofSeconds(90), false, true),
+    CHECK_TRANSLATION(Duration.ofSeconds(20), true, false),
+    GRAMMAR_CHECK(Duration.ofSeconds(15), true, false),
+    SPEAKING_QUESTIONS(Duration.ofSeconds(30), true, false),
+    SPEAKING_QUESTION_REFILL(Duration.ofSeconds(60), false, true),
+    SPEAKING_EVALUATION(Duration.ofSeconds(90), true, false),
+    DEFAULT(Duration.ofSeconds(60), true, false);
+
+    private final Duration readTimeout;
+    private final boolean coalescing;
+    private final boolean background;
+
+    LlmOperation(Duration readTimeout, boolean coalescing, boolean background) {
+        this.readTimeout = readTimeout;
+        this.coalescing = coalescing;
+        this.background = background;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+
+    public boolean isBackground() {
+        return background;
+    }
+}
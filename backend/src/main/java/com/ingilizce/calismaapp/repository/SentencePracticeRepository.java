@@ -28,6 +28,10 @@ public interface SentencePracticeRepository extends JpaRepository<SentencePracti
     // Count sentences by difficulty
     long countByDifficulty(SentencePractice.DifficultyLevel difficulty);
     
+    // Count sentences per difficulty in a single grouped query (stats reconcile)
+    @Query("SELECT sp.difficulty, COUNT(sp) FROM SentencePractice sp GROUP BY sp.difficulty")
+    List<Object[]> countGroupedByDifficulty();
+    
     // Get all distinct dates when sentences were created
     @Query("SELECT DISTINCT sp.createdDate FROM SentencePractice sp ORDER BY sp.createdDate DESC")
     List<LocalDate> findDistinctCreatedDates();
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public interface SentenceRepository extends JpaRepository<Sentence, Long> {
@@ -21,6 +22,17 @@ public interface SentenceRepository extends JpaRepository<Sentence, Long> {
     
     long countByDifficulty(String difficulty);
     
+    @Query("SELECT s.difficulty, COUNT(s) FROM Sentence s GROUP BY s.difficulty")
+    List<Object[]> countGroupedByDifficulty();
+    
     @Query("SELECT s FROM Sentence s JOIN FETCH s.word w")
     List<Sentence> findAllWithWord();
+    
+    // Delta sync: scalar rows changed after the given version / written by the given transaction or a later one
+    @Query("SELECT new map(s.id AS id, s.word.id AS wordId, s.sentence AS sentence, s.translation AS translation, "
+            + "s.difficulty AS difficulty, s.changeVersion AS changeVersion) "
+            + "FROM Sentence s WHERE s.changeVersion > :sinceVersion AND s.changeXid >= :sinceXid "
+            + "ORDER BY s.changeVersion")
+    List<Map<String, Object>> findSyncRowsChangedSince(@Param("sinceVersion") Long sinceVersion,
+            @Param("sinceXid") Long sinceXid);
 }
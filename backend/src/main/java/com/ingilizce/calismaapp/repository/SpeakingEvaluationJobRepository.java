@@ -0,0 +1,45 @@
+package com.ingilizce.calismaapp.repository;
+
+import com.ingilizce.calismaapp.entity.SpeakingEvaluationJob;
+import com.ingilizce.calismaapp.entity.SpeakingEvaluationJob.Status;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SpeakingEvaluationJobRepository extends JpaRepository<SpeakingEvaluationJob, String> {
+
+    // Pending jobs oldest first; a job put back after a failed attempt waits until readyBefore passes its startedAt
+    @Query("SELECT j.id FROM SpeakingEvaluationJob j WHERE j.status = :status "
+            + "AND (j.startedAt IS NULL OR j.startedAt < :readyBefore) ORDER BY j.createdAt")
+    List<String> findReadyIds(@Param("status") Status status, @Param("readyBefore") LocalDateTime readyBefore,
+            Pageable pageable);
+
+    // Take a pending job; 0 when another worker (or instance) was faster
+    @Modifying
+    @Transactional
+    @Query("UPDATE SpeakingEvaluationJob j SET j.status = :running, j.startedAt = :now, j.attempts = j.attempts + 1 "
+            + "WHERE j.id = :id AND j.status = :pending")
+    int claim(@Param("id") String id, @Param("now") LocalDateTime now, @Param("pending") Status pending,
+            @Param("running") Status running);
+
+    // Jobs whose worker died (restart, crash) go back to the queue
+    @Modifying
+    @Transactional
+    @Query("UPDATE SpeakingEvaluationJob j SET j.status = :pending "
+            + "WHERE j.status = :running AND j.startedAt < :staleBefore")
+    int requeueStale(@Param("staleBefore") LocalDateTime staleBefore, @Param("running") Status running,
+            @Param("pending") Status pending);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SpeakingEvaluationJob j WHERE j.finishedAt < :before")
+    int deleteFinishedBefore(@Param("before") LocalDateTime before);
+}
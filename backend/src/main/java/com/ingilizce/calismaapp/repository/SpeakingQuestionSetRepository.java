@@ -0,0 +1,25 @@
+package com.ingilizce.calismaapp.repository;
+
+import com.ingilizce.calismaapp.entity.SpeakingQuestionSet;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SpeakingQuestionSetRepository extends JpaRepository<SpeakingQuestionSet, Long> {
+
+    // Bank ids per bucket, oldest first
+    @Query("SELECT s.id FROM SpeakingQuestionSet s WHERE s.testType = :testType AND s.part = :part ORDER BY s.createdAt, s.id")
+    List<Long> findIdsByBucket(@Param("testType") String testType, @Param("part") String part);
+
+    boolean existsByTestTypeAndPartAndContentHash(String testType, String part, String contentHash);
+
+    // Questions of the newest sets, so new generations can be asked for different topics
+    @Query("SELECT s.questions FROM SpeakingQuestionSet s WHERE s.testType = :testType AND s.part = :part ORDER BY s.createdAt DESC")
+    List<String> findRecentQuestions(@Param("testType") String testType, @Param("part") String part,
+            Pageable pageable);
+}
@@ -0,0 +1,19 @@
+package com.ingilizce.calismaapp.repository;
+
+import com.ingilizce.calismaapp.entity.SyncTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+
+    List<SyncTombstone> findByChangeVersionGreaterThanAndChangeXidGreaterThanEqualOrderByChangeVersionAsc(
+            Long changeVersion, Long changeXid);
+
+    // Oldest transaction still running when the current snapshot was taken (sync watermark, see V012)
+    @Query(value = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint", nativeQuery = true)
+    long currentSnapshotXmin();
+}
@@ -11,6 +11,10 @@ public interface UserProgressRepository extends JpaRepository<UserProgress, Long
 
     Optional<UserProgress> findByUserId(Long userId);
 
+    // Delta sync: progress row only if it changed after the given version
+    Optional<UserProgress> findByUserIdAndChangeVersionGreaterThanAndChangeXidGreaterThanEqual(Long userId,
+            Long changeVersion, Long changeXid);
+
     // For leaderboard (future)
     // List<UserProgress> findTop10ByOrderByTotalXpDesc();
 }
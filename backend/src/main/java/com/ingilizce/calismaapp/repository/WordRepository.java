@@ -1,25 +1,64 @@
 package com.ingilizce.calismaapp.repository;
 
 import com.ingilizce.calismaapp.entity.Word;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Repository
 public interface WordRepository extends JpaRepository<Word, Long> {
 
+    // Daily screen: result ids come from the query cache, entities from the L2 cache
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.words")
+    })
     List<Word> findByLearnedDate(LocalDate date);
 
     @Query("SELECT w FROM Word w WHERE w.learnedDate BETWEEN :startDate AND :endDate ORDER BY w.learnedDate DESC")
     List<Word> findByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
 
     @Query("SELECT DISTINCT w.learnedDate FROM Word w ORDER BY w.learnedDate DESC")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.words")
+    })
     List<LocalDate> findAllDistinctDates();
 
+    // Scalar lookup that does not load the word or its sentences
+    @Query("SELECT w.englishWord FROM Word w WHERE w.id = :id")
+    Optional<String> findEnglishWordById(@Param("id") Long id);
+
+    @Query("SELECT w.id FROM Word w WHERE w.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Row lock for read-modify-write of the review bitmap
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Word w WHERE w.id = :id")
+    Optional<Word> findByIdForUpdate(@Param("id") Long id);
+
+    // Delta sync: scalar rows changed after the given version / written by the given transaction or a later one (sentences are synced separately)
+    @Query("SELECT new map(w.id AS id, w.englishWord AS englishWord, w.turkishMeaning AS turkishMeaning, "
+            + "w.learnedDate AS learnedDate, w.notes AS notes, w.difficulty AS difficulty, "
+            + "w.nextReviewDate AS nextReviewDate, w.reviewCount AS reviewCount, w.easeFactor AS easeFactor, "
+            + "w.lastReviewDate AS lastReviewDate, w.changeVersion AS changeVersion) "
+            + "FROM Word w WHERE w.changeVersion > :sinceVersion AND w.changeXid >= :sinceXid "
+            + "ORDER BY w.changeVersion")
+    List<Map<String, Object>> findSyncRowsChangedSince(@Param("sinceVersion") Long sinceVersion,
+            @Param("sinceXid") Long sinceXid);
+
     // SRS Queries
     List<Word> findByNextReviewDateLessThanEqual(LocalDate date);
 
@@ -1,19 +1,25 @@
 package com.ingilizce.calismaapp.repository;
 
 import com.ingilizce.calismaapp.entity.WordReview;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @Repository
 public interface WordReviewRepository extends JpaRepository<WordReview, Long> {
     
-    // Find all reviews for a specific word
-    List<WordReview> findByWordIdOrderByReviewDateDesc(Long wordId);
+    // word_reviews is partitioned by month on review_date (V009): queries with a
+    // review_date condition only touch the matching partitions
     
     // Find reviews for a word on a specific date
     List<WordReview> findByWordIdAndReviewDate(Long wordId, LocalDate reviewDate);
@@ -27,9 +33,64 @@ public interface WordReviewRepository extends JpaRepository<WordReview, Long> {
                                                      @Param("startDate") LocalDate startDate, 
                                                      @Param("endDate") LocalDate endDate);
     
+    // Reviews of a word on exactly these dates (taken from its review bitmap), so only the partitions
+    // of months it was reviewed in are read, not every month between its first and last review
+    @Query("SELECT wr FROM WordReview wr WHERE wr.word.id = :wordId AND wr.reviewDate IN :dates ORDER BY wr.reviewDate DESC")
+    List<WordReview> findByWordIdAndReviewDateIn(@Param("wordId") Long wordId,
+                                                 @Param("dates") Collection<LocalDate> dates);
+    
     // Check if a word was reviewed on a specific date
     boolean existsByWordIdAndReviewDate(Long wordId, LocalDate reviewDate);
     
-    // Count reviews for a word
-    long countByWordId(Long wordId);
+    // Manual review of a word on a date; telemetry rows always carry a recall result (quality / wasCorrect)
+    @Query("SELECT COUNT(wr) > 0 FROM WordReview wr WHERE wr.word.id = :wordId AND wr.reviewDate = :reviewDate "
+            + "AND wr.quality IS NULL AND wr.wasCorrect IS NULL")
+    boolean existsManualReview(@Param("wordId") Long wordId, @Param("reviewDate") LocalDate reviewDate);
+    
+    // Stored recall results (quality, wasCorrect, responseTimeSeconds, count) for the telemetry stats
+    @Query("SELECT wr.quality, wr.wasCorrect, wr.responseTimeSeconds, COUNT(wr) FROM WordReview wr "
+            + "WHERE wr.quality IS NOT NULL OR wr.wasCorrect IS NOT NULL "
+            + "GROUP BY wr.quality, wr.wasCorrect, wr.responseTimeSeconds")
+    List<Object[]> countTelemetryResults();
+    
+    // Count reviews for a word on the given dates
+    long countByWordIdAndReviewDateIn(Long wordId, Collection<LocalDate> dates);
+    
+    // Dates only, used to build the review bitmap of a word. Not date bounded: the bitmap is what
+    // supplies the bounds everywhere else, this runs once per word until the bitmap is stored
+    @Query("SELECT wr.reviewDate FROM WordReview wr WHERE wr.word.id = :wordId")
+    List<LocalDate> findReviewDatesByWordId(@Param("wordId") Long wordId);
+    
+    // Delta sync: scalar rows changed after the given version / written by the given transaction or a later one
+    @Query("SELECT new map(wr.id AS id, wr.word.id AS wordId, wr.reviewDate AS reviewDate, wr.reviewType AS reviewType, "
+            + "wr.notes AS notes, wr.changeVersion AS changeVersion) "
+            + "FROM WordReview wr WHERE wr.changeVersion > :sinceVersion AND wr.changeXid >= :sinceXid "
+            + "ORDER BY wr.changeVersion")
+    List<Map<String, Object>> findSyncRowsChangedSince(@Param("sinceVersion") Long sinceVersion,
+            @Param("sinceXid") Long sinceXid);
+    
+    // Review report: one grouped query per grouping, streamed with a cursor (caller needs a transaction)
+    @Query("SELECT wr.reviewDate, COUNT(wr), COUNT(DISTINCT wr.word.id) FROM WordReview wr "
+            + "WHERE wr.reviewDate BETWEEN :from AND :to GROUP BY wr.reviewDate ORDER BY wr.reviewDate")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Object[]> streamReportByDay(@Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    @Query("SELECT w.id, w.englishWord, COUNT(wr), MIN(wr.reviewDate), MAX(wr.reviewDate) FROM WordReview wr JOIN wr.word w "
+            + "WHERE wr.reviewDate BETWEEN :from AND :to GROUP BY w.id, w.englishWord ORDER BY COUNT(wr) DESC, w.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Object[]> streamReportByWord(@Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    @Query("SELECT wr.reviewType, COUNT(wr), COUNT(DISTINCT wr.word.id) FROM WordReview wr "
+            + "WHERE wr.reviewDate BETWEEN :from AND :to GROUP BY wr.reviewType ORDER BY COUNT(wr) DESC")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Object[]> streamReportByType(@Param("from") LocalDate from, @Param("to") LocalDate to);
 }
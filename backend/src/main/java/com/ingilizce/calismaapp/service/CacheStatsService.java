@@ -0,0 +1,73 @@
+package com.ingilizce.calismaapp.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hit/miss statistics of the Hibernate second-level cache regions
+ */
+@Service
+public class CacheStatsService {
+
+    // Regions configured in caffeine.conf
+    private static final List<String> REGIONS = List.of(
+            "word", "word.sentences", "sentence", "userProgress",
+            "query.words", "default-query-results-region");
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Overall and per-region cache statistics
+     */
+    public Map<String, Object> getStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", statistics.isStatisticsEnabled());
+        stats.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        stats.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        stats.put("secondLevelCachePuts", statistics.getSecondLevelCachePutCount());
+        stats.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        stats.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        stats.put("queryCachePuts", statistics.getQueryCachePutCount());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : REGIONS) {
+            CacheRegionStatistics regionStats = statistics.getCacheRegionStatistics(region);
+            if (regionStats == null) {
+                continue;
+            }
+            long hits = regionStats.getHitCount();
+            long misses = regionStats.getMissCount();
+
+            Map<String, Object> regionMap = new LinkedHashMap<>();
+            regionMap.put("hits", hits);
+            regionMap.put("misses", misses);
+            regionMap.put("puts", regionStats.getPutCount());
+            regionMap.put("elementsInMemory", regionStats.getElementCountInMemory());
+            regionMap.put("hitRatio", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+            regions.put(region, regionMap);
+        }
+        stats.put("regions", regions);
+
+        return stats;
+    }
+
+    /**
+     * Drop all cached entities, collections and query results
+     * (e.g. after editing the database by hand)
+     */
+    public void evictAll() {
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+    }
+}
@@ -0,0 +1,47 @@
+package com.ingilizce.calismaapp.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The upstream future currently running for one logical LLM request
+ * Layers that chain futures (admission retries, provider failover) register each new
+ * upstream here, so cancelling the request's own future can reach the HTTP exchange.
+ * Cancelling before an upstream exists cancels it as soon as it is registered.
+ */
+class CancellableCall {
+
+    private volatile boolean cancelled = false;
+    private volatile CompletableFuture<?> current;
+
+    /**
+     * Cancel the request's result future together with the registered upstream
+     */
+    static <T> CompletableFuture<T> linkTo(CompletableFuture<T> result, CancellableCall call) {
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return result;
+    }
+
+    <T> CompletableFuture<T> register(CompletableFuture<T> upstream) {
+        current = upstream;
+        if (cancelled) {
+            upstream.cancel(true);
+        }
+        return upstream;
+    }
+
+    void cancel() {
+        cancelled = true;
+        CompletableFuture<?> upstream = current;
+        if (upstream != null) {
+            upstream.cancel(true);
+        }
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+}
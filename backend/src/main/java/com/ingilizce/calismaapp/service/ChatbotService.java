@@ -1,5 +1,6 @@
 package com.ingilizce.calismaapp.service;
 
+import com.ingilizce.calismaapp.model.LlmOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -7,26 +8,72 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class ChatbotService {
 
   private static final Logger logger = LoggerFactory.getLogger(ChatbotService.class);
   private final GroqService groqService;
+  private final ConversationMemoryService conversationMemory;
 
-  public ChatbotService(GroqService groqService) {
+  private static final String CHAT_SYSTEM_PROMPT = """
+      You are Owen, a friendly English chat buddy. NOT a teacher. Just a friend chatting.
+
+      STRICT RULES:
+      1. MAX 8-10 words per sentence. Break long thoughts into short sentences.
+      2. ALWAYS start with a filler: "Alright...", "Nice!", "Hmm...", "Well...", "Okay...", "Oh!", "Cool!"
+      3. ALWAYS end with a question to keep conversation going.
+      4. Use contractions: I'm, you're, don't, can't, won't, let's, that's.
+      5. NO teaching. NO grammar explanations. Just chat like a buddy.
+      6. If user makes a mistake, don't correct formally. Just naturally use the correct form.
+
+      RESPONSE FORMAT:
+      [Filler] + [1-2 short sentences] + [Question]
+
+      EXAMPLES:
+      User: "I go to school yesterday"
+      You: "Nice! So you went to school. What did you do there?"
+
+      User: "Hello"
+      You: "Hey! Good to hear you. How's your day going?"
+
+      User: "I am fine"
+      You: "Awesome! Glad to hear that. What are you up to today?"
+
+      NEVER:
+      - Write more than 3 short sentences
+      - Give grammar lessons
+      - Use formal language
+      - Skip the filler at the start
+      - Skip the question at the end
+      """;
+
+  public ChatbotService(GroqService groqService, ConversationMemoryService conversationMemory) {
     this.groqService = groqService;
+    this.conversationMemory = conversationMemory;
   }
 
   /**
    * Cümle üretme servisi - UNIVERSAL MODE
    */
-  public String generateSentences(String message) {
+  public String generateSentences(String message, int count) {
+    return GroqService.await(generateSentencesAsync(message, count));
+  }
+
+  public CompletableFuture<String> generateSentencesAsync(String message, int count) {
+    return generateSentencesAsync(message, count, LlmOperation.GENERATE_SENTENCES);
+  }
+
+  /**
+   * @param count Number of sentences, the same number the message asks for
+   */
+  public CompletableFuture<String> generateSentencesAsync(String message, int count, LlmOperation operation) {
     String systemPrompt = """
         ROLE: Expert English-Turkish Translator and Linguist.
 
         TASK:
-        Generate 3 distinct English sentences using the target word, then provide their PERFECTLY NATURAL Turkish translations.
+        Generate %d distinct English sentences using the target word, then provide their PERFECTLY NATURAL Turkish translations.
 
         CRITICAL RULES FOR TURKISH TRANSLATION:
         1. **NEVER translate word-for-word.** English grammar (SVO) and Turkish grammar (SOV) are different.
@@ -43,16 +90,20 @@ public class ChatbotService {
         Return ONLY a MINIFIED JSON array. NO code blocks, NO comments.
         Example:
         [{"englishSentence":"The plot of the novel is complex.","turkishTranslation":"kurgu","turkishFullTranslation":"Romanın kurgusu oldukça karmaşık."}]
-        """;
+        """.formatted(count);
 
-    return callGroq(systemPrompt, "Target word: '" + message + "'. Return ONLY pure, minified JSON. No other text.",
-        true);
+    return callGroqAsync(systemPrompt, "Target word: '" + message + "'. Return ONLY pure, minified JSON. No other text.",
+        true, operation);
   }
 
   /**
    * Çeviri kontrolü servisi
    */
   public String checkTranslation(String message) {
+    return GroqService.await(checkTranslationAsync(message));
+  }
+
+  public CompletableFuture<String> checkTranslationAsync(String message) {
     String systemPrompt = """
         ROLE: You are a supportive and encouraging English-Turkish translation checker.
 
@@ -80,13 +131,17 @@ public class ChatbotService {
         - Do not add any text before or after the JSON.
         """;
 
-    return callGroq(systemPrompt, message, true);
+    return callGroqAsync(systemPrompt, message, true, LlmOperation.CHECK_TRANSLATION);
   }
 
   /**
    * İngilizce Çeviri kontrolü servisi (TR -> EN)
    */
   public String checkEnglishTranslation(String message) {
+    return GroqService.await(checkEnglishTranslationAsync(message));
+  }
+
+  public CompletableFuture<String> checkEnglishTranslationAsync(String message) {
     String systemPrompt = """
         ROLE: You are a supportive and encouraging English Teacher.
 
@@ -111,52 +166,92 @@ public class ChatbotService {
         - Do not add any text before or after the JSON.
         """;
 
-    return callGroq(systemPrompt, message, true);
+    return callGroqAsync(systemPrompt, message, true, LlmOperation.CHECK_TRANSLATION);
   }
 
   /**
    * İngilizce sohbet pratiği servisi - Buddy Mode
    */
   public String chat(String message) {
-    String systemPrompt = """
-        You are Owen, a friendly English chat buddy. NOT a teacher. Just a friend chatting.
-
-        STRICT RULES:
-        1. MAX 8-10 words per sentence. Break long thoughts into short sentences.
-        2. ALWAYS start with a filler: "Alright...", "Nice!", "Hmm...", "Well...", "Okay...", "Oh!", "Cool!"
-        3. ALWAYS end with a question to keep conversation going.
-        4. Use contractions: I'm, you're, don't, can't, won't, let's, that's.
-        5. NO teaching. NO grammar explanations. Just chat like a buddy.
-        6. If user makes a mistake, don't correct formally. Just naturally use the correct form.
-
-        RESPONSE FORMAT:
-        [Filler] + [1-2 short sentences] + [Question]
-
-        EXAMPLES:
-        User: "I go to school yesterday"
-        You: "Nice! So you went to school. What did you do there?"
-
-        User: "Hello"
-        You: "Hey! Good to hear you. How's your day going?"
-
-        User: "I am fine"
-        You: "Awesome! Glad to hear that. What are you up to today?"
-
-        NEVER:
-        - Write more than 3 short sentences
-        - Give grammar lessons
-        - Use formal language
-        - Skip the filler at the start
-        - Skip the question at the end
-        """;
+    return GroqService.await(chatAsync(message));
+  }
 
-    return callGroq(systemPrompt, message, false);
+  public CompletableFuture<String> chatAsync(String message) {
+    return callGroqAsync(CHAT_SYSTEM_PROMPT, message, false, LlmOperation.CHAT);
+  }
+
+  /**
+   * Buddy chat with conversation memory: earlier turns of the session (recent ones
+   * verbatim, older ones as a summary) are sent along within the prompt token budget
+   */
+  public CompletableFuture<String> chatAsync(String userId, String sessionId, String message) {
+    List<Map<String, String>> messages = conversationMemory.buildPrompt(userId, sessionId, CHAT_SYSTEM_PROMPT,
+        message);
+    return groqService.chatCompletionAsync(messages, false, LlmOperation.CHAT)
+        .thenApply(response -> {
+          conversationMemory.recordExchange(userId, sessionId, message, response);
+          return response;
+        });
+  }
+
+  /**
+   * Buddy chat with token streaming (SSE), same prompt as chat()
+   */
+  public OpenAiCompatibleClient.TokenStream chatStream(String message, OpenAiCompatibleClient.TokenListener listener) {
+    return groqService.streamChatCompletion(buildMessages(CHAT_SYSTEM_PROMPT, message), LlmOperation.CHAT, listener);
+  }
+
+  /**
+   * Streaming variant of chatAsync(userId, sessionId, message), the answer is stored once the stream completes
+   */
+  public OpenAiCompatibleClient.TokenStream chatStream(String userId, String sessionId, String message,
+      OpenAiCompatibleClient.TokenListener listener) {
+    List<Map<String, String>> messages = conversationMemory.buildPrompt(userId, sessionId, CHAT_SYSTEM_PROMPT,
+        message);
+    StringBuilder answer = new StringBuilder();
+    return groqService.streamChatCompletion(messages, LlmOperation.CHAT, new OpenAiCompatibleClient.TokenListener() {
+      @Override
+      public void onToken(String token) throws Exception {
+        answer.append(token);
+        listener.onToken(token);
+      }
+
+      @Override
+      public void onComplete() {
+        conversationMemory.recordExchange(userId, sessionId, message, answer.toString());
+        listener.onComplete();
+      }
+
+      @Override
+      public void onError(Throwable error) {
+        listener.onError(error);
+      }
+    });
+  }
+
+  /**
+   * Forget the conversation of a session
+   */
+  public void resetConversation(String userId, String sessionId) {
+    conversationMemory.clear(userId, sessionId);
+  }
+
+  public Map<String, Object> getConversationMemoryStats() {
+    return conversationMemory.getStats();
   }
 
   /**
    * IELTS/TOEFL Speaking test soruları üretme servisi
    */
   public String generateSpeakingTestQuestions(String message) {
+    return GroqService.await(generateSpeakingTestQuestionsAsync(message));
+  }
+
+  public CompletableFuture<String> generateSpeakingTestQuestionsAsync(String message) {
+    return generateSpeakingTestQuestionsAsync(message, LlmOperation.SPEAKING_QUESTIONS);
+  }
+
+  public CompletableFuture<String> generateSpeakingTestQuestionsAsync(String message, LlmOperation operation) {
     String systemPrompt = """
         ROLE: Expert IELTS/TOEFL Speaking Test Examiner
 
@@ -179,13 +274,17 @@ public class ChatbotService {
         }
         """;
 
-    return callGroq(systemPrompt, "Generate " + message + ". Return ONLY JSON.", true);
+    return callGroqAsync(systemPrompt, "Generate " + message + ". Return ONLY JSON.", true, operation);
   }
 
   /**
    * IELTS/TOEFL Speaking test puanlama servisi
    */
   public String evaluateSpeakingTest(String message) {
+    return GroqService.await(evaluateSpeakingTestAsync(message));
+  }
+
+  public CompletableFuture<String> evaluateSpeakingTestAsync(String message) {
     String systemPrompt = """
         ROLE: Expert IELTS/TOEFL Speaking Test Examiner
 
@@ -228,10 +327,16 @@ public class ChatbotService {
         }
         """;
 
-    return callGroq(systemPrompt, message + " Return ONLY JSON.", true);
+    return callGroqAsync(systemPrompt, message + " Return ONLY JSON.", true,
+        LlmOperation.SPEAKING_EVALUATION);
+  }
+
+  private CompletableFuture<String> callGroqAsync(String systemPrompt, String userMessage, boolean jsonMode,
+      LlmOperation operation) {
+    return groqService.chatCompletionAsync(buildMessages(systemPrompt, userMessage), jsonMode, operation);
   }
 
-  private String callGroq(String systemPrompt, String userMessage, boolean jsonMode) {
+  private List<Map<String, String>> buildMessages(String systemPrompt, String userMessage) {
     List<Map<String, String>> messages = new ArrayList<>();
 
     Map<String, String> systemMsg = new HashMap<>();
@@ -244,6 +349,6 @@ public class ChatbotService {
     userMsg.put("content", userMessage);
     messages.add(userMsg);
 
-    return groqService.chatCompletion(messages, jsonMode);
+    return messages;
   }
 }
\ No newline at end of file
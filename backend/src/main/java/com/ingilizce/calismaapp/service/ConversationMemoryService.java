@@ -0,0 +1,371 @@
+package com.ingilizce.calismaapp.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ingilizce.calismaapp.model.LlmOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-side memory of the buddy chat, one conversation per (user, session id)
+ * Recent turns are kept in a ring buffer; turns that fall out of it (or out of the
+ * token budget) are folded into a running summary by the LLM in the background.
+ * Every prompt is assembled as system prompt + summary + as many recent turns as fit
+ * under chat.memory.max-prompt-tokens, so prompt size stays flat however long the chat gets.
+ *
+ * Idle conversations are spilled to Redis (chat:session:{userId}:{sessionId}) and loaded back on the
+ * next message. Session ids are scoped to the user, another user reusing an id gets its own conversation.
+ */
+@Service
+public class ConversationMemoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationMemoryService.class);
+
+    private static final String KEY_PREFIX = "chat:session:";
+    private static final String SUMMARY_PROMPT = """
+            You maintain the memory of a casual English practice chat between a learner (user) and their buddy Owen (assistant).
+            Merge the existing summary and the new messages into one short summary.
+            Keep facts about the user (name, plans, likes, topics talked about) and open questions.
+            Write in English, third person, at most %d words. Return only the summary text.
+            """;
+
+    @Autowired
+    private GroqService groqService;
+
+    @Autowired(required = false)
+    private RedisTemplate<String, Object> redisTemplate;
+
+    // Ring buffer size (messages, a user message and the answer are two)
+    @Value("${chat.memory.max-turns:20}")
+    private int maxTurns;
+
+    // Hard cap for system prompt + summary + history + new message
+    @Value("${chat.memory.max-prompt-tokens:1500}")
+    private int maxPromptTokens;
+
+    @Value("${chat.memory.summary-max-tokens:200}")
+    private int summaryMaxTokens;
+
+    @Value("${chat.memory.max-sessions:5000}")
+    private int maxSessions;
+
+    @Value("${chat.memory.idle-spill-minutes:10}")
+    private long idleSpillMinutes;
+
+    @Value("${chat.memory.ttl-hours:24}")
+    private long ttlHours;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+
+    private final LongAdder summarizations = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder restored = new LongAdder();
+
+    record Turn(String role, String content, int tokens) {
+    }
+
+    private static class Conversation {
+        final Deque<Turn> turns = new ArrayDeque<>();
+        // Turns that left the buffer but are not in the summary yet
+        final List<Turn> pendingFold = new ArrayList<>();
+        String summary = "";
+        volatile boolean summarizing = false;
+        volatile long lastAccess = System.currentTimeMillis();
+    }
+
+    /**
+     * Rough token estimate (about 4 characters per token plus per-message overhead)
+     */
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4 + 4;
+    }
+
+    /**
+     * Messages for the next completion: system prompt, summary, recent turns that fit, new message
+     */
+    public List<Map<String, String>> buildPrompt(String userId, String sessionId, String systemPrompt,
+            String userMessage) {
+        Conversation conversation = get(key(userId, sessionId));
+        List<Map<String, String>> messages = new ArrayList<>();
+        messages.add(message("system", systemPrompt));
+
+        synchronized (conversation) {
+            int budget = maxPromptTokens - estimateTokens(systemPrompt) - estimateTokens(userMessage);
+            if (!conversation.summary.isEmpty()) {
+                String summaryText = "Earlier in this conversation: " + conversation.summary;
+                budget -= estimateTokens(summaryText);
+                messages.add(message("system", summaryText));
+            }
+
+            // Newest first until the budget is used up, then restore chronological order
+            List<Map<String, String>> history = new ArrayList<>();
+            Iterator<Turn> newestFirst = conversation.turns.descendingIterator();
+            while (newestFirst.hasNext()) {
+                Turn turn = newestFirst.next();
+                if (turn.tokens() > budget) {
+                    break;
+                }
+                budget -= turn.tokens();
+                history.add(0, message(turn.role(), turn.content()));
+            }
+            messages.addAll(history);
+        }
+
+        messages.add(message("user", userMessage));
+        return messages;
+    }
+
+    /**
+     * Store a finished exchange and fold old turns into the summary if needed
+     */
+    public void recordExchange(String userId, String sessionId, String userMessage, String assistantMessage) {
+        String key = key(userId, sessionId);
+        Conversation conversation = get(key);
+        boolean startSummary = false;
+        synchronized (conversation) {
+            conversation.turns.addLast(new Turn("user", userMessage, estimateTokens(userMessage)));
+            conversation.turns.addLast(new Turn("assistant", assistantMessage, estimateTokens(assistantMessage)));
+
+            // History may use what is left after a typical system prompt + summary + message
+            int historyBudget = maxPromptTokens - summaryMaxTokens - maxPromptTokens / 3;
+            int historyTokens = conversation.turns.stream().mapToInt(Turn::tokens).sum();
+            while (conversation.turns.size() > 2
+                    && (conversation.turns.size() > maxTurns || historyTokens > historyBudget)) {
+                Turn oldest = conversation.turns.removeFirst();
+                historyTokens -= oldest.tokens();
+                conversation.pendingFold.add(oldest);
+            }
+            if (!conversation.pendingFold.isEmpty() && !conversation.summarizing) {
+                conversation.summarizing = true;
+                startSummary = true;
+            }
+        }
+        if (startSummary) {
+            summarize(key, conversation);
+        }
+    }
+
+    /**
+     * Forget a conversation (memory and Redis)
+     */
+    public void clear(String userId, String sessionId) {
+        String key = key(userId, sessionId);
+        conversations.remove(key);
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.delete(KEY_PREFIX + key);
+            } catch (Exception e) {
+                logger.warn("Could not delete chat session {} from Redis: {}", sessionId, e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessionsInMemory", conversations.size());
+        stats.put("summarizations", summarizations.sum());
+        stats.put("spilledToRedis", spilled.sum());
+        stats.put("restoredFromRedis", restored.sum());
+        stats.put("maxPromptTokens", maxPromptTokens);
+        return stats;
+    }
+
+    /**
+     * Move idle conversations out of memory (to Redis when available)
+     */
+    @Scheduled(fixedDelayString = "${chat.memory.spill-interval-ms:60000}")
+    public void spillIdle() {
+        long idleBefore = System.currentTimeMillis() - Duration.ofMinutes(idleSpillMinutes).toMillis();
+        long expiredBefore = System.currentTimeMillis() - Duration.ofHours(ttlHours).toMillis();
+        for (Map.Entry<String, Conversation> entry : conversations.entrySet()) {
+            long lastAccess = entry.getValue().lastAccess;
+            // A running summary would write into the spilled copy, wait for the next sweep
+            if (entry.getValue().summarizing) {
+                continue;
+            }
+            if (redisTemplate != null ? lastAccess < idleBefore : lastAccess < expiredBefore) {
+                spill(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static String key(String userId, String sessionId) {
+        return userId + ":" + sessionId;
+    }
+
+    private Conversation get(String sessionId) {
+        Conversation conversation = conversations.computeIfAbsent(sessionId, this::restore);
+        conversation.lastAccess = System.currentTimeMillis();
+        if (conversations.size() > maxSessions) {
+            spillLeastRecentlyUsed(sessionId);
+        }
+        return conversation;
+    }
+
+    private Conversation restore(String sessionId) {
+        Conversation conversation = new Conversation();
+        if (redisTemplate == null) {
+            return conversation;
+        }
+        try {
+            Object stored = redisTemplate.opsForValue().get(KEY_PREFIX + sessionId);
+            if (stored == null) {
+                return conversation;
+            }
+            Map<String, Object> state = objectMapper.readValue(stored.toString(),
+                    new TypeReference<Map<String, Object>>() {
+                    });
+            conversation.summary = String.valueOf(state.getOrDefault("summary", ""));
+            addTurns(conversation.pendingFold, state.get("pending"));
+            List<Turn> turns = new ArrayList<>();
+            addTurns(turns, state.get("turns"));
+            conversation.turns.addAll(turns);
+            restored.increment();
+        } catch (Exception e) {
+            logger.warn("Could not restore chat session {}: {}", sessionId, e.getMessage());
+        }
+        return conversation;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addTurns(List<Turn> target, Object stored) {
+        if (!(stored instanceof List)) {
+            return;
+        }
+        for (Object item : (List<Object>) stored) {
+            Map<String, Object> turn = (Map<String, Object>) item;
+            String content = String.valueOf(turn.get("content"));
+            target.add(new Turn(String.valueOf(turn.get("role")), content, estimateTokens(content)));
+        }
+    }
+
+    private void spill(String sessionId, Conversation conversation) {
+        if (redisTemplate != null) {
+            try {
+                Map<String, Object> state = new HashMap<>();
+                synchronized (conversation) {
+                    state.put("summary", conversation.summary);
+                    state.put("pending", toMaps(conversation.pendingFold));
+                    state.put("turns", toMaps(conversation.turns));
+                }
+                redisTemplate.opsForValue().set(KEY_PREFIX + sessionId, objectMapper.writeValueAsString(state),
+                        Duration.ofHours(ttlHours));
+                spilled.increment();
+            } catch (Exception e) {
+                // Keep it in memory, retried on the next sweep
+                logger.warn("Could not spill chat session {} to Redis: {}", sessionId, e.getMessage());
+                return;
+            }
+        }
+        conversations.remove(sessionId, conversation);
+    }
+
+    private void spillLeastRecentlyUsed(String keep) {
+        String oldestId = null;
+        long oldestAccess = Long.MAX_VALUE;
+        for (Map.Entry<String, Conversation> entry : conversations.entrySet()) {
+            // As in spillIdle: a running summary would write into the spilled copy
+            if (!entry.getKey().equals(keep) && !entry.getValue().summarizing
+                    && entry.getValue().lastAccess < oldestAccess) {
+                oldestAccess = entry.getValue().lastAccess;
+                oldestId = entry.getKey();
+            }
+        }
+        if (oldestId != null) {
+            Conversation oldest = conversations.get(oldestId);
+            if (oldest != null) {
+                spill(oldestId, oldest);
+            }
+        }
+    }
+
+    // Background LLM call; the chat keeps working with the turns that still fit meanwhile
+    private void summarize(String sessionId, Conversation conversation) {
+        String previousSummary;
+        List<Turn> folding;
+        synchronized (conversation) {
+            previousSummary = conversation.summary;
+            folding = new ArrayList<>(conversation.pendingFold);
+        }
+
+        StringBuilder transcript = new StringBuilder();
+        if (!previousSummary.isEmpty()) {
+            transcript.append("Existing summary: ").append(previousSummary).append("\n\n");
+        }
+        transcript.append("New messages:\n");
+        for (Turn turn : folding) {
+            transcript.append(turn.role()).append(": ").append(turn.content()).append("\n");
+        }
+
+        List<Map<String, String>> messages = new ArrayList<>();
+        messages.add(message("system", String.format(SUMMARY_PROMPT, summaryMaxTokens * 3 / 4)));
+        messages.add(message("user", transcript.toString()));
+
+        groqService.chatCompletionAsync(messages, false, LlmOperation.CHAT_SUMMARY)
+                .whenComplete((summary, error) -> {
+                    boolean again;
+                    synchronized (conversation) {
+                        if (error == null && summary != null && !summary.isBlank()) {
+                            conversation.summary = truncateToTokens(summary.trim(), summaryMaxTokens);
+                        } else {
+                            // Keep the chat usable without the LLM: the newest part of the folded turns
+                            logger.warn("Chat summary for {} failed: {}", sessionId,
+                                    error != null ? error.getMessage() : "empty answer");
+                            conversation.summary = keepLastTokens(transcript.toString().replace('\n', ' '),
+                                    summaryMaxTokens);
+                        }
+                        conversation.pendingFold.subList(0, Math.min(folding.size(),
+                                conversation.pendingFold.size())).clear();
+                        again = !conversation.pendingFold.isEmpty();
+                        conversation.summarizing = again;
+                    }
+                    summarizations.increment();
+                    if (again) {
+                        summarize(sessionId, conversation);
+                    }
+                });
+    }
+
+    private static String truncateToTokens(String text, int maxTokens) {
+        int maxChars = Math.max(0, (maxTokens - 4) * 4);
+        return text.length() <= maxChars ? text : text.substring(0, maxChars) + "...";
+    }
+
+    private static String keepLastTokens(String text, int maxTokens) {
+        int maxChars = Math.max(0, (maxTokens - 4) * 4);
+        return text.length() <= maxChars ? text : "..." + text.substring(text.length() - maxChars);
+    }
+
+    private static List<Map<String, String>> toMaps(Iterable<Turn> turns) {
+        List<Map<String, String>> maps = new ArrayList<>();
+        for (Turn turn : turns) {
+            maps.add(message(turn.role(), turn.content()));
+        }
+        return maps;
+    }
+
+    private static Map<String, String> message(String role, String content) {
+        Map<String, String> message = new HashMap<>();
+        message.put("role", role);
+        message.put("content", content);
+        return message;
+    }
+}
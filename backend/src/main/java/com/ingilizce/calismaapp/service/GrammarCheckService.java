@@ -1,15 +1,24 @@
 package com.ingilizce.calismaapp.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ingilizce.calismaapp.model.LlmOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Groq AI ile gramer kontrolü servisi
@@ -20,11 +29,28 @@ public class GrammarCheckService {
 
     private static final Logger logger = LoggerFactory.getLogger(GrammarCheckService.class);
 
+    // Part of the result cache key: bump when the prompts or the result schema change
+    static final String PROMPT_VERSION = "v1";
+
     // Constructor Injection (Safe)
     private final GroqService groqService;
     private final ObjectMapper objectMapper;
     private boolean enabled = true;
 
+    @Autowired
+    private GrammarResultCache resultCache;
+
+    @Autowired
+    private LocalGrammarEngine localEngine;
+
+    // Sentences per packed prompt
+    @Value("${grammar.check.batch-size:8}")
+    private int batchSize;
+
+    // Concurrent single-sentence requests when falling back from a batch
+    @Value("${grammar.check.max-parallel:4}")
+    private int maxParallel;
+
     @Autowired
     public GrammarCheckService(GroqService groqService) {
         this.groqService = groqService;
@@ -43,80 +69,282 @@ public class GrammarCheckService {
      * @return Gramer hataları listesi
      */
     public Map<String, Object> checkGrammar(String sentence) {
+        return GroqService.await(checkGrammarAsync(sentence));
+    }
+
+    /**
+     * Non-blocking variant of checkGrammar, the request thread is not held while Groq answers
+     */
+    public CompletableFuture<Map<String, Object>> checkGrammarAsync(String sentence) {
+        return checkGrammarAsync(sentence, false);
+    }
+
+    /**
+     * @param deep Skip the local rule tier and always ask the LLM
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Map<String, Object>> checkGrammarAsync(String sentence, boolean deep) {
         logger.info("📝 Check Grammar Request: '{}'", sentence);
 
         if (!enabled || sentence == null || sentence.trim().isEmpty()) {
-            return createNoErrorResponse();
+            return CompletableFuture.completedFuture(createNoErrorResponse());
+        }
+
+        // Önce yerel kurallar: basit doğru/yanlış cümleler için LLM'e gerek yok
+        if (!deep) {
+            LocalGrammarEngine.Result local = localEngine.check(sentence);
+            if (local.verdict() != LocalGrammarEngine.Verdict.UNDECIDED) {
+                logger.debug("Grammar decided locally ({}): '{}'", local.verdict(), sentence);
+                return CompletableFuture.completedFuture(local.toResponse());
+            }
+        }
+
+        // Aynı cümle daha önce kontrol edildiyse LLM'e gitme
+        Map<String, Object> cached = resultCache.get(sentence, PROMPT_VERSION);
+        if (cached != null) {
+            logger.debug("Grammar cache hit: '{}'", sentence);
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        // Prompt hazırlama
+        String prompt = String.format(
+                "You are an expert English grammar checker. Analyze the following sentence for grammar, spelling, punctuation, and style errors.\n\n"
+                        +
+                        "Sentence: \"%s\"\n\n" +
+                        "Return ONLY a valid JSON object with this exact structure (no markdown, no explanations outside JSON):\n"
+                        +
+                        "{\n" +
+                        "  \"hasErrors\": boolean,\n" +
+                        "  \"errors\": [\n" +
+                        "    {\n" +
+                        "      \"message\": \"Detailed explanation of the error\",\n" +
+                        "      \"shortMessage\": \"Short error name (e.g. 'Wrong Verb Form')\",\n" +
+                        "      \"fromPos\": int (0-based start index of the error in the original sentence),\n" +
+                        "      \"toPos\": int (0-based end index of the error),\n" +
+                        "      \"suggestions\": [\"suggestion1\", \"suggestion2\"]\n" +
+                        "    }\n" +
+                        "  ],\n" +
+                        "  \"errorCount\": int\n" +
+                        "}\n\n" +
+                        "If there are no errors, set hasErrors to false, errors to [], and errorCount to 0.\n" +
+                        "Ensure fromPos and toPos are accurate character indices.",
+                sentence.replace("\"", "\\\""));
+
+        List<Map<String, String>> messages = new ArrayList<>();
+        Map<String, String> userMessage = new HashMap<>();
+        userMessage.put("role", "user");
+        userMessage.put("content", prompt);
+        messages.add(userMessage);
+
+        // Groq API çağrısı
+        logger.info("🚀 Calling Groq API...");
+        return groqService.chatCompletionAsync(messages, true, LlmOperation.GRAMMAR_CHECK)
+                .handle((jsonResponse, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        logger.error("❌ Error checking grammar with Groq: {}", cause.getMessage());
+                        throw new RuntimeException("Grammar Check Failed: " + cause.getMessage());
+                    }
+                    logger.info("📩 Groq Response received (Length: {})",
+                            jsonResponse != null ? jsonResponse.length() : "NULL");
+                    if (jsonResponse == null) {
+                        return createNoErrorResponse();
+                    }
+                    try {
+                        Map<String, Object> result = (Map<String, Object>) objectMapper.readValue(jsonResponse,
+                                Map.class);
+                        resultCache.put(sentence, PROMPT_VERSION, result);
+                        return result;
+                    } catch (Exception e) {
+                        logger.error("❌ Error checking grammar with Groq: {}", e.getMessage());
+                        throw new RuntimeException("Grammar Check Failed: " + e.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Birden fazla cümlenin gramerini kontrol eder
+     */
+    public Map<String, List<Map<String, Object>>> checkMultipleSentences(List<String> sentences) {
+        return GroqService.await(checkMultipleSentencesAsync(sentences, false));
+    }
+
+    /**
+     * Checks several sentences in about one LLM round trip.
+     * Up to batchSize sentences are packed into one prompt and the errors are mapped back
+     * by index; batches run concurrently. Sentences the batch answer does not cover (or a
+     * batch that cannot be parsed) fall back to single-sentence checks, at most maxParallel
+     * at a time. Sentences the local rules can decide never reach the LLM (unless deep).
+     *
+     * @return Sentence -> errors, only sentences with errors are included
+     */
+    public CompletableFuture<Map<String, List<Map<String, Object>>>> checkMultipleSentencesAsync(
+            List<String> sentences, boolean deep) {
+        List<String> unique = new ArrayList<>(new LinkedHashSet<>(sentences));
+        unique.removeIf(sentence -> sentence == null || sentence.trim().isEmpty());
+        if (!enabled || unique.isEmpty()) {
+            return CompletableFuture.completedFuture(new HashMap<>());
         }
 
+        Map<String, Map<String, Object>> checked = new ConcurrentHashMap<>();
+        List<String> uncached = new ArrayList<>();
+        for (String sentence : unique) {
+            if (!deep) {
+                LocalGrammarEngine.Result local = localEngine.check(sentence);
+                if (local.verdict() != LocalGrammarEngine.Verdict.UNDECIDED) {
+                    checked.put(sentence, local.toResponse());
+                    continue;
+                }
+            }
+            Map<String, Object> cached = resultCache.get(sentence, PROMPT_VERSION);
+            if (cached != null) {
+                checked.put(sentence, cached);
+            } else {
+                uncached.add(sentence);
+            }
+        }
+
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < uncached.size(); from += Math.max(1, batchSize)) {
+            List<String> batch = uncached.subList(from, Math.min(uncached.size(), from + Math.max(1, batchSize)));
+            batches.add(checkBatchAsync(batch, checked, deep));
+        }
+
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0]))
+                .thenCompose(ignored -> {
+                    List<String> missing = new ArrayList<>();
+                    for (String sentence : unique) {
+                        if (!checked.containsKey(sentence)) {
+                            missing.add(sentence);
+                        }
+                    }
+                    if (!missing.isEmpty()) {
+                        logger.info("Batch grammar check left {} sentences unanswered, checking them one by one",
+                                missing.size());
+                    }
+                    return checkEachAsync(missing, checked, deep);
+                })
+                .thenApply(ignored -> {
+                    Map<String, List<Map<String, Object>>> results = new HashMap<>();
+                    for (String sentence : unique) {
+                        List<Map<String, Object>> errors = errorsOf(checked.get(sentence));
+                        if (!errors.isEmpty()) {
+                            results.put(sentence, errors);
+                        }
+                    }
+                    return results;
+                });
+    }
+
+    // One prompt for the whole batch, answers are matched to sentences by "index"
+    private CompletableFuture<Void> checkBatchAsync(List<String> batch, Map<String, Map<String, Object>> checked,
+            boolean deep) {
+        if (batch.size() == 1) {
+            return checkGrammarAsync(batch.get(0), deep).thenAccept(result -> checked.put(batch.get(0), result));
+        }
+
+        String prompt;
         try {
-            // Prompt hazırlama
-            String prompt = String.format(
-                    "You are an expert English grammar checker. Analyze the following sentence for grammar, spelling, punctuation, and style errors.\n\n"
+            prompt = String.format(
+                    "You are an expert English grammar checker. Analyze each of the following sentences for grammar, spelling, punctuation, and style errors.\n\n"
+                            +
+                            "Sentences (JSON array, the index of a sentence is its position, starting at 0):\n%s\n\n"
                             +
-                            "Sentence: \"%s\"\n\n" +
                             "Return ONLY a valid JSON object with this exact structure (no markdown, no explanations outside JSON):\n"
                             +
                             "{\n" +
-                            "  \"hasErrors\": boolean,\n" +
-                            "  \"errors\": [\n" +
+                            "  \"results\": [\n" +
                             "    {\n" +
-                            "      \"message\": \"Detailed explanation of the error\",\n" +
-                            "      \"shortMessage\": \"Short error name (e.g. 'Wrong Verb Form')\",\n" +
-                            "      \"fromPos\": int (0-based start index of the error in the original sentence),\n" +
-                            "      \"toPos\": int (0-based end index of the error),\n" +
-                            "      \"suggestions\": [\"suggestion1\", \"suggestion2\"]\n" +
+                            "      \"index\": int (position of the sentence in the array),\n" +
+                            "      \"hasErrors\": boolean,\n" +
+                            "      \"errors\": [\n" +
+                            "        {\n" +
+                            "          \"message\": \"Detailed explanation of the error\",\n" +
+                            "          \"shortMessage\": \"Short error name (e.g. 'Wrong Verb Form')\",\n" +
+                            "          \"fromPos\": int (0-based start index of the error in that sentence),\n" +
+                            "          \"toPos\": int (0-based end index of the error),\n" +
+                            "          \"suggestions\": [\"suggestion1\", \"suggestion2\"]\n" +
+                            "        }\n" +
+                            "      ],\n" +
+                            "      \"errorCount\": int\n" +
                             "    }\n" +
-                            "  ],\n" +
-                            "  \"errorCount\": int\n" +
+                            "  ]\n" +
                             "}\n\n" +
-                            "If there are no errors, set hasErrors to false, errors to [], and errorCount to 0.\n" +
-                            "Ensure fromPos and toPos are accurate character indices.",
-                    sentence.replace("\"", "\\\""));
-
-            List<Map<String, String>> messages = new ArrayList<>();
-            Map<String, String> userMessage = new HashMap<>();
-            userMessage.put("role", "user");
-            userMessage.put("content", prompt);
-            messages.add(userMessage);
-
-            // Groq API çağrısı
-            logger.info("🚀 Calling Groq API...");
-            String jsonResponse = groqService.chatCompletion(messages, true);
-            logger.info("📩 Groq Response received (Length: {})",
-                    jsonResponse != null ? jsonResponse.length() : "NULL");
-
-            if (jsonResponse != null) {
-                return objectMapper.readValue(jsonResponse, Map.class);
-            }
-
+                            "Return exactly one result per sentence. If a sentence has no errors, set hasErrors to false, errors to [], and errorCount to 0.\n"
+                            +
+                            "Ensure fromPos and toPos are accurate character indices within that sentence.",
+                    objectMapper.writeValueAsString(batch));
         } catch (Exception e) {
-            logger.error("❌ Error checking grammar with Groq: {}", e.getMessage(), e);
-            throw new RuntimeException("Grammar Check Failed: " + e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<Map<String, String>> messages = new ArrayList<>();
+        Map<String, String> userMessage = new HashMap<>();
+        userMessage.put("role", "user");
+        userMessage.put("content", prompt);
+        messages.add(userMessage);
+
+        logger.info("🚀 Calling Groq API for a batch of {} sentences...", batch.size());
+        return groqService.chatCompletionAsync(messages, true, LlmOperation.GRAMMAR_CHECK)
+                .handle((jsonResponse, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        logger.warn("Batch grammar check failed, falling back to single checks: {}",
+                                cause.getMessage());
+                        return null;
+                    }
+                    try {
+                        JsonNode results = objectMapper.readTree(jsonResponse).path("results");
+                        for (JsonNode result : results) {
+                            JsonNode index = result.path("index");
+                            if (!index.canConvertToInt() || index.asInt() < 0 || index.asInt() >= batch.size()) {
+                                continue;
+                            }
+                            @SuppressWarnings("unchecked")
+                            Map<String, Object> checkResult = objectMapper.convertValue(result, Map.class);
+                            checkResult.remove("index");
+                            if (checked.putIfAbsent(batch.get(index.asInt()), checkResult) == null) {
+                                resultCache.put(batch.get(index.asInt()), PROMPT_VERSION, checkResult);
+                            }
+                        }
+                    } catch (Exception e) {
+                        logger.warn("Could not parse batch grammar response, falling back to single checks: {}",
+                                e.getMessage());
+                    }
+                    return null;
+                });
+    }
+
+    // Single-sentence checks with at most maxParallel requests in flight
+    private CompletableFuture<Void> checkEachAsync(List<String> sentences, Map<String, Map<String, Object>> checked,
+            boolean deep) {
+        Queue<String> queue = new ConcurrentLinkedQueue<>(sentences);
+        List<CompletableFuture<Void>> lanes = new ArrayList<>();
+        for (int i = 0; i < Math.min(Math.max(1, maxParallel), sentences.size()); i++) {
+            lanes.add(runLane(queue, checked, deep));
         }
+        return CompletableFuture.allOf(lanes.toArray(new CompletableFuture[0]));
+    }
 
-        return createNoErrorResponse();
+    private CompletableFuture<Void> runLane(Queue<String> queue, Map<String, Map<String, Object>> checked,
+            boolean deep) {
+        String sentence = queue.poll();
+        if (sentence == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return checkGrammarAsync(sentence, deep).thenCompose(result -> {
+            checked.put(sentence, result);
+            return runLane(queue, checked, deep);
+        });
     }
 
-    /**
-     * Birden fazla cümlenin gramerini kontrol eder
-     */
     @SuppressWarnings("unchecked")
-    public Map<String, List<Map<String, Object>>> checkMultipleSentences(List<String> sentences) {
-        Map<String, List<Map<String, Object>>> results = new HashMap<>();
-
-        for (String sentence : sentences) {
-            Map<String, Object> checkResult = checkGrammar(sentence);
-            Object errorsObj = checkResult.get("errors");
-            if (errorsObj instanceof List) {
-                List<Map<String, Object>> errors = (List<Map<String, Object>>) errorsObj;
-                if (errors != null && !errors.isEmpty()) {
-                    results.put(sentence, errors);
-                }
-            }
+    private List<Map<String, Object>> errorsOf(Map<String, Object> checkResult) {
+        Object errorsObj = checkResult != null ? checkResult.get("errors") : null;
+        if (errorsObj instanceof List) {
+            return (List<Map<String, Object>>) errorsObj;
         }
-
-        return results;
+        return List.of();
     }
 
     private Map<String, Object> createNoErrorResponse() {
@@ -127,6 +355,16 @@ public class GrammarCheckService {
         return result;
     }
 
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = resultCache.getStats();
+        stats.put("promptVersion", PROMPT_VERSION);
+        return stats;
+    }
+
+    public Map<String, Object> getLocalEngineStats() {
+        return localEngine.getStats();
+    }
+
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
     }
@@ -0,0 +1,327 @@
+package com.ingilizce.calismaapp.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Two-tier cache for grammar check results
+ * L1: in-process Caffeine, L2: Redis (shared between instances, survives restarts).
+ * Keyed by the prompt version and a hash of the normalized sentence (whitespace collapsed and
+ * trimmed, no space before the final punctuation), so "I goes  to school ." and "I goes to school."
+ * share an entry. Case and the punctuation marks themselves stay in the key: "i goes to school"
+ * has a capitalization error the other two do not.
+ * Error positions are stored relative to the normalized sentence and mapped back to the
+ * caller's sentence on read. "No errors" results are cached too, with their own TTL.
+ *
+ * Keys: grammar:v2:{promptVersion}:{sha256(normalized sentence)}
+ */
+@Component
+public class GrammarResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(GrammarResultCache.class);
+
+    // v2: case-sensitive keys; case-folded v1 entries are left to expire
+    private static final String KEY_PREFIX = "grammar:v2:";
+    // Stored instead of the full JSON for results without errors
+    private static final String NO_ERRORS = "0";
+
+    @Autowired(required = false)
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${grammar.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${grammar.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${grammar.cache.ttl-seconds:86400}") // Default: 1 day
+    private long ttlSeconds;
+
+    @Value("${grammar.cache.no-error-ttl-seconds:604800}") // Default: 7 days
+    private long noErrorTtlSeconds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Cache<String, String> local;
+
+    private final LongAdder l1Hits = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder noErrorHits = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        this.local = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, String>() {
+                    @Override
+                    public long expireAfterCreate(String key, String value, long currentTime) {
+                        return TimeUnit.SECONDS.toNanos(ttlFor(value));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, String value, long currentTime, long currentDuration) {
+                        return TimeUnit.SECONDS.toNanos(ttlFor(value));
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, String value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Cached result for the sentence, positions mapped to this sentence
+     *
+     * @return null on a miss
+     */
+    public Map<String, Object> get(String sentence, String promptVersion) {
+        if (!enabled || sentence == null) {
+            return null;
+        }
+        NormalizedSentence normalized = NormalizedSentence.of(sentence);
+        String key = key(normalized.text(), promptVersion);
+
+        String value = local.getIfPresent(key);
+        if (value != null) {
+            l1Hits.increment();
+        } else {
+            value = readRedis(key);
+            if (value == null) {
+                misses.increment();
+                return null;
+            }
+            l2Hits.increment();
+            local.put(key, value);
+        }
+
+        try {
+            return decode(value, normalized);
+        } catch (Exception e) {
+            logger.warn("Dropping unreadable grammar cache entry {}: {}", key, e.getMessage());
+            local.invalidate(key);
+            return null;
+        }
+    }
+
+    /**
+     * Store a successful check result (errors are never cached)
+     */
+    public void put(String sentence, String promptVersion, Map<String, Object> result) {
+        if (!enabled || sentence == null || result == null) {
+            return;
+        }
+        NormalizedSentence normalized = NormalizedSentence.of(sentence);
+        String key = key(normalized.text(), promptVersion);
+        String value;
+        try {
+            value = encode(result, normalized);
+        } catch (Exception e) {
+            logger.warn("Could not cache grammar result: {}", e.getMessage());
+            return;
+        }
+
+        local.put(key, value);
+        puts.increment();
+        if (redisTemplate != null) {
+            // Off the caller's thread (often an HttpClient thread)
+            CompletableFuture.runAsync(() -> {
+                try {
+                    redisTemplate.opsForValue().set(key, value, Duration.ofSeconds(ttlFor(value)));
+                } catch (Exception e) {
+                    redisErrors.increment();
+                    logger.debug("Grammar cache write to Redis failed: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hits = l1Hits.sum() + l2Hits.sum();
+        long total = hits + misses.sum();
+        CacheStats l1 = local.stats();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("l1Hits", l1Hits.sum());
+        stats.put("l2Hits", l2Hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("noErrorHits", noErrorHits.sum());
+        stats.put("hitRatio", total > 0 ? (double) hits / total : 0.0);
+        stats.put("puts", puts.sum());
+        stats.put("l1Size", local.estimatedSize());
+        stats.put("l1Evictions", l1.evictionCount());
+        stats.put("redisAvailable", redisTemplate != null);
+        stats.put("redisErrors", redisErrors.sum());
+        return stats;
+    }
+
+    private String readRedis(String key) {
+        if (redisTemplate == null) {
+            return null;
+        }
+        try {
+            Object value = redisTemplate.opsForValue().get(key);
+            return value != null ? value.toString() : null;
+        } catch (Exception e) {
+            redisErrors.increment();
+            logger.debug("Grammar cache read from Redis failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private long ttlFor(String value) {
+        return NO_ERRORS.equals(value) ? noErrorTtlSeconds : ttlSeconds;
+    }
+
+    @SuppressWarnings("unchecked")
+    private String encode(Map<String, Object> result, NormalizedSentence sentence) throws Exception {
+        Object errorsObj = result.get("errors");
+        if (!(errorsObj instanceof List) || ((List<?>) errorsObj).isEmpty()) {
+            return NO_ERRORS;
+        }
+        Map<String, Object> stored = new LinkedHashMap<>(result);
+        List<Map<String, Object>> errors = new ArrayList<>();
+        for (Object errorObj : (List<Object>) errorsObj) {
+            if (!(errorObj instanceof Map)) {
+                continue;
+            }
+            Map<String, Object> error = new LinkedHashMap<>((Map<String, Object>) errorObj);
+            mapPosition(error, "fromPos", sentence::toNormalized);
+            mapPosition(error, "toPos", sentence::toNormalized);
+            errors.add(error);
+        }
+        stored.put("errors", errors);
+        return objectMapper.writeValueAsString(stored);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> decode(String value, NormalizedSentence sentence) throws Exception {
+        if (NO_ERRORS.equals(value)) {
+            noErrorHits.increment();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("hasErrors", false);
+            result.put("errors", new ArrayList<>());
+            result.put("errorCount", 0);
+            return result;
+        }
+        Map<String, Object> result = objectMapper.readValue(value, new TypeReference<Map<String, Object>>() {
+        });
+        Object errorsObj = result.get("errors");
+        if (errorsObj instanceof List) {
+            for (Object errorObj : (List<Object>) errorsObj) {
+                if (errorObj instanceof Map) {
+                    Map<String, Object> error = (Map<String, Object>) errorObj;
+                    mapPosition(error, "fromPos", sentence::toOriginal);
+                    mapPosition(error, "toPos", sentence::toOriginal);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void mapPosition(Map<String, Object> error, String field,
+            IntUnaryOperator mapping) {
+        Object position = error.get(field);
+        if (position instanceof Number) {
+            error.put(field, mapping.applyAsInt(((Number) position).intValue()));
+        }
+    }
+
+    private static String key(String normalized, String promptVersion) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return KEY_PREFIX + promptVersion + ":" + HexFormat.of().formatHex(hash);
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Trimmed sentence with whitespace runs collapsed to one space and dropped before the
+     * final punctuation, plus the index mapping between the original and the normalized text
+     */
+    record NormalizedSentence(String text, int[] originalToNormalized, int[] normalizedToOriginal) {
+
+        private static final String FINAL_PUNCTUATION = ".!?…";
+
+        static NormalizedSentence of(String original) {
+            int length = original.length();
+            StringBuilder text = new StringBuilder(length);
+            int[] toNormalized = new int[length + 1];
+            int[] toOriginal = new int[length + 1];
+
+            int end = length;
+            while (end > 0 && Character.isWhitespace(original.charAt(end - 1))) {
+                end--;
+            }
+            int finalPunctuation = end;
+            while (finalPunctuation > 0 && FINAL_PUNCTUATION.indexOf(original.charAt(finalPunctuation - 1)) >= 0) {
+                finalPunctuation--;
+            }
+
+            int whitespaceStart = -1;
+            int lastContentEnd = 0;
+            for (int i = 0; i < length; i++) {
+                char c = original.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    if (whitespaceStart < 0) {
+                        whitespaceStart = i;
+                    }
+                    toNormalized[i] = text.length();
+                    continue;
+                }
+                if (whitespaceStart >= 0 && text.length() > 0 && i != finalPunctuation) {
+                    // One space for the whole run, pointing at its first character
+                    toOriginal[text.length()] = whitespaceStart;
+                    text.append(' ');
+                }
+                whitespaceStart = -1;
+                toNormalized[i] = text.length();
+                toOriginal[text.length()] = i;
+                text.append(c);
+                lastContentEnd = i + 1;
+            }
+            toNormalized[length] = text.length();
+            toOriginal[text.length()] = lastContentEnd;
+            return new NormalizedSentence(text.toString(), toNormalized, toOriginal);
+        }
+
+        int toNormalized(int originalIndex) {
+            return originalToNormalized[Math.max(0, Math.min(originalIndex, originalToNormalized.length - 1))];
+        }
+
+        int toOriginal(int normalizedIndex) {
+            return normalizedToOriginal[Math.max(0, Math.min(normalizedIndex, text.length()))];
+        }
+    }
+}
@@ -1,143 +1,184 @@
 package com.ingilizce.calismaapp.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ingilizce.calismaapp.model.LlmOperation;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Entry point for LLM completions used by the services
+ * Identical requests are coalesced here; the provider (Groq or the local fallback)
+ * is chosen per request by LlmRouter.
+ */
 @Service
 public class GroqService {
 
     private static final Logger logger = LoggerFactory.getLogger(GroqService.class);
 
-    @Value("${groq.api.key}")
-    private String apiKey;
-
-    @Value("${groq.api.url}")
-    private String apiUrl;
-
+    // Part of the coalescing key
     @Value("${groq.api.model}")
     private String model;
 
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    @Value("${groq.coalescing.enabled:true}")
+    private boolean coalescingEnabled;
+
+    @Value("${groq.coalescing.result-ttl-ms:2000}")
+    private long coalescingResultTtlMs;
+
+    @Autowired
+    private LlmAdmissionController admissionController;
+
+    @Autowired
+    private LlmRouter router;
+
+    @Autowired
+    private LlmUsageTracker usageTracker;
 
-    public GroqService() {
-        this.objectMapper = new ObjectMapper();
-        this.restTemplate = createInsecureRestTemplate();
-        logger.info("GroqService initialized with SSL-bypassing RestTemplate");
+    private LlmRequestCoalescer coalescer;
+
+    @PostConstruct
+    public void init() {
+        this.coalescer = new LlmRequestCoalescer(Duration.ofMillis(coalescingResultTtlMs));
     }
 
-    private RestTemplate createInsecureRestTemplate() {
-        try {
-            // Trust all certificates
-            javax.net.ssl.TrustManager[] trustAllCerts = new javax.net.ssl.TrustManager[] {
-                    new javax.net.ssl.X509TrustManager() {
-                        public java.security.cert.X509Certificate[] getAcceptedIssuers() {
-                            return null;
-                        }
-
-                        public void checkClientTrusted(
-                                java.security.cert.X509Certificate[] certs, String authType) {
-                        }
-
-                        public void checkServerTrusted(
-                                java.security.cert.X509Certificate[] certs, String authType) {
-                        }
-                    }
-            };
-
-            // Install the all-trusting trust manager
-            javax.net.ssl.SSLContext sc = javax.net.ssl.SSLContext.getInstance("TLS");
-            sc.init(null, trustAllCerts, new java.security.SecureRandom());
-
-            org.springframework.http.client.SimpleClientHttpRequestFactory factory = new org.springframework.http.client.SimpleClientHttpRequestFactory() {
-                @Override
-                protected java.net.HttpURLConnection openConnection(java.net.URL url, java.net.Proxy proxy)
-                        throws java.io.IOException {
-                    java.net.HttpURLConnection connection = super.openConnection(url, proxy);
-                    if (connection instanceof javax.net.ssl.HttpsURLConnection) {
-                        ((javax.net.ssl.HttpsURLConnection) connection).setSSLSocketFactory(sc.getSocketFactory());
-                        ((javax.net.ssl.HttpsURLConnection) connection)
-                                .setHostnameVerifier((hostname, session) -> true);
-                    }
-                    return connection;
-                }
-            };
-
-            factory.setConnectTimeout(60000); // 60 seconds
-            factory.setReadTimeout(60000); // 60 seconds
-
-            return new RestTemplate(factory);
-        } catch (Exception e) {
-            logger.error("Failed to create SSL bypassing RestTemplate", e);
-            return new RestTemplate();
+    /**
+     * Send a completion request to Groq API without blocking the caller
+     *
+     * @param messages     List of messages (role, content)
+     * @param jsonResponse If true, enforces JSON object response format
+     * @param operation    Call type, decides the response timeout
+     * @return Future with the content string from the response
+     */
+    public CompletableFuture<String> chatCompletionAsync(List<Map<String, String>> messages, boolean jsonResponse,
+            LlmOperation operation) {
+        logger.debug("Groq Request - Operation: {}, Model: {}", operation, model);
+        if (!coalescingEnabled || !operation.isCoalescing()) {
+            return send(messages, jsonResponse, operation);
         }
+        // Aynı prompt zaten gönderildiyse (örn. bütün sınıf aynı kelimeyi çalışıyor) aynı cevabı paylaş
+        return coalescer.execute(LlmRequestCoalescer.key(model, messages, jsonResponse),
+                () -> send(messages, jsonResponse, operation));
+    }
+
+    public CompletableFuture<String> chatCompletionAsync(List<Map<String, String>> messages, boolean jsonResponse) {
+        return chatCompletionAsync(messages, jsonResponse, LlmOperation.DEFAULT);
+    }
+
+    /**
+     * Stream a completion from Groq token by token (stream=true)
+     *
+     * @return Handle to cancel the upstream request
+     */
+    public OpenAiCompatibleClient.TokenStream streamChatCompletion(List<Map<String, String>> messages,
+            LlmOperation operation, OpenAiCompatibleClient.TokenListener listener) {
+        logger.debug("Groq Stream Request - Operation: {}, Model: {}", operation, model);
+        return router.streamChatCompletion(messages, 0.7, operation, listener);
+    }
+
+    /**
+     * Blocking variant of chatCompletionAsync
+     */
+    public String chatCompletion(List<Map<String, String>> messages, boolean jsonResponse, LlmOperation operation) {
+        return await(chatCompletionAsync(messages, jsonResponse, operation));
     }
 
     /**
      * Send a completion request to Groq API
-     * 
+     *
      * @param messages     List of messages (role, content)
      * @param jsonResponse If true, enforces JSON object response format
      * @return Content string from the response
      */
     public String chatCompletion(List<Map<String, String>> messages, boolean jsonResponse) {
-        logger.info("Groq Request - Model: {}, URL: {}, Key present: {}", model, apiUrl,
-                (apiKey != null && !apiKey.isEmpty()));
+        return chatCompletion(messages, jsonResponse, LlmOperation.DEFAULT);
+    }
 
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("Authorization", "Bearer " + apiKey);
-
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", model);
-            requestBody.put("messages", messages);
-            // Pratik modunda cümle üretirken çeşitlilik için temperature yüksek olmalı
-            // JSON formatı genelde bozulmaz, gerekirse 0.6-0.8 arası iyidir
-            requestBody.put("temperature", 0.7);
-
-            if (jsonResponse) {
-                Map<String, String> responseFormat = new HashMap<>();
-                responseFormat.put("type", "json_object");
-                requestBody.put("response_format", responseFormat);
-            }
+    /**
+     * Hit/coalesce counters of the single-flight layer
+     */
+    public Map<String, Object> getCoalescingStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(coalescer.getStats());
+        stats.put("enabled", coalescingEnabled);
+        return stats;
+    }
+
+    /**
+     * Concurrency limit, queue and rate limit counters of the admission layer
+     */
+    public Map<String, Object> getAdmissionStats() {
+        return admissionController.getStats();
+    }
+
+    /**
+     * Circuit state, rolling p95 and failure rate per provider
+     */
+    public List<Map<String, Object>> getProviderStats() {
+        return router.getStats();
+    }
+
+    /**
+     * Hedged request counters (sent, won, hedge rate) and current hedge delays
+     */
+    public Map<String, Object> getHedgingStats() {
+        return router.getHedgingStats();
+    }
 
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+    /**
+     * Tokens, latency and estimated cost per operation, provider and model
+     */
+    public Map<String, Object> getUsageSummary() {
+        return usageTracker.getSummary();
+    }
 
-            logger.info("Sending request to Groq...");
-            ResponseEntity<Map> response = restTemplate.postForEntity(apiUrl, entity, Map.class);
-            logger.info("Groq Response Status: {}", response.getStatusCode());
+    private CompletableFuture<String> send(List<Map<String, String>> messages, boolean jsonResponse,
+            LlmOperation operation) {
+        // Pratik modunda cümle üretirken çeşitlilik için temperature yüksek olmalı
+        // JSON formatı genelde bozulmaz, gerekirse 0.6-0.8 arası iyidir
+        return router.chatCompletionAsync(messages, jsonResponse, 0.7, operation)
+                .exceptionally(e -> {
+                    throw toServiceException(e, operation);
+                });
+    }
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                Map body = response.getBody();
-                List choices = (List) body.get("choices");
-                if (choices != null && !choices.isEmpty()) {
-                    Map choice = (Map) choices.get(0);
-                    Map message = (Map) choice.get("message");
-                    return (String) message.get("content");
-                }
+    /**
+     * Wait for an LLM future, rethrowing its failure as the original RuntimeException
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for AI service");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
-        } catch (org.springframework.web.client.HttpClientErrorException
-                | org.springframework.web.client.HttpServerErrorException e) {
-            logger.error("Groq API Error: Status={}, Body={}", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("Groq API Error: " + e.getResponseBodyAsString());
-        } catch (Exception e) {
-            logger.error("Error calling Groq API", e);
-            throw new RuntimeException("Failed to communicate with AI service: " + e.getMessage());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private RuntimeException toServiceException(Throwable e, LlmOperation operation) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof java.net.http.HttpTimeoutException || cause instanceof TimeoutException) {
+            logger.error("LLM timeout after {} ms ({})", operation.getReadTimeout().toMillis(), operation);
+            return new RuntimeException("AI service timed out");
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
         }
-        return null;
+        logger.error("Error calling LLM provider", cause);
+        return new RuntimeException("Failed to communicate with AI service: " + cause.getMessage());
     }
 }
@@ -0,0 +1,448 @@
+package com.ingilizce.calismaapp.service;
+
+import com.ingilizce.calismaapp.model.LlmOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Admission layer in front of the LLM API
+ * - Per-user token buckets, checked by the controllers before any LLM work starts; callers
+ *   without a user id share one anonymous bucket (never one per address, users behind a NAT share it)
+ * - A global concurrency limit adjusted by AIMD: grows by one per limit's worth of fast
+ *   answers, halves on 429s and timeouts, shrinks a little when latency rises above the
+ *   per-operation baseline
+ * - A short wait queue when the limit is reached, interactive operations ahead of background ones
+ * - Retry-After: after a 429 nothing is sent until the upstream window opens again; requests that
+ *   could not be admitted within their wait budget are rejected right away instead of waiting for
+ *   an answer that would be a 429 anyway. A 429 with a short Retry-After is retried once.
+ */
+@Component
+public class LlmAdmissionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmAdmissionController.class);
+
+    // EWMA weight of a new latency sample in the per-operation baseline
+    private static final double BASELINE_ALPHA = 0.05;
+    private static final int BASELINE_MIN_SAMPLES = 20;
+    // At most one decrease per window, a burst of failures of the same overload counts once
+    private static final long DECREASE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long DEFAULT_RETRY_AFTER_MS = 1000;
+    private static final String ANONYMOUS_BUCKET = "anonymous";
+
+    @Value("${llm.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${llm.admission.initial-limit:8}")
+    private int initialLimit;
+
+    @Value("${llm.admission.min-limit:1}")
+    private int minLimit;
+
+    @Value("${llm.admission.max-limit:32}")
+    private int maxLimit;
+
+    // Sample counts as slow above baseline * tolerance
+    @Value("${llm.admission.latency-tolerance:2.0}")
+    private double latencyTolerance;
+
+    @Value("${llm.admission.max-queue:64}")
+    private int maxQueue;
+
+    @Value("${llm.admission.interactive-max-wait-ms:3000}")
+    private long interactiveMaxWaitMs;
+
+    @Value("${llm.admission.background-max-wait-ms:30000}")
+    private long backgroundMaxWaitMs;
+
+    // Longest upstream Retry-After that is honoured with an automatic retry
+    @Value("${llm.admission.max-retry-after-ms:5000}")
+    private long maxRetryAfterMs;
+
+    @Value("${llm.admission.user-bucket-capacity:10}")
+    private int userBucketCapacity;
+
+    @Value("${llm.admission.user-refill-per-minute:20}")
+    private int userRefillPerMinute;
+
+    @Value("${llm.admission.anonymous-bucket-capacity:60}")
+    private int anonymousBucketCapacity;
+
+    @Value("${llm.admission.anonymous-refill-per-minute:120}")
+    private int anonymousRefillPerMinute;
+
+    // Guarded by this
+    private double limit = -1;
+    private int inFlight = 0;
+    private long blockedUntilNanos = System.nanoTime();
+    private long lastDecreaseNanos = 0;
+    private long sequence = 0;
+    private final double[] baselineMs = new double[LlmOperation.values().length];
+    private final long[] baselineSamples = new long[LlmOperation.values().length];
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+            Comparator.comparingInt((Waiter w) -> w.background ? 1 : 0).thenComparingLong(w -> w.sequence));
+
+    private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder userRejected = new LongAdder();
+    private final LongAdder upstreamThrottled = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    private static class Waiter {
+        final boolean background;
+        final long sequence;
+        final CompletableFuture<Long> permit = new CompletableFuture<>();
+
+        Waiter(boolean background, long sequence) {
+            this.background = background;
+            this.sequence = sequence;
+        }
+    }
+
+    private static class TokenBucket {
+        private final int capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long updatedNanos = System.nanoTime();
+
+        TokenBucket(int capacity, int refillPerMinute) {
+            this.capacity = capacity;
+            this.tokensPerNano = refillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.tokens = capacity;
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise milliseconds until the next one
+         */
+        synchronized long tryTake() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - updatedNanos) * tokensPerNano);
+            updatedNanos = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, TimeUnit.NANOSECONDS.toMillis((long) ((1 - tokens) / tokensPerNano)));
+        }
+
+        synchronized boolean isFullAndIdle(long idleNanos) {
+            long now = System.nanoTime();
+            return now - updatedNanos > idleNanos
+                    && tokens + (now - updatedNanos) * tokensPerNano >= capacity;
+        }
+    }
+
+    /**
+     * Take one LLM request token of the user
+     *
+     * @param userId Authenticated user id, null for anonymous callers (they share one bucket)
+     * @throws LlmApiException 429 with Retry-After when the user's bucket is empty
+     */
+    public void checkUser(String userId) {
+        if (!enabled) {
+            return;
+        }
+        TokenBucket bucket = userId != null
+                ? userBuckets.computeIfAbsent(userId, id -> new TokenBucket(userBucketCapacity, userRefillPerMinute))
+                : userBuckets.computeIfAbsent(ANONYMOUS_BUCKET,
+                        id -> new TokenBucket(anonymousBucketCapacity, anonymousRefillPerMinute));
+        long waitMs = bucket.tryTake();
+        if (waitMs > 0) {
+            userRejected.increment();
+            throw LlmApiException.busy("Too many AI requests, please slow down", waitMs);
+        }
+    }
+
+    /**
+     * Run an upstream call once a concurrency permit is available
+     *
+     * @param call Starts the upstream request, invoked after admission (again for a retry)
+     * @return Future of the call, or failed with LlmApiException(429) if it could not be admitted in time.
+     *         Cancelling it leaves the queue or aborts the running call.
+     */
+    public CompletableFuture<String> submit(LlmOperation operation, Supplier<CompletableFuture<String>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        return submit(operation, call, 0);
+    }
+
+    private CompletableFuture<String> submit(LlmOperation operation, Supplier<CompletableFuture<String>> call,
+            int attempt) {
+        CancellableCall running = new CancellableCall();
+        CompletableFuture<Long> permit = running.register(acquire(operation));
+        return CancellableCall.linkTo(permit.thenCompose(startNanos -> {
+            CompletableFuture<String> upstream = running.register(start(call));
+            return upstream.handle((value, error) -> {
+                release(operation, startNanos, error);
+                return error;
+            }).thenCompose(error -> {
+                if (error == null) {
+                    return upstream;
+                }
+                LlmApiException throttled = throttled(error);
+                if (throttled != null && attempt == 0 && throttled.getRetryAfterMs() <= maxRetryAfterMs) {
+                    // acquire() waits until the Retry-After window has passed
+                    retried.increment();
+                    return running.register(submit(operation, call, attempt + 1));
+                }
+                return upstream;
+            });
+        }), running);
+    }
+
+    /**
+     * Permit for a streamed call, which has no future to hand to submit()
+     *
+     * @return Future completing with the admission time once admitted, failed with LlmApiException(429)
+     *         if it could not be admitted in time; cancelling it leaves the queue. A granted permit must
+     *         be given back exactly once with releaseStream when the stream completes, fails or is cancelled.
+     */
+    public CompletableFuture<Long> acquireStream(LlmOperation operation) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(System.nanoTime());
+        }
+        return acquire(operation);
+    }
+
+    public void releaseStream(LlmOperation operation, long startNanos, Throwable error) {
+        if (enabled) {
+            release(operation, startNanos, error);
+        }
+    }
+
+    private static CompletableFuture<String> start(Supplier<CompletableFuture<String>> call) {
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Future completing with the admission time (System.nanoTime) once a permit is granted
+     */
+    private CompletableFuture<Long> acquire(LlmOperation operation) {
+        long maxWaitMs = operation.isBackground() ? backgroundMaxWaitMs : interactiveMaxWaitMs;
+        Waiter waiter;
+        Waiter evicted = null;
+        synchronized (this) {
+            initLimitIfNeeded();
+            long now = System.nanoTime();
+            long blockedForMs = TimeUnit.NANOSECONDS.toMillis(blockedUntilNanos - now);
+            if (blockedForMs > maxWaitMs) {
+                // Upstream told us to wait longer than this request can: fail now, not after a 429
+                rejected.increment();
+                return CompletableFuture.failedFuture(
+                        LlmApiException.busy("AI service is busy, please try again shortly", blockedForMs));
+            }
+            if (blockedForMs <= 0 && queue.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                admitted.increment();
+                return CompletableFuture.completedFuture(now);
+            }
+            if (queue.size() >= maxQueue) {
+                evicted = operation.isBackground() ? null : lastBackgroundWaiter();
+                if (evicted == null) {
+                    rejected.increment();
+                    return CompletableFuture.failedFuture(
+                            LlmApiException.busy("AI service is busy, please try again shortly", maxWaitMs));
+                }
+                queue.remove(evicted);
+            }
+            waiter = new Waiter(operation.isBackground(), sequence++);
+            queue.add(waiter);
+            queued.increment();
+        }
+        waiter.permit.whenComplete((granted, error) -> {
+            if (waiter.permit.isCancelled()) {
+                synchronized (this) {
+                    queue.remove(waiter);
+                }
+            }
+        });
+
+        if (evicted != null) {
+            rejected.increment();
+            evicted.permit.completeExceptionally(
+                    LlmApiException.busy("AI service is busy, please try again shortly", backgroundMaxWaitMs));
+        }
+        CompletableFuture.delayedExecutor(maxWaitMs, TimeUnit.MILLISECONDS).execute(() -> {
+            if (waiter.permit.completeExceptionally(
+                    LlmApiException.busy("AI service is busy, please try again shortly", maxWaitMs))) {
+                rejected.increment();
+                synchronized (this) {
+                    queue.remove(waiter);
+                }
+            }
+        });
+        return waiter.permit;
+    }
+
+    private void release(LlmOperation operation, long startNanos, Throwable error) {
+        long now = System.nanoTime();
+        double latencyMs = (now - startNanos) / 1_000_000.0;
+        LlmApiException throttled = throttled(error);
+        long reopenInMs = 0;
+
+        synchronized (this) {
+            inFlight--;
+            if (throttled != null) {
+                upstreamThrottled.increment();
+                long retryAfterMs = throttled.getRetryAfterMs() > 0 ? throttled.getRetryAfterMs()
+                        : DEFAULT_RETRY_AFTER_MS;
+                blockedUntilNanos = Math.max(blockedUntilNanos, now + TimeUnit.MILLISECONDS.toNanos(retryAfterMs));
+                reopenInMs = retryAfterMs;
+                decrease(now, 0.5);
+            } else if (isTimeout(error)) {
+                decrease(now, 0.5);
+            } else if (error == null) {
+                int op = operation.ordinal();
+                boolean slow = baselineSamples[op] >= BASELINE_MIN_SAMPLES
+                        && latencyMs > baselineMs[op] * latencyTolerance;
+                if (slow) {
+                    decrease(now, 0.9);
+                } else if (inFlight + 1 >= limit / 2) {
+                    // Only grow while the limit is actually in use
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+                baselineMs[op] = baselineSamples[op] == 0 ? latencyMs
+                        : baselineMs[op] + BASELINE_ALPHA * (latencyMs - baselineMs[op]);
+                baselineSamples[op]++;
+            }
+        }
+
+        drain();
+        if (reopenInMs > 0) {
+            logger.warn("LLM API rate limited ({} ms), admission limit now {}", reopenInMs, getLimit());
+            CompletableFuture.delayedExecutor(reopenInMs + 1, TimeUnit.MILLISECONDS).execute(this::drain);
+        }
+    }
+
+    /**
+     * Hand out free permits to queued requests, highest priority first
+     */
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (blockedUntilNanos - now > 0) {
+                return;
+            }
+            while (!queue.isEmpty() && inFlight < (int) limit) {
+                Waiter waiter = queue.poll();
+                if (!waiter.permit.isDone()) {
+                    inFlight++;
+                    granted.add(waiter);
+                }
+            }
+        }
+        // Completed outside the lock, the callers' continuations run on this thread
+        for (Waiter waiter : granted) {
+            if (waiter.permit.complete(now)) {
+                admitted.increment();
+            } else {
+                synchronized (this) {
+                    inFlight--;
+                }
+            }
+        }
+    }
+
+    // Caller holds the lock
+    private void decrease(long now, double factor) {
+        if (now - lastDecreaseNanos < DECREASE_WINDOW_NANOS) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        limit = Math.max(minLimit, limit * factor);
+    }
+
+    // Caller holds the lock
+    private Waiter lastBackgroundWaiter() {
+        Waiter last = null;
+        for (Waiter waiter : queue) {
+            if (waiter.background && (last == null || waiter.sequence > last.sequence)) {
+                last = waiter;
+            }
+        }
+        return last;
+    }
+
+    // Caller holds the lock; @Value fields are not set yet in field initializers
+    private void initLimitIfNeeded() {
+        if (limit < 0) {
+            limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        }
+    }
+
+    public synchronized double getLimit() {
+        initLimitIfNeeded();
+        return limit;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        synchronized (this) {
+            initLimitIfNeeded();
+            stats.put("limit", Math.round(limit * 100) / 100.0);
+            stats.put("inFlight", inFlight);
+            stats.put("queued", queue.size());
+            stats.put("blockedForMs", Math.max(0, TimeUnit.NANOSECONDS.toMillis(blockedUntilNanos - System.nanoTime())));
+        }
+        stats.put("admitted", admitted.sum());
+        stats.put("waitedInQueue", queued.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("userRejected", userRejected.sum());
+        stats.put("upstreamThrottled", upstreamThrottled.sum());
+        stats.put("retried", retried.sum());
+        stats.put("trackedUsers", userBuckets.size());
+        return stats;
+    }
+
+    /**
+     * Forget buckets of users that have been idle long enough to be full again
+     */
+    @Scheduled(fixedDelayString = "${llm.admission.bucket-cleanup-interval-ms:600000}")
+    public void evictIdleBuckets() {
+        long idleNanos = TimeUnit.MINUTES.toNanos(10);
+        userBuckets.values().removeIf(bucket -> bucket.isFullAndIdle(idleNanos));
+    }
+
+    private static LlmApiException throttled(Throwable error) {
+        Throwable cause = unwrap(error);
+        return cause instanceof LlmApiException && ((LlmApiException) cause).isTooManyRequests()
+                ? (LlmApiException) cause
+                : null;
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        Throwable cause = unwrap(error);
+        return cause instanceof HttpTimeoutException || cause instanceof TimeoutException;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
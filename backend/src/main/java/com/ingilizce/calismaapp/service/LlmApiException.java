@@ -0,0 +1,59 @@
+package com.ingilizce.calismaapp.service;
+
+/**
+ * Failed LLM call with an HTTP status: either the upstream answer (e.g. Groq 429/5xx)
+ * or a local rejection (429 from the admission layer, 503 when every provider's circuit is open)
+ */
+public class LlmApiException extends RuntimeException {
+
+    public static final int TOO_MANY_REQUESTS = 429;
+    public static final int SERVICE_UNAVAILABLE = 503;
+
+    private final int statusCode;
+    // Milliseconds the caller should wait before retrying, -1 when unknown
+    private final long retryAfterMs;
+    // Rejected by this application (admission, circuit breakers), the upstream API was not called
+    private final boolean local;
+
+    public LlmApiException(String message, int statusCode, long retryAfterMs) {
+        this(message, statusCode, retryAfterMs, false);
+    }
+
+    private LlmApiException(String message, int statusCode, long retryAfterMs, boolean local) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterMs = retryAfterMs;
+        this.local = local;
+    }
+
+    public static LlmApiException busy(String message, long retryAfterMs) {
+        return new LlmApiException(message, TOO_MANY_REQUESTS, retryAfterMs, true);
+    }
+
+    public static LlmApiException unavailable(String message, long retryAfterMs) {
+        return new LlmApiException(message, SERVICE_UNAVAILABLE, retryAfterMs, true);
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
+    public boolean isLocal() {
+        return local;
+    }
+
+    public boolean isTooManyRequests() {
+        return statusCode == TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * Whole seconds for a Retry-After header (at least 1)
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfterMs + 999) / 1000);
+    }
+}
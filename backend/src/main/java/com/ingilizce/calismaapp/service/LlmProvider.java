@@ -0,0 +1,31 @@
+package com.ingilizce.calismaapp.service;
+
+import com.ingilizce.calismaapp.model.LlmOperation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One chat completion backend (Groq, local Ollama, ...), selected per request by LlmRouter
+ */
+public interface LlmProvider {
+
+    String getName();
+
+    /**
+     * @param onSent Called each time the request is actually sent (after admission, again for a retry)
+     * @return Future with the content string of the first choice
+     */
+    CompletableFuture<String> chatCompletionAsync(List<Map<String, String>> messages, boolean jsonResponse,
+            double temperature, LlmOperation operation, Runnable onSent);
+
+    /**
+     * Stream a completion token by token
+     *
+     * @param onSent Called when the request is actually sent (after admission)
+     * @return Handle to cancel the upstream request
+     */
+    OpenAiCompatibleClient.TokenStream streamChatCompletion(List<Map<String, String>> messages, double temperature,
+            LlmOperation operation, Runnable onSent, OpenAiCompatibleClient.TokenListener listener);
+}
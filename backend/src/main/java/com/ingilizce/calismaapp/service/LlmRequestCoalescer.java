@@ -0,0 +1,149 @@
+package com.ingilizce.calismaapp.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight layer for LLM completions
+ * Identical requests (same model, messages and JSON mode) that arrive while one is
+ * already running share its upstream future instead of sending another request.
+ * Optionally the result is kept for a short TTL so requests right after it are served too
+ * (e.g. a whole class practising the same word list at the same time).
+ */
+public class LlmRequestCoalescer {
+
+    // Upper bound for remembered results, expired ones are purged first
+    private static final int MAX_CACHED_RESULTS = 1000;
+
+    private final long resultTtlNanos;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, CachedResult> results = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder upstreamCalls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder resultHits = new LongAdder();
+
+    private record CachedResult(String value, long expiresAt) {
+    }
+
+    /**
+     * @param resultTtl How long a completed result is reused, zero disables reuse
+     */
+    public LlmRequestCoalescer(Duration resultTtl) {
+        this.resultTtlNanos = resultTtl.toNanos();
+    }
+
+    /**
+     * Hash of everything that determines the completion (messages in order, model, JSON mode)
+     */
+    public static String key(String model, List<Map<String, String>> messages, boolean jsonResponse) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, model);
+            digest.update((byte) (jsonResponse ? 1 : 0));
+            for (Map<String, String> message : messages) {
+                update(digest, message.get("role"));
+                update(digest, message.get("content"));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Run the call unless an identical one is in flight (or was completed within the TTL)
+     *
+     * @param call Starts the upstream request, only invoked for the first caller
+     * @return A per-caller future, cancelling it does not affect the other callers
+     */
+    public CompletableFuture<String> execute(String key, Supplier<CompletableFuture<String>> call) {
+        requests.increment();
+
+        if (resultTtlNanos > 0) {
+            CachedResult cached = results.get(key);
+            if (cached != null) {
+                if (cached.expiresAt() - System.nanoTime() > 0) {
+                    resultHits.increment();
+                    return CompletableFuture.completedFuture(cached.value());
+                }
+                results.remove(key, cached);
+            }
+        }
+
+        CompletableFuture<String> shared = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.thenApply(Function.identity());
+        }
+
+        upstreamCalls.increment();
+        CompletableFuture<String> upstream;
+        try {
+            upstream = call.get();
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        upstream.whenComplete((value, error) -> {
+            // Remember the result before leaving the in-flight map so there is no gap between the two
+            if (error == null && value != null && resultTtlNanos > 0) {
+                remember(key, value);
+            }
+            inFlight.remove(key, shared);
+            if (error != null) {
+                shared.completeExceptionally(error);
+            } else {
+                shared.complete(value);
+            }
+        });
+        return shared.thenApply(Function.identity());
+    }
+
+    public Map<String, Object> getStats() {
+        long total = requests.sum();
+        long saved = coalesced.sum() + resultHits.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", total);
+        stats.put("upstreamCalls", upstreamCalls.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("resultHits", resultHits.sum());
+        stats.put("savedRatio", total > 0 ? (double) saved / total : 0.0);
+        stats.put("inFlight", inFlight.size());
+        stats.put("cachedResults", results.size());
+        stats.put("resultTtlMs", Duration.ofNanos(resultTtlNanos).toMillis());
+        return stats;
+    }
+
+    private void remember(String key, String value) {
+        long now = System.nanoTime();
+        if (results.size() >= MAX_CACHED_RESULTS) {
+            results.values().removeIf(cached -> cached.expiresAt() - now <= 0);
+            if (results.size() >= MAX_CACHED_RESULTS) {
+                results.clear();
+            }
+        }
+        results.put(key, new CachedResult(value, now + resultTtlNanos));
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        // Length prefix so ("ab", "c") and ("a", "bc") hash differently
+        digest.update(new byte[] { (byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16),
+                (byte) (bytes.length >>> 8), (byte) bytes.length });
+        digest.update(bytes);
+    }
+}
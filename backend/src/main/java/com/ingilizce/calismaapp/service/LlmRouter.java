@@ -0,0 +1,698 @@
+package com.ingilizce.calismaapp.service;
+
+import com.ingilizce.calismaapp.model.LlmOperation;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Picks the LLM provider for each request
+ * Providers are tried in priority order (Groq, then the local OpenAI compatible endpoint).
+ * Each one has a rolling window of latencies and failures with a circuit breaker on top:
+ * the circuit opens when the failure rate or the p95 latency of the window goes over its
+ * threshold, stays open for a while, then lets a single probe request through.
+ * Latency is measured from the moment the request is sent (admission queue time is ours,
+ * not the provider's) as a share of the operation's timeout, so short chat calls and long
+ * speaking evaluations share one window. The last provider that is still available is
+ * never opened: with nowhere to fail over to, an open circuit would only turn slow answers
+ * into no answers.
+ * A lower priority provider is used first when its score (p95 weighted by error rate) is
+ * clearly better, and a failed request fails over to the next provider.
+ *
+ * Hedging (optional, idempotent operations only): when a request has not answered by the
+ * rolling p90 of its operation, a second one is sent (same provider, or the alternate one).
+ * The first answer wins and the other request is cancelled. Hedges are paid from a budget
+ * refilled by max-rate per request, so at most that share of requests is sent twice.
+ */
+@Component
+public class LlmRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmRouter.class);
+
+    @Value("${groq.api.key}")
+    private String groqApiKey;
+
+    @Value("${groq.api.url}")
+    private String groqApiUrl;
+
+    @Value("${groq.api.model}")
+    private String groqModel;
+
+    @Value("${groq.api.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${llm.insecure-tls:false}")
+    private boolean insecureTls;
+
+    @Value("${llm.local.enabled:false}")
+    private boolean localEnabled;
+
+    @Value("${llm.local.url:http://localhost:11434/v1/chat/completions}")
+    private String localUrl;
+
+    @Value("${llm.local.model:qwen2.5:7b}")
+    private String localModel;
+
+    @Value("${llm.local.api-key:ollama}")
+    private String localApiKey;
+
+    @Value("${llm.router.window-size:50}")
+    private int windowSize;
+
+    @Value("${llm.router.min-samples:10}")
+    private int minSamples;
+
+    @Value("${llm.router.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    // p95 of latency / operation timeout
+    @Value("${llm.router.slow-p95-ratio:0.5}")
+    private double slowP95Ratio;
+
+    @Value("${llm.router.open-ms:30000}")
+    private long openMs;
+
+    // An alternate is preferred when its score is below primary score * ratio
+    @Value("${llm.router.switch-ratio:0.5}")
+    private double switchRatio;
+
+    @Value("${llm.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${llm.hedging.operations:GENERATE_SENTENCES,SPEAKING_QUESTIONS}")
+    private String[] hedgedOperationNames;
+
+    @Value("${llm.hedging.quantile:0.9}")
+    private double hedgeQuantile;
+
+    @Value("${llm.hedging.min-samples:20}")
+    private int hedgeMinSamples;
+
+    @Value("${llm.hedging.min-delay-ms:300}")
+    private long hedgeMinDelayMs;
+
+    // Share of requests that may be hedged
+    @Value("${llm.hedging.max-rate:0.1}")
+    private double hedgeMaxRate;
+
+    @Value("${llm.hedging.prefer-alternate:false}")
+    private boolean hedgePreferAlternate;
+
+    @Autowired
+    private LlmAdmissionController admissionController;
+
+    @Autowired
+    private LlmUsageTracker usageTracker;
+
+    private final List<Route> routes = new ArrayList<>();
+
+    private static final int HEDGE_WINDOW_SIZE = 200;
+    // Unused budget carried over, limits hedge bursts after a quiet period
+    private static final double HEDGE_MAX_BUDGET = 10;
+
+    private final Map<LlmOperation, LatencyWindow> hedgeWindows = new EnumMap<>(LlmOperation.class);
+    private final Object hedgeBudgetLock = new Object();
+    private double hedgeBudget = 0;
+    private final LongAdder hedgeEligible = new LongAdder();
+    private final LongAdder hedgesSent = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder hedgesOverBudget = new LongAdder();
+
+    /**
+     * Last latencies of an operation, for the hedge delay
+     */
+    private static class LatencyWindow {
+        private final long[] samples = new long[HEDGE_WINDOW_SIZE];
+        private int next = 0;
+        private int count = 0;
+
+        synchronized void record(long latencyMs) {
+            samples[next] = latencyMs;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        /**
+         * @return -1 with fewer than minSamples samples
+         */
+        synchronized long quantile(double q, int minSamples) {
+            if (count < Math.max(1, minSamples)) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(count - 1, Math.max(0, (int) Math.ceil(q * count) - 1))];
+        }
+    }
+
+    /**
+     * Primary and backup leg of a hedged request
+     */
+    private static class HedgedRequest {
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture<String> primary;
+        CompletableFuture<String> backup;
+        int pending = 1;
+        Throwable primaryError;
+    }
+
+    enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * A provider with its rolling health window and circuit breaker
+     */
+    class Route {
+        final LlmProvider provider;
+        // Latency as a share of the operation's timeout
+        private final double[] loads = new double[windowSize];
+        private final boolean[] failures = new boolean[windowSize];
+        private int next = 0;
+        private int count = 0;
+        private CircuitState state = CircuitState.CLOSED;
+        private long openedAt = 0;
+        private boolean probeInFlight = false;
+        private long probeStartedAt = 0;
+        private long requests = 0;
+        private long failureCount = 0;
+        private long circuitOpened = 0;
+        // Over a threshold while it could not be opened, logged once
+        private boolean degraded = false;
+
+        Route(LlmProvider provider) {
+            this.provider = provider;
+        }
+
+        // Without side effects, used for ordering
+        synchronized boolean isAvailable() {
+            return switch (state) {
+                case CLOSED -> true;
+                case OPEN -> System.currentTimeMillis() - openedAt >= openMs;
+                case HALF_OPEN -> !probeBusy();
+            };
+        }
+
+        // Circuit was open and is ready for its probe request
+        synchronized boolean isRecovering() {
+            return state != CircuitState.CLOSED;
+        }
+
+        // Called right before sending; an expired OPEN circuit lets this request through as the probe
+        synchronized boolean tryAcquire() {
+            if (state == CircuitState.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+                state = CircuitState.HALF_OPEN;
+                probeInFlight = false;
+            }
+            if (state == CircuitState.HALF_OPEN) {
+                if (probeBusy()) {
+                    return false;
+                }
+                probeInFlight = true;
+                probeStartedAt = System.currentTimeMillis();
+            }
+            requests++;
+            return state != CircuitState.OPEN;
+        }
+
+        // No outcome for this provider: admission rejected the request or it was cancelled
+        synchronized void releaseProbe() {
+            probeInFlight = false;
+        }
+
+        // Caller holds the lock; a probe without an outcome (e.g. cancelled stream) is given up after openMs
+        private boolean probeBusy() {
+            return probeInFlight && System.currentTimeMillis() - probeStartedAt < openMs;
+        }
+
+        void record(LlmOperation operation, long latencyMs, boolean failed) {
+            // Checked before taking this route's lock, routes never lock each other
+            boolean canFailOver = otherRouteAvailable(this);
+            synchronized (this) {
+                record(latencyMs / (double) operation.getReadTimeout().toMillis(), failed, canFailOver);
+            }
+        }
+
+        // Caller holds the lock
+        private void record(double load, boolean failed, boolean canFailOver) {
+            if (failed) {
+                failureCount++;
+            }
+            if (state == CircuitState.HALF_OPEN) {
+                probeInFlight = false;
+                if (failed && canFailOver) {
+                    open();
+                } else if (failed) {
+                    // Nothing else to send requests to: closed again, the window still holds the failures
+                    logger.warn("LLM provider {} probe failed but no other provider is available, circuit closed",
+                            provider.getName());
+                    state = CircuitState.CLOSED;
+                    degraded = true;
+                } else {
+                    logger.info("LLM provider {} recovered, circuit closed", provider.getName());
+                    state = CircuitState.CLOSED;
+                    count = 0;
+                    next = 0;
+                }
+                return;
+            }
+            loads[next] = load;
+            failures[next] = failed;
+            next = (next + 1) % loads.length;
+            count = Math.min(count + 1, loads.length);
+
+            if (state == CircuitState.CLOSED && count >= minSamples
+                    && (failureRate() >= failureRateThreshold || p95() >= slowP95Ratio)) {
+                if (canFailOver) {
+                    open();
+                } else if (!degraded) {
+                    logger.warn("LLM provider {} degraded (failure rate {}, p95 {} of timeout) but no other provider "
+                            + "is available, circuit stays closed", provider.getName(),
+                            String.format("%.2f", failureRate()), String.format("%.2f", p95()));
+                }
+                degraded = true;
+            } else {
+                degraded = false;
+            }
+        }
+
+        // Caller holds the lock
+        private void open() {
+            state = CircuitState.OPEN;
+            openedAt = System.currentTimeMillis();
+            circuitOpened++;
+            logger.warn("LLM provider {} degraded (failure rate {}, p95 {} of timeout), circuit open for {} ms",
+                    provider.getName(), String.format("%.2f", failureRate()), String.format("%.2f", p95()), openMs);
+        }
+
+        // Caller holds the lock
+        private double failureRate() {
+            int failed = 0;
+            for (int i = 0; i < count; i++) {
+                if (failures[i]) {
+                    failed++;
+                }
+            }
+            return count == 0 ? 0 : (double) failed / count;
+        }
+
+        // Caller holds the lock
+        private double p95() {
+            if (count == 0) {
+                return 0;
+            }
+            double[] sorted = Arrays.copyOf(loads, count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(count - 1, (int) Math.ceil(0.95 * count) - 1)];
+        }
+
+        /**
+         * p95 weighted by the failure rate, -1 while the window has too few samples
+         */
+        synchronized double score() {
+            return count < minSamples ? -1 : p95() * (1 + 4 * failureRate());
+        }
+
+        synchronized long openRemainingMs() {
+            return state == CircuitState.OPEN ? Math.max(0, openMs - (System.currentTimeMillis() - openedAt)) : 0;
+        }
+
+        synchronized Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("provider", provider.getName());
+            stats.put("circuit", state.name());
+            stats.put("p95TimeoutShare", Math.round(p95() * 1000) / 1000.0);
+            stats.put("failureRate", failureRate());
+            stats.put("windowSamples", count);
+            stats.put("requests", requests);
+            stats.put("failures", failureCount);
+            stats.put("circuitOpened", circuitOpened);
+            return stats;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        Duration connectTimeout = Duration.ofMillis(connectTimeoutMs);
+        routes.add(new Route(new OpenAiCompatibleProvider("Groq", groqApiUrl, groqApiKey, groqModel, connectTimeout,
+                insecureTls, admissionController, usageTracker)));
+        if (localEnabled) {
+            routes.add(new Route(new OpenAiCompatibleProvider("Local", localUrl, localApiKey, localModel,
+                    connectTimeout, insecureTls, null, usageTracker)));
+        }
+        for (String name : hedgedOperationNames) {
+            if (!name.isBlank()) {
+                hedgeWindows.put(LlmOperation.valueOf(name.trim()), new LatencyWindow());
+            }
+        }
+        logger.info("LlmRouter initialized - Groq model: {}, key present: {}, local fallback: {}, hedging: {}",
+                groqModel, (groqApiKey != null && !groqApiKey.isEmpty()),
+                localEnabled ? localModel + " @ " + localUrl : "off",
+                hedgingEnabled ? hedgeWindows.keySet() : "off");
+    }
+
+    /**
+     * Send a completion to the best available provider, failing over to the next one on errors
+     */
+    public CompletableFuture<String> chatCompletionAsync(List<Map<String, String>> messages, boolean jsonResponse,
+            double temperature, LlmOperation operation) {
+        List<Route> order = order();
+        if (order.isEmpty()) {
+            return CompletableFuture.failedFuture(unavailable());
+        }
+        LatencyWindow hedgeWindow = hedgingEnabled ? hedgeWindows.get(operation) : null;
+        if (hedgeWindow != null) {
+            return hedged(order, hedgeWindow, messages, jsonResponse, temperature, operation);
+        }
+        return run(order, messages, jsonResponse, temperature, operation);
+    }
+
+    /**
+     * Stream from the best available provider (no failover once the stream has started)
+     */
+    public OpenAiCompatibleClient.TokenStream streamChatCompletion(List<Map<String, String>> messages,
+            double temperature, LlmOperation operation, OpenAiCompatibleClient.TokenListener listener) {
+        Route route = null;
+        for (Route candidate : order()) {
+            if (candidate.tryAcquire()) {
+                route = candidate;
+                break;
+            }
+        }
+        if (route == null) {
+            return OpenAiCompatibleClient.TokenStream.failed(listener, unavailable());
+        }
+
+        Route chosen = route;
+        AtomicLong sentAt = new AtomicLong();
+        return chosen.provider.streamChatCompletion(messages, temperature, operation,
+                () -> sentAt.set(System.nanoTime()), new OpenAiCompatibleClient.TokenListener() {
+                    @Override
+                    public void onToken(String token) throws Exception {
+                        listener.onToken(token);
+                    }
+
+                    @Override
+                    public void onUsage(String model, int promptTokens, int completionTokens) {
+                        listener.onUsage(model, promptTokens, completionTokens);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        chosen.record(operation, sinceMs(sentAt), false);
+                        listener.onComplete();
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        if (isLocalRejection(error)) {
+                            chosen.releaseProbe();
+                        } else {
+                            chosen.record(operation, sinceMs(sentAt), countsAsFailure(error));
+                        }
+                        listener.onError(error);
+                    }
+                });
+    }
+
+    public List<Map<String, Object>> getStats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (Route route : routes) {
+            stats.add(route.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Send the request, and a second one if the first is slower than the operation's p90
+     */
+    private CompletableFuture<String> hedged(List<Route> order, LatencyWindow window,
+            List<Map<String, String>> messages, boolean jsonResponse, double temperature, LlmOperation operation) {
+        hedgeEligible.increment();
+        synchronized (hedgeBudgetLock) {
+            hedgeBudget = Math.min(HEDGE_MAX_BUDGET, hedgeBudget + hedgeMaxRate);
+        }
+        long delayMs = window.quantile(hedgeQuantile, hedgeMinSamples);
+        long start = System.nanoTime();
+
+        HedgedRequest request = new HedgedRequest();
+        request.primary = run(order, messages, jsonResponse, temperature, operation);
+        request.primary.whenComplete((value, error) -> {
+            // A primary that lost to the hedge is recorded with its time so far, keeping the tail in the window
+            if (error == null || request.primary.isCancelled()) {
+                window.record(elapsedMs(start));
+            }
+            onLegDone(request, request.primary, value, error);
+        });
+        if (delayMs < 0) {
+            // Not enough samples for a p90 yet
+            return request.result;
+        }
+
+        CompletableFuture.delayedExecutor(Math.max(delayMs, hedgeMinDelayMs), TimeUnit.MILLISECONDS).execute(() -> {
+            synchronized (request) {
+                if (request.result.isDone() || request.pending == 0) {
+                    return;
+                }
+                if (!takeHedgeBudget()) {
+                    hedgesOverBudget.increment();
+                    return;
+                }
+                request.pending++;
+            }
+            hedgesSent.increment();
+            CompletableFuture<String> backup = run(hedgeOrder(order), messages, jsonResponse, temperature, operation);
+            synchronized (request) {
+                request.backup = backup;
+            }
+            if (request.result.isDone()) {
+                // Primary answered while the hedge was being sent
+                backup.cancel(true);
+            }
+            backup.whenComplete((value, error) -> onLegDone(request, backup, value, error));
+        });
+        return request.result;
+    }
+
+    private void onLegDone(HedgedRequest request, CompletableFuture<String> leg, String value, Throwable error) {
+        CompletableFuture<String> loser = null;
+        synchronized (request) {
+            request.pending--;
+            if (request.result.isDone()) {
+                return;
+            }
+            if (error == null) {
+                request.result.complete(value);
+                loser = leg == request.primary ? request.backup : request.primary;
+                if (leg != request.primary) {
+                    hedgeWins.increment();
+                }
+            } else {
+                if (leg == request.primary) {
+                    request.primaryError = error;
+                }
+                if (request.pending == 0) {
+                    request.result.completeExceptionally(
+                            unwrap(request.primaryError != null ? request.primaryError : error));
+                }
+            }
+        }
+        if (loser != null) {
+            loser.cancel(true);
+        }
+    }
+
+    private boolean takeHedgeBudget() {
+        synchronized (hedgeBudgetLock) {
+            if (hedgeBudget < 1) {
+                return false;
+            }
+            hedgeBudget -= 1;
+            return true;
+        }
+    }
+
+    private List<Route> hedgeOrder(List<Route> order) {
+        if (!hedgePreferAlternate || order.size() < 2) {
+            return order;
+        }
+        List<Route> alternateFirst = new ArrayList<>(order);
+        alternateFirst.add(0, alternateFirst.remove(1));
+        return alternateFirst;
+    }
+
+    public Map<String, Object> getHedgingStats() {
+        long eligible = hedgeEligible.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", hedgingEnabled);
+        stats.put("eligibleRequests", eligible);
+        stats.put("hedgesSent", hedgesSent.sum());
+        stats.put("hedgeRate", eligible > 0 ? (double) hedgesSent.sum() / eligible : 0.0);
+        stats.put("hedgeWins", hedgeWins.sum());
+        stats.put("skippedOverBudget", hedgesOverBudget.sum());
+        stats.put("maxRate", hedgeMaxRate);
+        Map<String, Object> delays = new LinkedHashMap<>();
+        for (Map.Entry<LlmOperation, LatencyWindow> entry : hedgeWindows.entrySet()) {
+            delays.put(entry.getKey().name(), entry.getValue().quantile(hedgeQuantile, hedgeMinSamples));
+        }
+        stats.put("hedgeDelayMs", delays);
+        return stats;
+    }
+
+    /**
+     * One request with failover; cancelling the returned future aborts the provider call in progress
+     */
+    private CompletableFuture<String> run(List<Route> order, List<Map<String, String>> messages,
+            boolean jsonResponse, double temperature, LlmOperation operation) {
+        CancellableCall call = new CancellableCall();
+        return CancellableCall.linkTo(attempt(call, order, 0, messages, jsonResponse, temperature, operation), call);
+    }
+
+    private CompletableFuture<String> attempt(CancellableCall call, List<Route> order, int index,
+            List<Map<String, String>> messages, boolean jsonResponse, double temperature, LlmOperation operation) {
+        if (call.isCancelled()) {
+            return CompletableFuture.failedFuture(new CancellationException());
+        }
+        if (index >= order.size()) {
+            return CompletableFuture.failedFuture(unavailable());
+        }
+        Route route = order.get(index);
+        if (!route.tryAcquire()) {
+            return attempt(call, order, index + 1, messages, jsonResponse, temperature, operation);
+        }
+
+        AtomicLong sentAt = new AtomicLong();
+        CompletableFuture<String> upstream;
+        try {
+            upstream = route.provider.chatCompletionAsync(messages, jsonResponse, temperature, operation,
+                    () -> sentAt.set(System.nanoTime()));
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<String> result = call.register(upstream);
+        return result.handle((value, error) -> {
+            if (isLocalRejection(error) || call.isCancelled()) {
+                // Never reached the provider, or lost a hedge race: says nothing about its health
+                route.releaseProbe();
+            } else {
+                route.record(operation, sinceMs(sentAt), error != null && countsAsFailure(error));
+            }
+            return error;
+        }).thenCompose(error -> {
+            if (error == null || call.isCancelled() || index + 1 >= order.size() || !shouldFailOver(error)) {
+                return result;
+            }
+            logger.warn("LLM provider {} failed ({}), failing over to {}", route.provider.getName(),
+                    unwrap(error).getMessage(), order.get(index + 1).provider.getName());
+            return attempt(call, order, index + 1, messages, jsonResponse, temperature, operation);
+        });
+    }
+
+    /**
+     * Available routes in the order they should be tried
+     */
+    private List<Route> order() {
+        List<Route> available = new ArrayList<>();
+        for (Route route : routes) {
+            if (route.isAvailable()) {
+                available.add(route);
+            }
+        }
+        // A recovering primary goes first so its probe actually happens (its window still holds the failures)
+        if (available.size() < 2 || available.get(0).isRecovering()) {
+            return available;
+        }
+
+        // Default is priority order; a clearly faster/healthier alternate moves to the front
+        double primaryScore = available.get(0).score();
+        Route best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (int i = 1; i < available.size(); i++) {
+            double score = available.get(i).score();
+            if (score >= 0 && score < bestScore) {
+                best = available.get(i);
+                bestScore = score;
+            }
+        }
+        if (best != null && primaryScore > 0 && bestScore < primaryScore * switchRatio) {
+            available.remove(best);
+            available.add(0, best);
+        }
+        return available;
+    }
+
+    // Any other route a request could go to right now
+    private boolean otherRouteAvailable(Route route) {
+        for (Route other : routes) {
+            if (other != route && other.isAvailable()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private LlmApiException unavailable() {
+        long retryAfterMs = Long.MAX_VALUE;
+        for (Route route : routes) {
+            retryAfterMs = Math.min(retryAfterMs, route.openRemainingMs());
+        }
+        return LlmApiException.unavailable("AI service is temporarily unavailable", Math.max(retryAfterMs, 1000));
+    }
+
+    // Provider health: timeouts, connection errors and 5xx. Bad requests are our fault, and 429 is
+    // rate limiting that the admission controller already backs off from
+    private static boolean countsAsFailure(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof LlmApiException) {
+            return ((LlmApiException) cause).getStatusCode() >= 500;
+        }
+        return true;
+    }
+
+    // A rate limited provider is still worth failing over from, a bad request is not
+    private static boolean shouldFailOver(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof LlmApiException) {
+            return ((LlmApiException) cause).getStatusCode() == LlmApiException.TOO_MANY_REQUESTS
+                    || countsAsFailure(cause);
+        }
+        return true;
+    }
+
+    // Admission rejections never reached the provider, they only trigger failover
+    private static boolean isLocalRejection(Throwable error) {
+        Throwable cause = unwrap(error);
+        return cause instanceof LlmApiException && ((LlmApiException) cause).isLocal();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    // 0 when the request was never sent
+    private static long sinceMs(AtomicLong sentAt) {
+        long sent = sentAt.get();
+        return sent == 0 ? 0 : elapsedMs(sent);
+    }
+}
@@ -0,0 +1,189 @@
+package com.ingilizce.calismaapp.service;
+
+import com.ingilizce.calismaapp.model.LlmOperation;
+import com.ingilizce.calismaapp.util.LatencySketch;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token, latency and cost accounting of every LLM call that reaches a provider
+ * Calls are aggregated per (operation, provider, model) in LongAdders and LatencySketch
+ * histograms, so recording never locks. Coalesced requests share one call and are not
+ * counted again; each hedge leg and each admission retry is a call of its own.
+ * Cost is estimated from llm.usage.prices (USD per million input/output tokens).
+ */
+@Component
+public class LlmUsageTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmUsageTracker.class);
+
+    // model=inputUsdPerMillion:outputUsdPerMillion, comma separated
+    @Value("${llm.usage.prices:llama-3.3-70b-versatile=0.59:0.79}")
+    private String[] priceEntries;
+
+    private final Map<String, double[]> prices = new HashMap<>();
+    private final Map<UsageKey, UsageStats> usage = new ConcurrentHashMap<>();
+    private final Instant since = Instant.now();
+
+    private record UsageKey(LlmOperation operation, String provider, String model) {
+    }
+
+    private static class UsageStats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder cancelled = new LongAdder();
+        final LongAdder promptTokens = new LongAdder();
+        final LongAdder completionTokens = new LongAdder();
+        final LatencySketch latency = new LatencySketch();
+        // Token counts per call (the sketch works for any positive value, not only ms)
+        final LatencySketch promptTokensPerCall = new LatencySketch();
+        final LatencySketch completionTokensPerCall = new LatencySketch();
+    }
+
+    @PostConstruct
+    public void init() {
+        for (String entry : priceEntries) {
+            int eq = entry.lastIndexOf('=');
+            String[] values = eq < 0 ? new String[0] : entry.substring(eq + 1).split(":");
+            if (values.length != 2) {
+                if (!entry.isBlank()) {
+                    logger.warn("Ignoring LLM price entry '{}', expected model=input:output", entry);
+                }
+                continue;
+            }
+            try {
+                prices.put(entry.substring(0, eq).trim(),
+                        new double[] { Double.parseDouble(values[0].trim()), Double.parseDouble(values[1].trim()) });
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring LLM price entry '{}': {}", entry, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Answered call with the usage block of the response (0 tokens when the provider did not report them)
+     */
+    public void recordSuccess(LlmOperation operation, String provider, String model, long latencyMs,
+            int promptTokens, int completionTokens) {
+        UsageStats stats = stats(operation, provider, model);
+        stats.calls.increment();
+        stats.latency.record(latencyMs);
+        if (promptTokens > 0 || completionTokens > 0) {
+            stats.promptTokens.add(promptTokens);
+            stats.completionTokens.add(completionTokens);
+            stats.promptTokensPerCall.record(promptTokens);
+            stats.completionTokensPerCall.record(completionTokens);
+        }
+    }
+
+    /**
+     * Call that failed or was cancelled (lost hedge, client gone) before an answer
+     */
+    public void recordFailure(LlmOperation operation, String provider, String model, long latencyMs,
+            boolean cancelled) {
+        UsageStats stats = stats(operation, provider, model);
+        stats.calls.increment();
+        (cancelled ? stats.cancelled : stats.failures).increment();
+        stats.latency.record(latencyMs);
+    }
+
+    /**
+     * Totals and one entry per (operation, provider, model), most tokens first
+     */
+    public Map<String, Object> getSummary() {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        long calls = 0, failures = 0, cancelled = 0, promptTokens = 0, completionTokens = 0;
+        double cost = 0;
+        for (Map.Entry<UsageKey, UsageStats> e : usage.entrySet()) {
+            UsageKey key = e.getKey();
+            UsageStats stats = e.getValue();
+            long entryCalls = stats.calls.sum();
+            long prompt = stats.promptTokens.sum();
+            long completion = stats.completionTokens.sum();
+            double entryCost = cost(key.model(), prompt, completion);
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("operation", key.operation().name());
+            entry.put("provider", key.provider());
+            entry.put("model", key.model());
+            entry.put("calls", entryCalls);
+            entry.put("failures", stats.failures.sum());
+            entry.put("cancelled", stats.cancelled.sum());
+            entry.put("promptTokens", prompt);
+            entry.put("completionTokens", completion);
+            entry.put("totalTokens", prompt + completion);
+            entry.put("promptTokensPerCall", tokenStats(stats.promptTokensPerCall));
+            entry.put("completionTokensPerCall", tokenStats(stats.completionTokensPerCall));
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("meanMs", Math.round(stats.latency.getMean()));
+            latency.put("p50Ms", stats.latency.quantile(0.5));
+            latency.put("p95Ms", stats.latency.quantile(0.95));
+            latency.put("p99Ms", stats.latency.quantile(0.99));
+            entry.put("latency", latency);
+            entry.put("estimatedCostUsd", round(entryCost));
+            entries.add(entry);
+
+            calls += entryCalls;
+            failures += stats.failures.sum();
+            cancelled += stats.cancelled.sum();
+            promptTokens += prompt;
+            completionTokens += completion;
+            cost += entryCost;
+        }
+        long allTokens = promptTokens + completionTokens;
+        for (Map<String, Object> entry : entries) {
+            long tokens = (Long) entry.get("totalTokens");
+            entry.put("tokenShare", allTokens == 0 ? 0.0 : Math.round(1000.0 * tokens / allTokens) / 1000.0);
+        }
+        entries.sort((a, b) -> Long.compare((Long) b.get("totalTokens"), (Long) a.get("totalTokens")));
+
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("calls", calls);
+        totals.put("failures", failures);
+        totals.put("cancelled", cancelled);
+        totals.put("promptTokens", promptTokens);
+        totals.put("completionTokens", completionTokens);
+        totals.put("totalTokens", allTokens);
+        totals.put("estimatedCostUsd", round(cost));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("since", since.toString());
+        summary.put("totals", totals);
+        summary.put("operations", entries);
+        return summary;
+    }
+
+    private UsageStats stats(LlmOperation operation, String provider, String model) {
+        return usage.computeIfAbsent(new UsageKey(operation, provider, model != null ? model : "unknown"),
+                key -> new UsageStats());
+    }
+
+    private double cost(String model, long promptTokens, long completionTokens) {
+        double[] price = prices.get(model);
+        return price == null ? 0 : (promptTokens * price[0] + completionTokens * price[1]) / 1_000_000;
+    }
+
+    private static Map<String, Object> tokenStats(LatencySketch sketch) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mean", Math.round(sketch.getMean()));
+        stats.put("p50", sketch.quantile(0.5));
+        stats.put("p95", sketch.quantile(0.95));
+        return stats;
+    }
+
+    private static double round(double usd) {
+        return Math.round(usd * 10_000) / 10_000.0;
+    }
+}
@@ -0,0 +1,1061 @@
+package com.ingilizce.calismaapp.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic first tier of the grammar check (no LLM, no I/O)
+ * The sentence is tokenized, words are looked up in a small POS lexicon
+ * (grammar/lexicon.txt) and a set of high-precision rules runs over the tokens:
+ * subject-verb agreement, a/an, verb form after do/did/modals/to/have,
+ * determiner-noun number, pronoun case after prepositions, capitalization and
+ * repeated words. Errors use the same schema as the LLM check.
+ *
+ * A sentence is only declared CORRECT when it is short and simple (one clause,
+ * every word known, verified subject-verb pair) and shows none of the common
+ * learner errors the rules do not report (tense against a past time adverb,
+ * "be like", "to" + -ing, bare singular object, redundant preposition).
+ * Anything else is UNDECIDED and goes to the LLM.
+ */
+@Component
+public class LocalGrammarEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalGrammarEngine.class);
+
+    private static final String LEXICON = "grammar/lexicon.txt";
+    private static final Pattern TOKEN = Pattern.compile("[A-Za-z]+(?:['’][A-Za-z]+)*|\\d+(?:[.,]\\d+)*|\\S");
+
+    public enum Verdict {
+        CORRECT, ERRORS, UNDECIDED
+    }
+
+    public record Result(Verdict verdict, List<Map<String, Object>> errors) {
+
+        public Map<String, Object> toResponse() {
+            Map<String, Object> response = new HashMap<>();
+            response.put("hasErrors", !errors.isEmpty());
+            response.put("errors", errors);
+            response.put("errorCount", errors.size());
+            response.put("source", "rules");
+            return response;
+        }
+    }
+
+    enum Tag {
+        PRON_1SG, PRON_3SG, PRON_PL, PRON_OBJ, PRON_INDEF,
+        DET_SG, DET_PL, DET, POSS, NUM_SG, NUM_PL,
+        PREP, CONJ, NEG, MODAL, MODAL_NEG, BE, AUX_NEG,
+        ADV, ADV_FREQ, ADJ,
+        NOUN_SG, NOUN_PL, NOUN_U,
+        VERB_BASE, VERB_3SG, VERB_PAST, VERB_PP, VERB_ING
+    }
+
+    private enum Person {
+        FIRST_SINGULAR, THIRD_SINGULAR, OTHER
+    }
+
+    record Token(String text, String lower, int start, int end, boolean word) {
+    }
+
+    private static final Set<Tag> VERB_TAGS = EnumSet.of(Tag.VERB_BASE, Tag.VERB_3SG, Tag.VERB_PAST, Tag.VERB_PP,
+            Tag.VERB_ING);
+    private static final Set<Tag> NOUN_TAGS = EnumSet.of(Tag.NOUN_SG, Tag.NOUN_PL, Tag.NOUN_U);
+    private static final Set<Tag> DET_TAGS = EnumSet.of(Tag.DET_SG, Tag.DET_PL, Tag.DET, Tag.POSS, Tag.NUM_SG,
+            Tag.NUM_PL);
+    // Tags allowed after the verb group of a sentence declared correct
+    private static final Set<Tag> COMPLEMENT_TAGS = EnumSet.of(Tag.DET_SG, Tag.DET_PL, Tag.DET, Tag.POSS,
+            Tag.NUM_SG, Tag.NUM_PL, Tag.ADJ, Tag.NOUN_SG, Tag.NOUN_PL, Tag.NOUN_U, Tag.PRON_OBJ, Tag.PRON_INDEF,
+            Tag.PREP, Tag.ADV, Tag.ADV_FREQ, Tag.VERB_ING, Tag.VERB_PP);
+
+    private static final Map<String, String> OBJECT_FORMS = Map.of(
+            "i", "me", "he", "him", "she", "her", "we", "us", "they", "them");
+    // Prepositions that are also conjunctions ("after he left") are left out
+    private static final Set<String> CONJUNCTION_PREPOSITIONS = Set.of("after", "before", "since", "until", "like");
+    // "I suggest that he go", "It is vital that she be ..." (subjunctive)
+    private static final Set<String> SUBJUNCTIVE_TRIGGERS = Set.of("that", "lest");
+    // Join noun phrases as often as clauses ("You and I are ..."): never start a clause
+    private static final Set<String> COORDINATORS = Set.of("and", "or", "nor");
+    // Only function words are flagged when repeated ("had had", "that that" can be correct)
+    private static final Set<String> REPEAT_CHECKED = Set.of("the", "a", "an", "to", "of", "in", "on", "at", "is",
+            "are", "was", "i", "you", "he", "she", "it", "we", "they", "and", "for", "with", "my", "your");
+    // "yesterday", "two days ago", "last week": the verb has to be in the past
+    private static final Set<String> PAST_TIME_WORDS = Set.of("yesterday", "ago");
+    private static final Set<String> TIME_NOUNS = Set.of("second", "minute", "hour", "day", "night", "morning",
+            "evening", "week", "weekend", "month", "year", "summer", "winter", "spring", "autumn");
+    // Verb forms that carry the past themselves ("I could swim yesterday")
+    private static final Set<String> PAST_AUXILIARIES = Set.of("was", "were", "wasn't", "weren't", "did", "didn't",
+            "had", "hadn't", "could", "couldn't");
+    // A plural amount taken as one quantity agrees with a singular verb ("Two years is a long time")
+    private static final Set<String> MEASURE_NOUNS = Set.of("second", "minute", "hour", "day", "night", "week",
+            "weekend", "month", "year", "dollar", "euro", "lira", "pound", "kilometre", "kilometer", "mile", "metre",
+            "meter", "kilo", "litre", "liter");
+    // Transitive verbs learners give a preposition ("discuss about", "marry with")
+    private static final Map<String, Set<String>> REDUNDANT_PREPOSITIONS = Map.of(
+            "discuss", Set.of("about"), "describe", Set.of("about"), "explain", Set.of("about"),
+            "mention", Set.of("about"), "marry", Set.of("with"), "reach", Set.of("to", "at"), "visit", Set.of("to"),
+            "enter", Set.of("into"), "lack", Set.of("of"));
+    private static final Set<String> CLAUSE_PUNCTUATION = Set.of(",", ";", ":", "(", "-", "\"", "—");
+
+    // Vowel letter, consonant sound ("a university") and the other way round ("an hour")
+    private static final List<String> CONSONANT_SOUND_PREFIXES = List.of("unic", "unif", "uniq", "union", "unis",
+            "unit", "univ", "unil", "usa", "use", "usu", "uten", "util", "utop", "ura", "ure", "uri", "uro", "ubiq",
+            "eu", "ewe");
+    private static final Set<String> CONSONANT_SOUND_WORDS = Set.of("one", "once");
+    private static final List<String> VOWEL_SOUND_PREFIXES = List.of("hour", "honest", "honor", "honour", "heir");
+    // Pronounced both ways, never flagged
+    private static final List<String> AMBIGUOUS_SOUND_PREFIXES = List.of("herb", "histor", "hotel", "humble");
+
+    @Value("${grammar.local.enabled:true}")
+    private boolean enabled;
+
+    // Longer sentences are never declared correct locally
+    @Value("${grammar.local.max-tokens:15}")
+    private int maxTokens;
+
+    private final Map<String, EnumSet<Tag>> lexicon = new HashMap<>();
+    private final Map<String, String[]> verbForms = new HashMap<>(); // base -> base, 3sg, past, pp, ing
+    private final Map<String, Set<String>> verbBases = new HashMap<>(); // any form -> bases
+    private final Map<String, String> plurals = new HashMap<>();
+    private final Map<String, String> singulars = new HashMap<>();
+
+    private final LongAdder correct = new LongAdder();
+    private final LongAdder withErrors = new LongAdder();
+    private final LongAdder undecided = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(LEXICON).getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    addLexiconLine(line.split("\\s+"));
+                }
+            }
+            logger.info("Local grammar engine loaded {} words ({} verbs)", lexicon.size(), verbForms.size());
+        } catch (Exception e) {
+            // Without a lexicon every sentence is UNDECIDED and goes to the LLM
+            logger.error("Could not load {}: {}", LEXICON, e.getMessage());
+            enabled = false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Check a sentence with the local rules
+     */
+    public Result check(String sentence) {
+        if (!enabled || sentence == null || sentence.isBlank()) {
+            return new Result(Verdict.UNDECIDED, List.of());
+        }
+        long started = System.nanoTime();
+
+        List<Token> tokens = tokenize(sentence);
+        Analysis analysis = new Analysis(tokens);
+        analysis.run();
+
+        Result result;
+        if (!analysis.errors.isEmpty()) {
+            result = new Result(Verdict.ERRORS, analysis.sortedErrors());
+            withErrors.increment();
+        } else if (analysis.isSimpleAndCorrect()) {
+            result = new Result(Verdict.CORRECT, List.of());
+            correct.increment();
+        } else {
+            result = new Result(Verdict.UNDECIDED, List.of());
+            undecided.increment();
+        }
+        totalNanos.add(System.nanoTime() - started);
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        long decided = correct.sum() + withErrors.sum();
+        long total = decided + undecided.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("lexiconSize", lexicon.size());
+        stats.put("correct", correct.sum());
+        stats.put("errors", withErrors.sum());
+        stats.put("undecided", undecided.sum());
+        stats.put("decidedRatio", total > 0 ? (double) decided / total : 0.0);
+        stats.put("avgMicros", total > 0 ? totalNanos.sum() / 1000.0 / total : 0.0);
+        return stats;
+    }
+
+    // ---------------------------------------------------------------- rules
+
+    /**
+     * State of one check: tokens, errors found so far and the verified subject-verb pair
+     */
+    private class Analysis {
+
+        private final List<Token> tokens;
+        private final Map<Integer, Map<String, Object>> errors = new HashMap<>(); // by fromPos
+        private int verifiedVerb = -1; // verb index of the first clause, if agreement was verified
+
+        Analysis(List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        void run() {
+            checkSentenceStart();
+            for (int i = 0; i < tokens.size(); i++) {
+                Token token = tokens.get(i);
+                if (!token.word()) {
+                    continue;
+                }
+                checkPronounI(token);
+                checkRepeatedWord(i);
+                checkArticle(i);
+                checkDeterminerNumber(i);
+                checkPronounAfterPreposition(i);
+                checkVerbAfterAuxiliary(i);
+                checkParticiple(i);
+                if (isClauseStart(i)) {
+                    checkPronounSubject(i);
+                    checkNounSubject(i);
+                }
+            }
+        }
+
+        // "i am ..." -> "I am ..."
+        private void checkPronounI(Token token) {
+            if (token.text().equals("i") || token.text().startsWith("i'")) {
+                addError(token.start(), token.end(), "The pronoun 'I' is always written with a capital letter.",
+                        "Capitalization", "I" + token.text().substring(1));
+            }
+        }
+
+        private void checkSentenceStart() {
+            Token first = tokens.isEmpty() ? null : tokens.get(0);
+            if (first == null || !first.word() || first.lower().equals("i") || first.lower().startsWith("i'")) {
+                return;
+            }
+            if (first.text().equals(first.lower())) {
+                addError(first.start(), first.end(), "A sentence should start with a capital letter.",
+                        "Capitalization", capitalize(first.text()));
+            }
+        }
+
+        private void checkRepeatedWord(int i) {
+            Token previous = word(i - 1);
+            Token token = tokens.get(i);
+            if (previous != null && previous.lower().equals(token.lower()) && REPEAT_CHECKED.contains(token.lower())) {
+                addError(previous.start(), token.end(), "The word '" + token.text() + "' is repeated.",
+                        "Repeated Word", previous.text());
+            }
+        }
+
+        private void checkArticle(int i) {
+            Token article = tokens.get(i);
+            if (!article.lower().equals("a") && !article.lower().equals("an")) {
+                return;
+            }
+            Token next = word(i + 1);
+            if (next == null || next.text().length() < 2 || isAcronym(next.text())) {
+                return;
+            }
+            Set<Tag> nextTags = tags(next);
+            // "a and b": the letter, not the article
+            if (!nextTags.isEmpty() && Collections.disjoint(nextTags,
+                    EnumSet.of(Tag.NOUN_SG, Tag.NOUN_PL, Tag.NOUN_U, Tag.ADJ, Tag.ADV, Tag.NUM_SG, Tag.NUM_PL))) {
+                return;
+            }
+            Boolean vowelSound = startsWithVowelSound(next.lower());
+            if (vowelSound == null) {
+                return;
+            }
+            if (vowelSound && article.lower().equals("a")) {
+                addError(article.start(), article.end(),
+                        "Use 'an' instead of 'a' before a word that starts with a vowel sound.",
+                        "Article", matchCase("an", article.text()));
+            } else if (!vowelSound && article.lower().equals("an")) {
+                addError(article.start(), article.end(),
+                        "Use 'a' instead of 'an' before a word that starts with a consonant sound.",
+                        "Article", matchCase("a", article.text()));
+            }
+        }
+
+        // "every weekends", "these book", "many information"
+        private void checkDeterminerNumber(int i) {
+            Token determiner = tokens.get(i);
+            Set<Tag> detTags = tags(determiner);
+            if (!detTags.contains(Tag.DET_SG) && !detTags.contains(Tag.DET_PL) && !detTags.contains(Tag.NUM_PL)
+                    && !determiner.lower().equals("much")) {
+                return;
+            }
+            int nounIndex = skipAdjectives(i + 1);
+            Token noun = word(nounIndex);
+            if (noun == null || !isPureNoun(noun)) {
+                return;
+            }
+            Set<Tag> nounTags = tags(noun);
+            boolean pluralOnly = nounTags.contains(Tag.NOUN_PL) && !nounTags.contains(Tag.NOUN_SG);
+            boolean singularOnly = nounTags.contains(Tag.NOUN_SG) && !nounTags.contains(Tag.NOUN_PL);
+            Token after = word(nounIndex + 1);
+            boolean compound = after != null && !Collections.disjoint(tags(after), NOUN_TAGS);
+
+            if (detTags.contains(Tag.DET_SG) && pluralOnly && singulars.containsKey(noun.lower())) {
+                addError(noun.start(), noun.end(),
+                        "'" + determiner.text() + "' is followed by a singular noun.",
+                        "Noun Number", matchCase(singulars.get(noun.lower()), noun.text()));
+            } else if ((detTags.contains(Tag.DET_PL) || detTags.contains(Tag.NUM_PL)) && singularOnly && !compound
+                    && plurals.containsKey(noun.lower())) {
+                addError(noun.start(), noun.end(),
+                        "'" + determiner.text() + "' is followed by a plural noun.",
+                        "Noun Number", matchCase(plurals.get(noun.lower()), noun.text()));
+            } else if (determiner.lower().equals("many") && nounIndex == i + 1 && nounTags.contains(Tag.NOUN_U)) {
+                addError(determiner.start(), determiner.end(),
+                        "'" + noun.text() + "' is uncountable, use 'much'.", "Determiner",
+                        matchCase("much", determiner.text()));
+            } else if (determiner.lower().equals("much") && nounIndex == i + 1 && pluralOnly) {
+                addError(determiner.start(), determiner.end(),
+                        "'" + noun.text() + "' is a plural countable noun, use 'many'.", "Determiner",
+                        matchCase("many", determiner.text()));
+            }
+        }
+
+        // "with he" -> "with him"
+        private void checkPronounAfterPreposition(int i) {
+            Token preposition = tokens.get(i);
+            if (!tags(preposition).contains(Tag.PREP) || CONJUNCTION_PREPOSITIONS.contains(preposition.lower())) {
+                return;
+            }
+            Token pronoun = word(i + 1);
+            if (pronoun != null && OBJECT_FORMS.containsKey(pronoun.lower())) {
+                addError(pronoun.start(), pronoun.end(),
+                        "After the preposition '" + preposition.text() + "' use the object pronoun.",
+                        "Pronoun Case", matchCase(OBJECT_FORMS.get(pronoun.lower()), pronoun.text()));
+            }
+        }
+
+        // "did went", "doesn't goes", "can swims", "will is", "to went", "can to go"
+        private void checkVerbAfterAuxiliary(int i) {
+            Token auxiliary = tokens.get(i);
+            Set<Tag> auxTags = tags(auxiliary);
+            boolean doForm = Set.of("do", "does", "did", "don't", "doesn't", "didn't").contains(auxiliary.lower());
+            boolean modal = auxTags.contains(Tag.MODAL) || auxTags.contains(Tag.MODAL_NEG);
+            boolean to = auxiliary.lower().equals("to");
+            if (!doForm && !modal && !to) {
+                return;
+            }
+
+            Token previous = word(i - 1);
+            if (modal && previous != null && !Collections.disjoint(tags(previous), DET_TAGS)) {
+                return; // "the can", "free will": a noun
+            }
+            // Right after a subject pronoun the next word must be a verb, even if it can be a noun too
+            boolean afterPronoun = previous != null && isSubjectPronoun(previous);
+
+            int j = i + 1;
+            if (!to) {
+                // Question ("Did he go") and negation ("can not go")
+                Token subject = word(j);
+                if (subject != null && isSubjectPronoun(subject)) {
+                    j++;
+                }
+                Token not = word(j);
+                if (not != null && not.lower().equals("not")) {
+                    j++;
+                }
+            }
+            Token verb = word(j);
+            if (verb == null) {
+                return;
+            }
+
+            if (modal && verb.lower().equals("to") && word(j + 1) != null) {
+                Token next = word(j + 1);
+                addError(verb.start(), next.end(), "A modal verb is followed by the base form without 'to'.",
+                        "Modal Verb", next.text());
+                return;
+            }
+            if (modal && tags(verb).contains(Tag.BE) && !verb.lower().equals("be")
+                    && !verb.lower().equals("not")) {
+                addError(verb.start(), verb.end(), "A modal verb is followed by the base form of the verb.",
+                        "Verb Form", "be");
+                return;
+            }
+            Set<Tag> verbTags = tags(verb);
+            if (!(isPureVerb(verb) || (afterPronoun && !to)) || verbTags.contains(Tag.VERB_BASE)) {
+                return;
+            }
+            boolean wrongForm = verbTags.contains(Tag.VERB_PAST) || verbTags.contains(Tag.VERB_3SG)
+                    || (modal && (verbTags.contains(Tag.VERB_PP) || verbTags.contains(Tag.VERB_ING)));
+            String base = baseOf(verb.lower());
+            if (wrongForm && base != null) {
+                String after = to ? "'to'" : "'" + auxiliary.text() + "'";
+                addError(verb.start(), verb.end(), "Use the base form of the verb after " + after + ".",
+                        "Verb Form", matchCase(base, verb.text()));
+            }
+        }
+
+        // "have went" -> "have gone"
+        private void checkParticiple(int i) {
+            Token have = tokens.get(i);
+            if (!Set.of("have", "has", "had", "haven't", "hasn't", "hadn't").contains(have.lower())) {
+                return;
+            }
+            int j = i + 1;
+            for (int skipped = 0; skipped < 2; skipped++) {
+                Token next = word(j);
+                if (next != null && (isSubjectPronoun(next) || next.lower().equals("not")
+                        || tags(next).contains(Tag.ADV_FREQ))) {
+                    j++;
+                }
+            }
+            Token verb = word(j);
+            if (verb == null || !isPureVerb(verb)) {
+                return;
+            }
+            Set<Tag> verbTags = tags(verb);
+            if (verbTags.contains(Tag.VERB_PAST) && !verbTags.contains(Tag.VERB_PP)) {
+                String base = baseOf(verb.lower());
+                if (base != null) {
+                    addError(verb.start(), verb.end(),
+                            "Use the past participle after '" + have.text() + "'.", "Verb Form",
+                            matchCase(verbForms.get(base)[3], verb.text()));
+                }
+            }
+        }
+
+        // "He go", "I goes", "they is", "she don't"
+        private void checkPronounSubject(int i) {
+            if (isCoordinated(i)) {
+                return;
+            }
+            Token subject = tokens.get(i);
+            Person person = personOf(subject);
+            if (person == null) {
+                return;
+            }
+            int verbIndex = skipFrequencyAdverbs(i + 1);
+            Token verb = word(verbIndex);
+            if (verb == null) {
+                return;
+            }
+            if (checkAgreement(verb, person, true)) {
+                recordVerified(i, verbIndex);
+            }
+        }
+
+        // "The cat sleep", "My friends plays", "Cats likes"
+        private void checkNounSubject(int i) {
+            if (isCoordinated(i)) {
+                return;
+            }
+            int nounIndex = i;
+            Set<Tag> firstTags = tags(tokens.get(i));
+            if (!Collections.disjoint(firstTags, DET_TAGS)) {
+                nounIndex++;
+            }
+            nounIndex = skipAdjectives(nounIndex);
+            Token noun = word(nounIndex);
+            if (noun == null || !isPureNoun(noun)) {
+                return;
+            }
+            Set<Tag> nounTags = tags(noun);
+            boolean plural = nounTags.contains(Tag.NOUN_PL);
+            boolean singular = nounTags.contains(Tag.NOUN_SG) || nounTags.contains(Tag.NOUN_U);
+            if (plural == singular) {
+                return; // "fish", "sheep"
+            }
+            if (plural && MEASURE_NOUNS.contains(singulars.get(noun.lower()))) {
+                return; // "Five minutes is enough"
+            }
+            int verbIndex = skipFrequencyAdverbs(nounIndex + 1);
+            Token verb = word(verbIndex);
+            if (verb == null) {
+                return;
+            }
+            // A base form after a singular noun may be a compound ("the bus stop is ..."): only pure verbs
+            // with no other finite verb later in the sentence are reported
+            boolean strictBase = isPureVerb(verb) && !hasFiniteVerbAfter(verbIndex);
+            if (checkAgreement(verb, plural ? Person.OTHER : Person.THIRD_SINGULAR, strictBase)) {
+                recordVerified(i, verbIndex);
+            }
+        }
+
+        /**
+         * @param strictBase Whether a base form verb may be reported
+         * @return true if the verb form agrees with the subject (or needs no agreement)
+         */
+        private boolean checkAgreement(Token verb, Person person, boolean strictBase) {
+            String v = verb.lower();
+            Set<Tag> verbTags = tags(verb);
+
+            String expected = null;
+            switch (v) {
+                case "am", "is", "are" -> expected = switch (person) {
+                    case FIRST_SINGULAR -> "am";
+                    case THIRD_SINGULAR -> "is";
+                    case OTHER -> "are";
+                };
+                case "isn't", "aren't" -> expected = switch (person) {
+                    case FIRST_SINGULAR -> null; // "I am not", cannot be a one word suggestion
+                    case THIRD_SINGULAR -> "isn't";
+                    case OTHER -> "aren't";
+                };
+                case "was", "wasn't" -> expected = person == Person.OTHER ? (v.equals("was") ? "were" : "weren't") : v;
+                // "If I were" is correct, only the contraction is checked
+                case "were" -> expected = v;
+                case "weren't" -> expected = person == Person.OTHER ? v : "wasn't";
+                case "have", "has" -> expected = person == Person.THIRD_SINGULAR ? "has" : "have";
+                case "haven't", "hasn't" -> expected = person == Person.THIRD_SINGULAR ? "hasn't" : "haven't";
+                case "do", "does" -> expected = person == Person.THIRD_SINGULAR ? "does" : "do";
+                case "don't", "doesn't" -> expected = person == Person.THIRD_SINGULAR ? "doesn't" : "don't";
+                default -> {
+                }
+            }
+            if (expected != null || v.equals("isn't") || v.equals("aren't")) {
+                if (expected == null) {
+                    addError(verb.start(), verb.end(), "The verb does not agree with the subject.",
+                            "Subject-Verb Agreement", matchCase("am not", verb.text()));
+                    return false;
+                }
+                if (!expected.equals(v)) {
+                    addError(verb.start(), verb.end(), "The verb does not agree with the subject.",
+                            "Subject-Verb Agreement", matchCase(expected, verb.text()));
+                    return false;
+                }
+                return true;
+            }
+
+            if (verbTags.contains(Tag.MODAL) || verbTags.contains(Tag.MODAL_NEG) || verbTags.contains(Tag.AUX_NEG)) {
+                return true;
+            }
+            if (verbTags.contains(Tag.VERB_3SG) && person != Person.THIRD_SINGULAR) {
+                String base = baseOf(v);
+                if (base != null) {
+                    addError(verb.start(), verb.end(), "The verb does not agree with the subject.",
+                            "Subject-Verb Agreement", matchCase(base, verb.text()));
+                }
+                return false;
+            }
+            if (verbTags.contains(Tag.VERB_BASE) && !verbTags.contains(Tag.VERB_PAST)
+                    && person == Person.THIRD_SINGULAR) {
+                if (strictBase && !verbTags.contains(Tag.ADJ)) {
+                    addError(verb.start(), verb.end(),
+                            "Use the third person singular form of the verb ('-s') with this subject.",
+                            "Subject-Verb Agreement", matchCase(verbForms.get(baseOf(v))[1], verb.text()));
+                }
+                return false;
+            }
+            return verbTags.contains(Tag.VERB_3SG) || verbTags.contains(Tag.VERB_BASE)
+                    || verbTags.contains(Tag.VERB_PAST);
+        }
+
+        private boolean hasFiniteVerbAfter(int index) {
+            for (int i = index + 1; i < tokens.size(); i++) {
+                Token token = tokens.get(i);
+                if (!token.word()) {
+                    continue;
+                }
+                Set<Tag> tokenTags = tags(token);
+                if (tokenTags.contains(Tag.BE) || tokenTags.contains(Tag.MODAL) || tokenTags.contains(Tag.MODAL_NEG)
+                        || tokenTags.contains(Tag.AUX_NEG) || tokenTags.contains(Tag.VERB_3SG)
+                        || (tokenTags.contains(Tag.VERB_PAST) && isPureVerb(token))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void recordVerified(int subjectIndex, int verbIndex) {
+            if (subjectIndex == 0 && verifiedVerb < 0) {
+                verifiedVerb = verbIndex;
+            }
+        }
+
+        /**
+         * Short, single-clause sentence, every word known, subject-verb pair verified and
+         * nothing after the verb group that could start another clause
+         */
+        boolean isSimpleAndCorrect() {
+            if (verifiedVerb < 0) {
+                return false;
+            }
+            int end = tokens.size();
+            Token last = tokens.get(end - 1);
+            if (!last.word()) {
+                if (!last.text().equals(".") && !last.text().equals("!")) {
+                    return false;
+                }
+                end--;
+            }
+            if (end < 2 || end > maxTokens) {
+                return false;
+            }
+            for (int i = 0; i < end; i++) {
+                Token token = tokens.get(i);
+                if (!token.word() || tags(token).isEmpty() || tags(token).contains(Tag.CONJ)) {
+                    return false;
+                }
+            }
+
+            int next = skipVerbGroup(verifiedVerb, end);
+            if (next < 0 || hasUnreportedLearnerError(next, end)) {
+                return false;
+            }
+            for (int i = next; i < end; i++) {
+                Token token = tokens.get(i);
+                Set<Tag> tokenTags = tags(token);
+                if (token.lower().equals("to")) {
+                    Token verb = i + 1 < end ? tokens.get(i + 1) : null;
+                    if (verb != null && tags(verb).contains(Tag.VERB_BASE)) {
+                        i++;
+                        continue;
+                    }
+                }
+                if (Collections.disjoint(tokenTags, COMPLEMENT_TAGS)) {
+                    return false;
+                }
+                if (isSubjectPronoun(token) && !tokenTags.contains(Tag.PRON_OBJ)) {
+                    return false;
+                }
+                if (i + 1 < end && !numberMatches(tokenTags, tags(tokens.get(i + 1)))) {
+                    return false; // "these book" where book may also be a verb
+                }
+                boolean needsFollower = tokenTags.contains(Tag.PREP)
+                        || (!Collections.disjoint(tokenTags, DET_TAGS)
+                                && Collections.disjoint(tokenTags, EnumSet.of(Tag.NOUN_SG, Tag.PRON_OBJ)));
+                if (needsFollower) {
+                    if (i + 1 >= end) {
+                        return false;
+                    }
+                    Set<Tag> followerTags = tags(tokens.get(i + 1));
+                    if (!tokenTags.contains(Tag.PREP) && Collections.disjoint(followerTags,
+                            EnumSet.of(Tag.ADJ, Tag.NOUN_SG, Tag.NOUN_PL, Tag.NOUN_U, Tag.NUM_SG, Tag.NUM_PL,
+                                    Tag.ADV))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Patterns the rules do not report but that are usually wrong: "He is like apples",
+         * "I like to swimming", "I go to school yesterday", "She likes apple", "We discussed about it"
+         */
+        private boolean hasUnreportedLearnerError(int next, int end) {
+            boolean pastTime = false;
+            for (int i = 0; i < end; i++) {
+                Token token = tokens.get(i);
+                Set<Tag> tokenTags = tags(token);
+                Token following = i + 1 < end ? tokens.get(i + 1) : null;
+
+                if (tokenTags.contains(Tag.BE)) {
+                    Token afterBe = following != null && following.lower().equals("not") && i + 2 < end
+                            ? tokens.get(i + 2) : following;
+                    if (afterBe != null && afterBe.lower().equals("like")) {
+                        return true;
+                    }
+                }
+                if (token.lower().equals("to") && following != null && tags(following).contains(Tag.VERB_ING)) {
+                    return true;
+                }
+                if (following != null && (isPureVerb(token) || i == verifiedVerb)) {
+                    String base = baseOf(token.lower());
+                    if (base != null && REDUNDANT_PREPOSITIONS.getOrDefault(base, Set.of())
+                            .contains(following.lower())) {
+                        return true;
+                    }
+                }
+                if (PAST_TIME_WORDS.contains(token.lower()) || (token.lower().equals("last") && following != null
+                        && TIME_NOUNS.contains(following.lower()))) {
+                    pastTime = true;
+                }
+                if (i >= next && isBareSingularObject(i)) {
+                    return true;
+                }
+            }
+            return pastTime && !isPastForm(tokens.get(verifiedVerb));
+        }
+
+        // Countable singular noun with no determiner, right after the verb ("likes apple", "is teacher");
+        // after a preposition it is often idiomatic ("go to school", "by bus")
+        private boolean isBareSingularObject(int i) {
+            Token noun = tokens.get(i);
+            Set<Tag> nounTags = tags(noun);
+            if (!isPureNoun(noun) || !nounTags.contains(Tag.NOUN_SG) || nounTags.contains(Tag.NOUN_U)
+                    || nounTags.contains(Tag.NOUN_PL)) {
+                return false;
+            }
+            int j = i - 1;
+            while (j >= 0 && tags(tokens.get(j)).contains(Tag.ADJ)
+                    && Collections.disjoint(tags(tokens.get(j)), DET_TAGS)) {
+                j--;
+            }
+            if (j < 0) {
+                return false;
+            }
+            Set<Tag> beforeTags = tags(tokens.get(j));
+            return Collections.disjoint(beforeTags, DET_TAGS) && Collections.disjoint(beforeTags, NOUN_TAGS)
+                    && !beforeTags.contains(Tag.PREP);
+        }
+
+        private boolean isPastForm(Token verb) {
+            return tags(verb).contains(Tag.VERB_PAST) || PAST_AUXILIARIES.contains(verb.lower());
+        }
+
+        private boolean numberMatches(Set<Tag> determinerTags, Set<Tag> nounTags) {
+            boolean pluralDeterminer = determinerTags.contains(Tag.DET_PL) || determinerTags.contains(Tag.NUM_PL);
+            if (pluralDeterminer) {
+                return !nounTags.contains(Tag.NOUN_SG) && !nounTags.contains(Tag.NOUN_U)
+                        || nounTags.contains(Tag.NOUN_PL);
+            }
+            if (determinerTags.contains(Tag.DET_SG) || determinerTags.contains(Tag.NUM_SG)) {
+                return !nounTags.contains(Tag.NOUN_PL) || nounTags.contains(Tag.NOUN_SG);
+            }
+            return true;
+        }
+
+        // Index after the verb group starting at the verified verb, -1 if the group is not understood
+        private int skipVerbGroup(int verbIndex, int end) {
+            Token head = tokens.get(verbIndex);
+            Set<Tag> headTags = tags(head);
+            int i = verbIndex + 1;
+            boolean doForm = Set.of("do", "does", "did", "don't", "doesn't", "didn't").contains(head.lower());
+            boolean haveForm = Set.of("have", "has", "had", "haven't", "hasn't", "hadn't").contains(head.lower());
+
+            if (headTags.contains(Tag.MODAL) || headTags.contains(Tag.MODAL_NEG) || doForm) {
+                if (i < end && tokens.get(i).lower().equals("not")) {
+                    i++;
+                }
+                if (i >= end || !tags(tokens.get(i)).contains(Tag.VERB_BASE) && !tokens.get(i).lower().equals("be")) {
+                    // "I do my homework": do as a main verb
+                    return doForm && !head.lower().contains("'") ? verbIndex + 1 : -1;
+                }
+                return i + 1;
+            }
+            if (haveForm) {
+                i = skipFrequencyAdverbs(i);
+                if (i < end && tags(tokens.get(i)).contains(Tag.VERB_PP) && isPureVerb(tokens.get(i))) {
+                    return i + 1;
+                }
+                return i;
+            }
+            if (headTags.contains(Tag.BE)) {
+                if (i < end && tokens.get(i).lower().equals("not")) {
+                    i++;
+                }
+                return i;
+            }
+            return i;
+        }
+
+        // ------------------------------------------------------------ helpers
+
+        private boolean isClauseStart(int i) {
+            if (i == 0) {
+                return true;
+            }
+            Token previous = tokens.get(i - 1);
+            if (!previous.word()) {
+                return CLAUSE_PUNCTUATION.contains(previous.text());
+            }
+            Set<Tag> previousTags = tags(previous);
+            if (previousTags.contains(Tag.CONJ)) {
+                return !SUBJUNCTIVE_TRIGGERS.contains(previous.lower()) && !COORDINATORS.contains(previous.lower());
+            }
+            // "Yesterday he go ...", "Usually she walk ..."
+            return i == 1 && (previousTags.contains(Tag.ADV) || previousTags.contains(Tag.ADV_FREQ))
+                    && Collections.disjoint(previousTags, VERB_TAGS);
+        }
+
+        // Subject inside a coordinated phrase ("the boy and the girl", "you, he and I"): number unknown
+        private boolean isCoordinated(int i) {
+            Token previous = word(i - 1);
+            if (previous != null && COORDINATORS.contains(previous.lower())) {
+                return true;
+            }
+            for (int j = i + 1; j < tokens.size() && j <= i + 4; j++) {
+                Token token = tokens.get(j);
+                if (!token.word()) {
+                    return token.text().equals(",");
+                }
+                if (COORDINATORS.contains(token.lower())) {
+                    return true;
+                }
+                if (!Collections.disjoint(tags(token), VERB_TAGS) || tags(token).contains(Tag.BE)
+                        || tags(token).contains(Tag.MODAL) || tags(token).contains(Tag.MODAL_NEG)
+                        || tags(token).contains(Tag.AUX_NEG)) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        private Token word(int index) {
+            if (index < 0 || index >= tokens.size()) {
+                return null;
+            }
+            Token token = tokens.get(index);
+            return token.word() ? token : null;
+        }
+
+        private int skipAdjectives(int index) {
+            for (int skipped = 0; skipped < 2; skipped++) {
+                Token token = word(index);
+                if (token != null && tags(token).contains(Tag.ADJ) && Collections.disjoint(tags(token), NOUN_TAGS)) {
+                    index++;
+                }
+            }
+            return index;
+        }
+
+        private int skipFrequencyAdverbs(int index) {
+            for (int skipped = 0; skipped < 2; skipped++) {
+                Token token = word(index);
+                if (token != null && tags(token).contains(Tag.ADV_FREQ)) {
+                    index++;
+                }
+            }
+            return index;
+        }
+
+        private void addError(int from, int to, String message, String shortMessage, String suggestion) {
+            if (errors.containsKey(from)) {
+                return;
+            }
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", message);
+            error.put("shortMessage", shortMessage);
+            error.put("fromPos", from);
+            error.put("toPos", to);
+            error.put("suggestions", List.of(suggestion));
+            errors.put(from, error);
+        }
+
+        List<Map<String, Object>> sortedErrors() {
+            List<Map<String, Object>> sorted = new ArrayList<>(errors.values());
+            sorted.sort(Comparator.comparingInt(error -> (Integer) error.get("fromPos")));
+            return sorted;
+        }
+    }
+
+    // ------------------------------------------------------------- lexicon
+
+    private Set<Tag> tags(Token token) {
+        if (!token.word()) {
+            return Set.of();
+        }
+        if (Character.isDigit(token.lower().charAt(0))) {
+            return token.lower().equals("1") ? EnumSet.of(Tag.NUM_SG) : EnumSet.of(Tag.NUM_PL);
+        }
+        EnumSet<Tag> tags = lexicon.get(token.lower());
+        return tags != null ? tags : Set.of();
+    }
+
+    private Person personOf(Token token) {
+        Set<Tag> tags = tags(token);
+        if (tags.contains(Tag.PRON_1SG)) {
+            return Person.FIRST_SINGULAR;
+        }
+        if (tags.contains(Tag.PRON_3SG) || tags.contains(Tag.PRON_INDEF)) {
+            return Person.THIRD_SINGULAR;
+        }
+        if (tags.contains(Tag.PRON_PL)) {
+            return Person.OTHER;
+        }
+        return null;
+    }
+
+    private boolean isSubjectPronoun(Token token) {
+        Set<Tag> tags = tags(token);
+        return tags.contains(Tag.PRON_1SG) || tags.contains(Tag.PRON_3SG) || tags.contains(Tag.PRON_PL);
+    }
+
+    // Only verb readings (not "cook", "work", "left")
+    private boolean isPureVerb(Token token) {
+        Set<Tag> tags = tags(token);
+        return !tags.isEmpty() && VERB_TAGS.containsAll(tags);
+    }
+
+    private boolean isPureNoun(Token token) {
+        Set<Tag> tags = tags(token);
+        return !tags.isEmpty() && NOUN_TAGS.containsAll(tags);
+    }
+
+    private String baseOf(String form) {
+        Set<String> bases = verbBases.get(form);
+        return bases != null && bases.size() == 1 ? bases.iterator().next() : null;
+    }
+
+    private void addLexiconLine(String[] parts) {
+        String kind = parts[0];
+        switch (kind) {
+            case "VERB" -> addVerb(parts[1], parts[2], parts[3], parts[4], parts[5]);
+            case "VERBS" -> {
+                for (int i = 1; i < parts.length; i++) {
+                    String base = parts[i];
+                    addVerb(base, thirdPerson(base), pastTense(base), pastTense(base), ingForm(base));
+                }
+            }
+            case "NOUN" -> addNoun(parts[1], parts[2]);
+            case "NOUNS" -> {
+                for (int i = 1; i < parts.length; i++) {
+                    addNoun(parts[i], plural(parts[i]));
+                }
+            }
+            case "NOUNS_U" -> {
+                for (int i = 1; i < parts.length; i++) {
+                    tag(parts[i], Tag.NOUN_U);
+                }
+            }
+            default -> {
+                Tag tag = Tag.valueOf(kind);
+                for (int i = 1; i < parts.length; i++) {
+                    tag(parts[i], tag);
+                }
+            }
+        }
+    }
+
+    private void addVerb(String base, String third, String past, String participle, String ing) {
+        verbForms.putIfAbsent(base, new String[] { base, third, past, participle, ing });
+        tag(base, Tag.VERB_BASE);
+        tag(third, Tag.VERB_3SG);
+        tag(past, Tag.VERB_PAST);
+        tag(participle, Tag.VERB_PP);
+        tag(ing, Tag.VERB_ING);
+        for (String form : List.of(base, third, past, participle, ing)) {
+            verbBases.computeIfAbsent(form, key -> new HashSet<>()).add(base);
+        }
+    }
+
+    private void addNoun(String singular, String plural) {
+        tag(singular, Tag.NOUN_SG);
+        tag(plural, Tag.NOUN_PL);
+        plurals.putIfAbsent(singular, plural);
+        singulars.putIfAbsent(plural, singular);
+    }
+
+    private void tag(String word, Tag tag) {
+        lexicon.computeIfAbsent(word, key -> EnumSet.noneOf(Tag.class)).add(tag);
+    }
+
+    private static String thirdPerson(String base) {
+        if (base.matches(".*(s|x|z|ch|sh|o)")) {
+            return base + "es";
+        }
+        if (base.matches(".*[^aeiou]y")) {
+            return base.substring(0, base.length() - 1) + "ies";
+        }
+        return base + "s";
+    }
+
+    private static String pastTense(String base) {
+        if (base.endsWith("e")) {
+            return base + "d";
+        }
+        if (base.matches(".*[^aeiou]y")) {
+            return base.substring(0, base.length() - 1) + "ied";
+        }
+        return base + "ed";
+    }
+
+    private static String ingForm(String base) {
+        if (base.endsWith("ie")) {
+            return base.substring(0, base.length() - 2) + "ying";
+        }
+        if (base.endsWith("e") && !base.matches(".*(ee|ye|oe)")) {
+            return base.substring(0, base.length() - 1) + "ing";
+        }
+        return base + "ing";
+    }
+
+    private static String plural(String singular) {
+        if (singular.matches(".*(s|x|z|ch|sh)")) {
+            return singular + "es";
+        }
+        if (singular.matches(".*[^aeiou]y")) {
+            return singular.substring(0, singular.length() - 1) + "ies";
+        }
+        return singular + "s";
+    }
+
+    // ------------------------------------------------------------ text utils
+
+    static List<Token> tokenize(String sentence) {
+        List<Token> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(sentence);
+        while (matcher.find()) {
+            String text = matcher.group();
+            boolean word = Character.isLetterOrDigit(text.charAt(0));
+            String lower = text.replace('’', '\'').toLowerCase(Locale.ROOT);
+            tokens.add(new Token(text, lower, matcher.start(), matcher.end(), word));
+        }
+        return tokens;
+    }
+
+    /**
+     * @return null when the pronunciation is ambiguous
+     */
+    private static Boolean startsWithVowelSound(String word) {
+        for (String prefix : AMBIGUOUS_SOUND_PREFIXES) {
+            if (word.startsWith(prefix)) {
+                return null;
+            }
+        }
+        if (CONSONANT_SOUND_WORDS.contains(word)) {
+            return false;
+        }
+        for (String prefix : CONSONANT_SOUND_PREFIXES) {
+            if (word.startsWith(prefix)) {
+                return false;
+            }
+        }
+        for (String prefix : VOWEL_SOUND_PREFIXES) {
+            if (word.startsWith(prefix)) {
+                return true;
+            }
+        }
+        if (Character.isDigit(word.charAt(0))) {
+            return null; // "an 8", "a 7"
+        }
+        return "aeiou".indexOf(word.charAt(0)) >= 0;
+    }
+
+    private static boolean isAcronym(String word) {
+        return word.length() > 1 && word.equals(word.toUpperCase(Locale.ROOT));
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static String matchCase(String suggestion, String original) {
+        return Character.isUpperCase(original.charAt(0)) ? capitalize(suggestion) : suggestion;
+    }
+}
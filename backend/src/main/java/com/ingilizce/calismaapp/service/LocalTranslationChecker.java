@@ -0,0 +1,395 @@
+package com.ingilizce.calismaapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Local first tier of the translation check (no LLM, no I/O)
+ * The user's answer is compared with the reference translation after normalization
+ * (Turkish-aware lower case, punctuation, apostrophes, English contractions).
+ * Identical answers - also when only Turkish letters were typed as ASCII - are
+ * accepted directly. Otherwise the answer must align with the reference word by
+ * word with at most typo-level edits per word (one character, two for long words);
+ * a different word ("çay" / "kahve") may be a synonym or a mistake, so the LLM decides.
+ * Aligned answers are scored with the mean of the character Levenshtein ratio and
+ * the token Dice coefficient; answers at or above the acceptance threshold are
+ * accepted, everything else is UNDECIDED and goes to the LLM.
+ *
+ * The threshold is learned per direction from the LLM verdicts on the answers it
+ * did see: the lowest score from which the LLM accepted at least target-precision
+ * of the answers. A small share of local accepts is still sent to the LLM (audit)
+ * so there is evidence above the threshold too. Answers whose negation differs
+ * from the reference ("gidiyorum" / "gitmiyorum") are never accepted locally.
+ */
+@Component
+public class LocalTranslationChecker {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalTranslationChecker.class);
+
+    private static final Locale TURKISH = Locale.forLanguageTag("tr");
+    private static final int MAX_LENGTH = 500;
+    private static final double BUCKET_WIDTH = 0.01;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}' ]+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    // Olumsuz fiil ekleri (gitmiyor, gelmedi, yapmaz, olmamış, gelmeyecek, gitmeyeceğim, gitmeyiz, gitmem,
+    // gitmemeli ...) ve olumsuzluk kelimeleri. ASCII yazımlar da (gitmeyecegim, gitmemis) yakalanır
+    private static final Pattern TR_NEGATION = Pattern.compile(
+            "m[ıiuü]yor|m[ae]d[ıi]|m[ae]z|m[ae]m[ıi][şs]|m[ae]y[ae]c[ae][kğg]|m[ae]m[ae]l[ıi]|m[ae]s[ıi]n"
+                    + "|m[ae]y[ıi]z|m[ae]y[ıi]n|m[ae]y[ae]l[ıi]m|m[ae]m[ae]k|m[ae]m$");
+    private static final List<String> TR_NEGATION_WORDS = List.of("değil", "degil", "yok", "hiç", "hic", "asla");
+    private static final List<String> EN_NEGATION_WORDS = List.of("not", "no", "never", "nothing", "nobody",
+            "none", "nowhere", "neither", "nor");
+
+    private static final String[][] EN_CONTRACTIONS = {
+            { "won't", "will not" }, { "can't", "can not" }, { "cannot", "can not" }, { "shan't", "shall not" },
+            { "n't", " not" }, { "'m", " am" }, { "'re", " are" }, { "'ve", " have" }, { "'ll", " will" },
+            { "'d", " would" }, { "it's", "it is" }, { "he's", "he is" }, { "she's", "she is" },
+            { "that's", "that is" }, { "there's", "there is" }, { "what's", "what is" }, { "who's", "who is" },
+            { "here's", "here is" }, { "let's", "let us" } };
+
+    @Value("${translation.local.enabled:true}")
+    private boolean enabled;
+
+    @Value("${translation.local.initial-threshold:0.90}")
+    private double initialThreshold;
+
+    @Value("${translation.local.min-threshold:0.85}")
+    private double minThreshold;
+
+    @Value("${translation.local.max-threshold:0.98}")
+    private double maxThreshold;
+
+    @Value("${translation.local.target-precision:0.97}")
+    private double targetPrecision;
+
+    @Value("${translation.local.min-samples:30}")
+    private int minSamples;
+
+    @Value("${translation.local.audit-rate:0.05}")
+    private double auditRate;
+
+    private final Map<String, DirectionStats> directions = new ConcurrentHashMap<>();
+
+    public enum Verdict {
+        CORRECT, INCORRECT, UNDECIDED
+    }
+
+    /**
+     * @param learnable The LLM verdict for this answer may move the threshold
+     */
+    public record Result(String direction, Verdict verdict, double score, String reference, String feedback,
+            boolean learnable) {
+
+        public Map<String, Object> toResponse() {
+            Map<String, Object> response = new HashMap<>();
+            response.put("isCorrect", verdict == Verdict.CORRECT);
+            response.put("correctTranslation", reference != null ? reference : "");
+            response.put("feedback", feedback);
+            response.put("source", "local");
+            return response;
+        }
+    }
+
+    /**
+     * @param direction EN_TO_TR (Turkish answer) or TR_TO_EN (English answer)
+     * @param reference Reference translation in the answer's language, may be null
+     */
+    public Result check(String direction, String userTranslation, String reference) {
+        boolean turkish = !"TR_TO_EN".equals(direction);
+        DirectionStats stats = stats(direction);
+        stats.checks.increment();
+
+        if (userTranslation == null || userTranslation.isBlank()) {
+            stats.blank.increment();
+            return new Result(direction, Verdict.INCORRECT, 0, reference,
+                    turkish ? "Çeviri boş bırakıldı." : "The translation is empty.", false);
+        }
+        if (!enabled || reference == null || reference.isBlank()
+                || userTranslation.length() > MAX_LENGTH || reference.length() > MAX_LENGTH) {
+            stats.undecided.increment();
+            return undecided(direction, 0, reference, false);
+        }
+
+        String user = normalize(userTranslation, turkish);
+        String ref = normalize(reference, turkish);
+        if (user.isEmpty() || ref.isEmpty()) {
+            stats.undecided.increment();
+            return undecided(direction, 0, reference, false);
+        }
+        if (user.equals(ref)) {
+            stats.exact.increment();
+            return new Result(direction, Verdict.CORRECT, 1.0, reference,
+                    turkish ? "Harika! Çevirin doğru." : "Great! Your translation is correct.", false);
+        }
+
+        // Türkçe karakterler ASCII yazılmış olabilir (ı→i, ş→s ...): karşılaştırma katlanmış metinde
+        String userFolded = turkish ? fold(user) : user;
+        String refFolded = turkish ? fold(ref) : ref;
+        if (userFolded.equals(refFolded)) {
+            stats.exact.increment();
+            return new Result(direction, Verdict.CORRECT, 1.0, reference,
+                    "Doğru! Sadece Türkçe karakterlere dikkat et: " + reference, false);
+        }
+
+        String[] userTokens = SPACES.split(userFolded);
+        String[] refTokens = SPACES.split(refFolded);
+        double score = (levenshteinRatio(userFolded, refFolded) + dice(userTokens, refTokens)) / 2;
+
+        if (negationCount(SPACES.split(user), turkish) != negationCount(SPACES.split(ref), turkish)) {
+            stats.guarded.increment();
+            return undecided(direction, score, reference, false);
+        }
+        // A high score alone lets one wrong word through in a short answer ("tea" / "coffee")
+        if (!alignsWithTypos(userTokens, refTokens)) {
+            stats.misaligned.increment();
+            return undecided(direction, score, reference, false);
+        }
+        if (score < stats.threshold) {
+            stats.undecided.increment();
+            return undecided(direction, score, reference, true);
+        }
+        if (auditRate > 0 && ThreadLocalRandom.current().nextDouble() < auditRate) {
+            stats.audited.increment();
+            return undecided(direction, score, reference, true);
+        }
+
+        stats.fuzzy.increment();
+        logger.debug("Translation accepted locally ({}, score {}): '{}'", direction, score, userTranslation);
+        return new Result(direction, Verdict.CORRECT, score, reference,
+                turkish ? "Doğru! Küçük farklar var, referans çeviri: " + reference
+                        : "Correct! There are small differences, reference translation: " + reference,
+                false);
+    }
+
+    /**
+     * LLM verdict of an answer that was not decided locally; moves the threshold of its direction
+     */
+    public void recordLlmVerdict(Result local, boolean isCorrect) {
+        if (local == null || !local.learnable() || local.score() < minThreshold) {
+            return;
+        }
+        DirectionStats stats = stats(local.direction());
+        double before = stats.threshold;
+        stats.record(local.score(), isCorrect);
+        if (Math.abs(stats.threshold - before) >= BUCKET_WIDTH / 2) {
+            logger.info("Translation acceptance threshold ({}) {} -> {}", local.direction(),
+                    String.format(Locale.ROOT, "%.2f", before), String.format(Locale.ROOT, "%.2f", stats.threshold));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        directions.forEach((direction, stats) -> result.put(direction, stats.toMap()));
+        return result;
+    }
+
+    private Result undecided(String direction, double score, String reference, boolean learnable) {
+        return new Result(direction, Verdict.UNDECIDED, score, reference, null, learnable);
+    }
+
+    private DirectionStats stats(String direction) {
+        return directions.computeIfAbsent(direction, d -> new DirectionStats());
+    }
+
+    static String normalize(String text, boolean turkish) {
+        String s = Normalizer.normalize(text, Normalizer.Form.NFC).replace('’', '\'').replace('‘', '\'');
+        s = s.toLowerCase(turkish ? TURKISH : Locale.ROOT);
+        s = NON_WORD.matcher(s).replaceAll(" ");
+        if (turkish) {
+            // İstanbul'a = İstanbula
+            s = s.replace("'", "");
+        } else {
+            for (String[] contraction : EN_CONTRACTIONS) {
+                s = s.replace(contraction[0], contraction[1]);
+            }
+            s = s.replace("'", " ");
+        }
+        return SPACES.matcher(s).replaceAll(" ").trim();
+    }
+
+    static String fold(String s) {
+        StringBuilder folded = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case 'ı' -> folded.append('i');
+                case 'ğ' -> folded.append('g');
+                case 'ü' -> folded.append('u');
+                case 'ş' -> folded.append('s');
+                case 'ö' -> folded.append('o');
+                case 'ç' -> folded.append('c');
+                case 'â' -> folded.append('a');
+                case 'î' -> folded.append('i');
+                case 'û' -> folded.append('u');
+                default -> folded.append(c);
+            }
+        }
+        return folded.toString();
+    }
+
+    // Same number of words and every word within the typo tolerance of the reference word at its position
+    static boolean alignsWithTypos(String[] user, String[] ref) {
+        if (user.length != ref.length) {
+            return false;
+        }
+        for (int i = 0; i < ref.length; i++) {
+            if (editDistance(user[i], ref[i]) > typoTolerance(ref[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Kısa kelimelerde tek harf başka bir kelime demek (cat / car), uzunlarda yazım hatası
+    static int typoTolerance(String token) {
+        if (token.length() <= 3) {
+            return 0;
+        }
+        return token.length() <= 7 ? 1 : 2;
+    }
+
+    static double levenshteinRatio(String a, String b) {
+        int max = Math.max(a.length(), b.length());
+        if (max == 0) {
+            return 1.0;
+        }
+        return 1.0 - (double) editDistance(a, b) / max;
+    }
+
+    static int editDistance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    // Token multiset Dice: word order free, every token counts once per occurrence
+    static double dice(String[] a, String[] b) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String token : a) {
+            counts.merge(token, 1, Integer::sum);
+        }
+        int common = 0;
+        for (String token : b) {
+            Integer count = counts.get(token);
+            if (count != null && count > 0) {
+                counts.put(token, count - 1);
+                common++;
+            }
+        }
+        return 2.0 * common / (a.length + b.length);
+    }
+
+    static int negationCount(String[] tokens, boolean turkish) {
+        int count = 0;
+        for (String token : tokens) {
+            if (turkish ? TR_NEGATION_WORDS.contains(token) || TR_NEGATION.matcher(token).find()
+                    : EN_NEGATION_WORDS.contains(token)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private class DirectionStats {
+        final LongAdder checks = new LongAdder();
+        final LongAdder exact = new LongAdder();
+        final LongAdder fuzzy = new LongAdder();
+        final LongAdder blank = new LongAdder();
+        final LongAdder guarded = new LongAdder();
+        final LongAdder misaligned = new LongAdder();
+        final LongAdder audited = new LongAdder();
+        final LongAdder undecided = new LongAdder();
+
+        // LLM verdicts per score bucket between minThreshold and 1.0
+        final long[] accepted;
+        final long[] total;
+        volatile double threshold = initialThreshold;
+
+        DirectionStats() {
+            int buckets = (int) Math.ceil((1.0 - minThreshold) / BUCKET_WIDTH);
+            accepted = new long[Math.max(buckets, 1)];
+            total = new long[accepted.length];
+        }
+
+        synchronized void record(double score, boolean isCorrect) {
+            int bucket = Math.min((int) ((score - minThreshold) / BUCKET_WIDTH), total.length - 1);
+            total[bucket]++;
+            if (isCorrect) {
+                accepted[bucket]++;
+            }
+
+            // En yüksek skordan aşağı in: LLM'in kabul oranı hedefin altına düştüğü yerde dur
+            long cumulativeAccepted = 0;
+            long cumulativeTotal = 0;
+            boolean enoughSamples = false;
+            double learned = maxThreshold;
+            for (int i = total.length - 1; i >= 0; i--) {
+                cumulativeAccepted += accepted[i];
+                cumulativeTotal += total[i];
+                if (cumulativeTotal < minSamples) {
+                    continue;
+                }
+                enoughSamples = true;
+                if ((double) cumulativeAccepted / cumulativeTotal < targetPrecision) {
+                    break;
+                }
+                learned = minThreshold + i * BUCKET_WIDTH;
+            }
+            threshold = enoughSamples ? Math.max(minThreshold, Math.min(maxThreshold, learned)) : initialThreshold;
+        }
+
+        synchronized long samples() {
+            long samples = 0;
+            for (long t : total) {
+                samples += t;
+            }
+            return samples;
+        }
+
+        Map<String, Object> toMap() {
+            long checked = checks.sum();
+            long local = exact.sum() + fuzzy.sum() + blank.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("checks", checked);
+            map.put("exact", exact.sum());
+            map.put("fuzzy", fuzzy.sum());
+            map.put("blank", blank.sum());
+            map.put("negationGuarded", guarded.sum());
+            map.put("wordMismatch", misaligned.sum());
+            map.put("audited", audited.sum());
+            map.put("undecided", undecided.sum());
+            map.put("localRate", checked > 0 ? (double) local / checked : 0.0);
+            map.put("threshold", threshold);
+            map.put("learningSamples", samples());
+            return map;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.ingilizce.calismaapp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ingilizce.calismaapp.util.SSLUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking client for OpenAI compatible /chat/completions endpoints (Groq, Ollama)
+ * One shared java.net.http.HttpClient per endpoint: connections are kept alive and
+ * reused, and requests are multiplexed over HTTP/2 where the server supports it.
+ */
+public class OpenAiCompatibleClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenAiCompatibleClient.class);
+
+    private final String name;
+    private final String apiUrl;
+    private final String apiKey;
+    private final HttpClient httpClient;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @param insecureTls Accept any server certificate (development proxies with self-signed certs only),
+     *                    otherwise the JVM default trust store is used
+     */
+    public OpenAiCompatibleClient(String name, String apiUrl, String apiKey, Duration connectTimeout,
+            boolean insecureTls) {
+        this.name = name;
+        this.apiUrl = apiUrl;
+        this.apiKey = apiKey;
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout);
+        if (insecureTls) {
+            try {
+                builder.sslContext(SSLUtils.createTrustAllContext());
+                logger.warn("{} client: TLS certificate verification DISABLED (llm.insecure-tls), unsafe outside development", name);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Failed to create trust-all SSL context for " + name, e);
+            }
+        }
+        this.httpClient = builder.build();
+        logger.info("{} client initialized (HTTP/2, connect timeout {} ms)", name, connectTimeout.toMillis());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Send a chat completion request
+     *
+     * @param model        Model name
+     * @param messages     List of messages (role, content)
+     * @param jsonResponse If true, enforces JSON object response format
+     * @param temperature  Sampling temperature
+     * @param readTimeout  Time allowed for the whole response
+     * @return Future with the first choice and the usage block, cancelling it aborts the request
+     */
+    public CompletableFuture<Completion> chatCompletionAsync(String model, List<Map<String, String>> messages,
+            boolean jsonResponse, double temperature, Duration readTimeout) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(apiUrl))
+                    .timeout(readTimeout)
+                    .header("Content-Type", "application/json")
+                    .header("Authorization", "Bearer " + apiKey)
+                    .POST(HttpRequest.BodyPublishers.ofString(buildRequestBody(model, messages, jsonResponse, temperature)))
+                    .build();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Failed to build " + name + " request: " + e.getMessage(), e));
+        }
+
+        CompletableFuture<HttpResponse<String>> exchange = httpClient.sendAsync(request,
+                HttpResponse.BodyHandlers.ofString());
+        CompletableFuture<Completion> result = exchange.thenApply(this::extractCompletion);
+        // Cancelling the result (e.g. the losing request of a hedged pair) aborts the HTTP exchange
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Stream a chat completion (stream=true) token by token.
+     * The response body is read one SSE line at a time and the next line is only requested
+     * after the listener has handled the current token, so a slow consumer slows down reading
+     * from the socket instead of piling up tokens in memory.
+     *
+     * @return Handle to cancel the upstream request (e.g. when the client disconnects)
+     */
+    public TokenStream streamChatCompletion(String model, List<Map<String, String>> messages, double temperature,
+            Duration readTimeout, TokenListener listener) {
+        TokenStream stream = new TokenStream(listener);
+        start(stream, model, messages, temperature, readTimeout);
+        return stream;
+    }
+
+    /**
+     * Send the request of a stream created earlier (e.g. one that waited for admission)
+     */
+    void start(TokenStream stream, String model, List<Map<String, String>> messages, double temperature,
+            Duration readTimeout) {
+        try {
+            Map<String, Object> extra = new HashMap<>();
+            extra.put("stream", true);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(apiUrl))
+                    .timeout(readTimeout) // until the response headers arrive
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "text/event-stream")
+                    .header("Authorization", "Bearer " + apiKey)
+                    .POST(HttpRequest.BodyPublishers.ofString(buildRequestBody(model, messages, false, temperature, extra)))
+                    .build();
+
+            HttpResponse.BodyHandler<Void> handler = responseInfo -> {
+                if (responseInfo.statusCode() >= 200 && responseInfo.statusCode() < 300) {
+                    return HttpResponse.BodySubscribers.fromLineSubscriber(stream);
+                }
+                return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8),
+                        body -> {
+                            logger.error("{} API Error: Status={}, Body={}", name, responseInfo.statusCode(), body);
+                            stream.fail(new LlmApiException(name + " API Error: " + body, responseInfo.statusCode(),
+                                    retryAfterMs(responseInfo.headers())));
+                            return null;
+                        });
+            };
+            stream.response = httpClient.sendAsync(request, handler);
+            stream.response.whenComplete((response, error) -> {
+                if (error != null) {
+                    stream.fail(error);
+                }
+            });
+            if (stream.cancelled) {
+                // Cancelled while the request was being sent
+                stream.response.cancel(true);
+            }
+        } catch (Exception e) {
+            stream.fail(new RuntimeException("Failed to build " + name + " request: " + e.getMessage(), e));
+        }
+    }
+
+    private String buildRequestBody(String model, List<Map<String, String>> messages, boolean jsonResponse,
+            double temperature) throws Exception {
+        return buildRequestBody(model, messages, jsonResponse, temperature, Map.of());
+    }
+
+    private String buildRequestBody(String model, List<Map<String, String>> messages, boolean jsonResponse,
+            double temperature, Map<String, Object> extra) throws Exception {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("messages", messages);
+        requestBody.put("temperature", temperature);
+        requestBody.putAll(extra);
+
+        if (jsonResponse) {
+            Map<String, String> responseFormat = new HashMap<>();
+            responseFormat.put("type", "json_object");
+            requestBody.put("response_format", responseFormat);
+        }
+        return objectMapper.writeValueAsString(requestBody);
+    }
+
+    private Completion extractCompletion(HttpResponse<String> response) {
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            logger.error("{} API Error: Status={}, Body={}", name, response.statusCode(), response.body());
+            throw new LlmApiException(name + " API Error: " + response.body(), response.statusCode(),
+                    retryAfterMs(response.headers()));
+        }
+
+        try {
+            JsonNode root = objectMapper.readTree(response.body());
+            JsonNode content = root.path("choices").path(0).path("message").path("content");
+            JsonNode usage = root.path("usage");
+            return new Completion(content.isMissingNode() || content.isNull() ? null : content.asText(),
+                    root.path("model").asText(null),
+                    usage.path("prompt_tokens").asInt(0), usage.path("completion_tokens").asInt(0));
+        } catch (Exception e) {
+            throw new RuntimeException("Invalid " + name + " response: " + e.getMessage(), e);
+        }
+    }
+
+    // Retry-After in seconds (Groq may send fractions), -1 when missing or an HTTP date
+    private static long retryAfterMs(HttpHeaders headers) {
+        return headers.firstValue("retry-after").map(value -> {
+            try {
+                return (long) (Double.parseDouble(value.trim()) * 1000);
+            } catch (NumberFormatException e) {
+                return -1L;
+            }
+        }).orElse(-1L);
+    }
+
+    /**
+     * First choice of a completion with the model that answered and its token usage (0 when not reported)
+     */
+    public record Completion(String content, String model, int promptTokens, int completionTokens) {
+    }
+
+    /**
+     * Receives streamed tokens. Called on HttpClient threads, one call at a time.
+     */
+    public interface TokenListener {
+        void onToken(String token) throws Exception;
+
+        void onComplete();
+
+        void onError(Throwable error);
+
+        /**
+         * Token usage, if the server sends it in the stream (before onComplete)
+         */
+        default void onUsage(String model, int promptTokens, int completionTokens) {
+        }
+    }
+
+    /**
+     * Line subscriber for an SSE completion stream (data: {...} lines, ends with data: [DONE])
+     */
+    public static class TokenStream implements Flow.Subscriber<String> {
+
+        private final TokenListener listener;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+        private final CompletableFuture<Void> cancellation = new CompletableFuture<>();
+        private volatile boolean cancelled = false;
+        private volatile Flow.Subscription subscription;
+        private volatile CompletableFuture<HttpResponse<Void>> response;
+
+        TokenStream(TokenListener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Stream that never started, the listener gets the error right away
+         */
+        static TokenStream failed(TokenListener listener, Throwable error) {
+            TokenStream stream = new TokenStream(listener);
+            stream.fail(error);
+            return stream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (cancelled) {
+                subscription.cancel();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (cancelled || finished.get()) {
+                return;
+            }
+            try {
+                if (line.startsWith("data:")) {
+                    String payload = line.substring(5).trim();
+                    if ("[DONE]".equals(payload)) {
+                        complete();
+                        return;
+                    }
+                    JsonNode chunk = objectMapper.readTree(payload);
+                    JsonNode delta = chunk.path("choices").path(0).path("delta").path("content");
+                    if (!delta.isMissingNode() && !delta.isNull() && !delta.asText().isEmpty()) {
+                        listener.onToken(delta.asText());
+                    }
+                    // OpenAI/Ollama put usage on the last chunk, Groq under x_groq
+                    JsonNode usage = chunk.has("usage") ? chunk.path("usage") : chunk.path("x_groq").path("usage");
+                    if (usage.isObject()) {
+                        listener.onUsage(chunk.path("model").asText(null), usage.path("prompt_tokens").asInt(0),
+                                usage.path("completion_tokens").asInt(0));
+                    }
+                }
+                subscription.request(1);
+            } catch (Exception e) {
+                // Listener failed (client gone): stop reading upstream
+                cancel();
+                fail(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            fail(error);
+        }
+
+        @Override
+        public void onComplete() {
+            complete();
+        }
+
+        /**
+         * Stop reading and abort the upstream request
+         */
+        public void cancel() {
+            cancelled = true;
+            cancellation.complete(null);
+            Flow.Subscription s = subscription;
+            if (s != null) {
+                s.cancel();
+            }
+            CompletableFuture<HttpResponse<Void>> r = response;
+            if (r != null) {
+                r.cancel(true);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Run once the stream is cancelled (right away if it already is); the listener is not told about a cancel
+         */
+        void whenCancelled(Runnable action) {
+            cancellation.thenRun(action);
+        }
+
+        void fail(Throwable error) {
+            if (finished.compareAndSet(false, true) && !cancelled) {
+                listener.onError(error);
+            }
+        }
+
+        private void complete() {
+            if (finished.compareAndSet(false, true)) {
+                listener.onComplete();
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.ingilizce.calismaapp.service;
+
+import com.ingilizce.calismaapp.model.LlmOperation;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * LlmProvider for an OpenAI compatible /chat/completions endpoint (Groq, Ollama's /v1 API)
+ * Calls, streamed ones included, go through the admission controller when one is given (rate limited APIs).
+ * Every HTTP call is reported to the usage tracker with its tokens and latency.
+ */
+public class OpenAiCompatibleProvider implements LlmProvider {
+
+    private final OpenAiCompatibleClient client;
+    private final String model;
+    private final LlmAdmissionController admissionController;
+    private final LlmUsageTracker usageTracker;
+
+    public OpenAiCompatibleProvider(String name, String apiUrl, String apiKey, String model, Duration connectTimeout,
+            boolean insecureTls, LlmAdmissionController admissionController, LlmUsageTracker usageTracker) {
+        this.client = new OpenAiCompatibleClient(name, apiUrl, apiKey, connectTimeout, insecureTls);
+        this.model = model;
+        this.admissionController = admissionController;
+        this.usageTracker = usageTracker;
+    }
+
+    @Override
+    public String getName() {
+        return client.getName();
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    @Override
+    public CompletableFuture<String> chatCompletionAsync(List<Map<String, String>> messages, boolean jsonResponse,
+            double temperature, LlmOperation operation, Runnable onSent) {
+        if (admissionController == null) {
+            onSent.run();
+            return call(messages, jsonResponse, temperature, operation);
+        }
+        return admissionController.submit(operation, () -> {
+            onSent.run();
+            return call(messages, jsonResponse, temperature, operation);
+        });
+    }
+
+    @Override
+    public OpenAiCompatibleClient.TokenStream streamChatCompletion(List<Map<String, String>> messages,
+            double temperature, LlmOperation operation, Runnable onSent,
+            OpenAiCompatibleClient.TokenListener listener) {
+        AtomicLong sentAt = new AtomicLong();
+        OpenAiCompatibleClient.TokenListener tracked = withUsage(operation, sentAt, listener);
+        if (admissionController == null) {
+            sentAt.set(System.nanoTime());
+            onSent.run();
+            return client.streamChatCompletion(model, messages, temperature, operation.getReadTimeout(), tracked);
+        }
+
+        // Holds an admission permit like the other calls, given back when the stream completes, fails or is cancelled
+        CompletableFuture<Long> permit = admissionController.acquireStream(operation);
+        AtomicBoolean released = new AtomicBoolean(false);
+        Consumer<Throwable> release = error -> {
+            if (released.compareAndSet(false, true)) {
+                admissionController.releaseStream(operation, permit.join(), error);
+            }
+        };
+        OpenAiCompatibleClient.TokenStream stream = new OpenAiCompatibleClient.TokenStream(
+                new OpenAiCompatibleClient.TokenListener() {
+                    @Override
+                    public void onToken(String token) throws Exception {
+                        tracked.onToken(token);
+                    }
+
+                    @Override
+                    public void onUsage(String responseModel, int promptTokens, int completionTokens) {
+                        tracked.onUsage(responseModel, promptTokens, completionTokens);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        release.accept(null);
+                        tracked.onComplete();
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        if (!permit.isDone() || permit.isCompletedExceptionally()) {
+                            // Not admitted, nothing was sent
+                            listener.onError(error);
+                            return;
+                        }
+                        release.accept(error);
+                        tracked.onError(error);
+                    }
+                });
+        stream.whenCancelled(() -> permit.cancel(false));
+        permit.whenComplete((startNanos, error) -> {
+            if (error != null) {
+                stream.fail(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                return;
+            }
+            sentAt.set(System.nanoTime());
+            stream.whenCancelled(() -> release.accept(new CancellationException()));
+            if (stream.isCancelled()) {
+                return;
+            }
+            onSent.run();
+            client.start(stream, model, messages, temperature, operation.getReadTimeout());
+        });
+        return stream;
+    }
+
+    // Reports the stream to the usage tracker, timed from sentAt
+    private OpenAiCompatibleClient.TokenListener withUsage(LlmOperation operation, AtomicLong sentAt,
+            OpenAiCompatibleClient.TokenListener listener) {
+        if (usageTracker == null) {
+            return listener;
+        }
+        return new OpenAiCompatibleClient.TokenListener() {
+            private String usageModel;
+            private int promptTokens;
+            private int completionTokens;
+
+            @Override
+            public void onToken(String token) throws Exception {
+                listener.onToken(token);
+            }
+
+            @Override
+            public void onUsage(String responseModel, int prompt, int completion) {
+                usageModel = responseModel;
+                promptTokens = prompt;
+                completionTokens = completion;
+                listener.onUsage(responseModel, prompt, completion);
+            }
+
+            @Override
+            public void onComplete() {
+                usageTracker.recordSuccess(operation, getName(), usageModel != null ? usageModel : model,
+                        elapsedMs(sentAt.get()), promptTokens, completionTokens);
+                listener.onComplete();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                usageTracker.recordFailure(operation, getName(), model, elapsedMs(sentAt.get()), false);
+                listener.onError(error);
+            }
+        };
+    }
+
+    // One HTTP call; cancelling the returned future aborts the exchange
+    private CompletableFuture<String> call(List<Map<String, String>> messages, boolean jsonResponse,
+            double temperature, LlmOperation operation) {
+        long start = System.nanoTime();
+        CancellableCall running = new CancellableCall();
+        CompletableFuture<OpenAiCompatibleClient.Completion> upstream = running.register(
+                client.chatCompletionAsync(model, messages, jsonResponse, temperature, operation.getReadTimeout()));
+        if (usageTracker != null) {
+            upstream.whenComplete((completion, error) -> {
+                if (error == null) {
+                    usageTracker.recordSuccess(operation, getName(),
+                            completion.model() != null ? completion.model() : model, elapsedMs(start),
+                            completion.promptTokens(), completion.completionTokens());
+                } else {
+                    usageTracker.recordFailure(operation, getName(), model, elapsedMs(start),
+                            error instanceof CancellationException
+                                    || error.getCause() instanceof CancellationException);
+                }
+            });
+        }
+        return CancellableCall.linkTo(upstream.thenApply(OpenAiCompatibleClient.Completion::content), running);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
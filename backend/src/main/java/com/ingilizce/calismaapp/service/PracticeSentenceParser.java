@@ -0,0 +1,28 @@
+package com.ingilizce.calismaapp.service;
+
+import com.ingilizce.calismaapp.dto.PracticeSentence;
+import com.ingilizce.calismaapp.util.LlmJsonExtractor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Turns the LLM answer of ChatbotService.generateSentences into PracticeSentence objects
+ * (moved out of ChatbotController so the sentence pool can use it too).
+ * Parsing itself is a single streaming pass, see LlmJsonExtractor.
+ */
+@Component
+public class PracticeSentenceParser {
+
+    public List<PracticeSentence> parse(String jsonResponse) {
+        try {
+            return LlmJsonExtractor.practiceSentences(jsonResponse);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error parsing JSON: " + e.getMessage());
+            System.err.println("JSON response (first 500 chars): " + (jsonResponse != null && jsonResponse.length() > 500
+                    ? jsonResponse.substring(0, 500) + "..."
+                    : jsonResponse));
+            throw new RuntimeException("Failed to parse LLM response: " + e.getMessage(), e);
+        }
+    }
+}
@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class ProgressService {
@@ -38,16 +39,30 @@ public class ProgressService {
     @Autowired
     private WordReviewRepository reviewRepository;
 
+    // Primary key of the user's progress row. Looking it up by id hits the L2 entity
+    // cache, while findByUserId would be invalidated by every XP update.
+    private volatile Long progressId;
+
     /**
      * Get or create user progress
      */
     public UserProgress getUserProgress() {
-        return progressRepository.findByUserId(DEFAULT_USER_ID)
+        Long id = progressId;
+        if (id != null) {
+            Optional<UserProgress> cached = progressRepository.findById(id);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
+        UserProgress progress = progressRepository.findByUserId(DEFAULT_USER_ID)
                 .orElseGet(() -> {
-                    UserProgress progress = new UserProgress();
-                    progress.setUserId(DEFAULT_USER_ID);
-                    return progressRepository.save(progress);
+                    UserProgress created = new UserProgress();
+                    created.setUserId(DEFAULT_USER_ID);
+                    return progressRepository.save(created);
                 });
+        progressId = progress.getId();
+        return progress;
     }
 
     /**
@@ -0,0 +1,97 @@
+package com.ingilizce.calismaapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * word_reviews partition maintenance (see V009)
+ * Keeps monthly partitions created ahead of time and moves months older than the
+ * archive horizon into word_reviews_archive. The partition DDL itself lives in the
+ * word_reviews_ensure_partition / word_reviews_archive_partition SQL functions.
+ */
+@Service
+public class ReviewPartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReviewPartitionService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${review.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${review.partitions.archive-after-months:24}")
+    private int archiveAfterMonths;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        maintain();
+    }
+
+    /**
+     * Create upcoming partitions and archive old ones (daily by default)
+     */
+    @Scheduled(cron = "${review.partitions.maintenance-cron:0 30 3 * * *}")
+    public synchronized Map<String, Object> maintain() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        try {
+            LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+
+            int created = 0;
+            for (int i = 0; i <= monthsAhead; i++) {
+                if (ensurePartition(thisMonth.plusMonths(i))) {
+                    created++;
+                }
+            }
+
+            int archivedMonths = 0;
+            long archivedRows = 0;
+            LocalDate horizon = thisMonth.minusMonths(archiveAfterMonths);
+            LocalDate oldest = jdbcTemplate.queryForObject("SELECT MIN(review_date) FROM word_reviews", LocalDate.class);
+            if (oldest != null) {
+                for (LocalDate month = oldest.withDayOfMonth(1); month.isBefore(horizon); month = month.plusMonths(1)) {
+                    // Old rows may still sit in the default partition, give them a partition first
+                    ensurePartition(month);
+                    Integer rows = jdbcTemplate.queryForObject("SELECT word_reviews_archive_partition(?)",
+                            Integer.class, Date.valueOf(month));
+                    if (rows != null && rows > 0) {
+                        archivedMonths++;
+                        archivedRows += rows;
+                    }
+                }
+            }
+
+            result.put("partitionsCreated", created);
+            result.put("monthsArchived", archivedMonths);
+            result.put("reviewsArchived", archivedRows);
+            result.put("archiveHorizon", horizon.toString());
+            if (created > 0 || archivedMonths > 0) {
+                logger.info("word_reviews partitions: created={}, archivedMonths={}, archivedRows={}",
+                        created, archivedMonths, archivedRows);
+            }
+        } catch (Exception e) {
+            // Schema not migrated yet (V009) or a lock timeout, retried on the next run
+            logger.warn("word_reviews partition maintenance failed: {}", e.getMessage());
+            result.put("error", e.getMessage());
+        }
+        return result;
+    }
+
+    private boolean ensurePartition(LocalDate month) {
+        Boolean created = jdbcTemplate.queryForObject("SELECT word_reviews_ensure_partition(?)",
+                Boolean.class, Date.valueOf(month));
+        return Boolean.TRUE.equals(created);
+    }
+}
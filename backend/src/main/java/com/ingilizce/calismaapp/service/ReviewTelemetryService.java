@@ -0,0 +1,286 @@
+package com.ingilizce.calismaapp.service;
+
+import com.ingilizce.calismaapp.entity.WordReview;
+import com.ingilizce.calismaapp.repository.WordRepository;
+import com.ingilizce.calismaapp.repository.WordReviewRepository;
+import com.ingilizce.calismaapp.util.LatencySketch;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Review telemetry pipeline
+ * Per-card results (quality, correctness, response time) are queued in memory and
+ * written to word_reviews in batched inserts by a scheduled flush.
+ * Accuracy and latency percentiles are kept in streaming counters/sketches, so the
+ * stats endpoints never scan the reviews table. The counters are loaded from the results
+ * already in word_reviews (one grouped query) when the application starts.
+ */
+@Service
+public class ReviewTelemetryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReviewTelemetryService.class);
+
+    @Autowired
+    private WordReviewRepository wordReviewRepository;
+
+    @Autowired
+    private WordRepository wordRepository;
+
+    @Autowired
+    private WordReviewService wordReviewService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${review.telemetry.batch-size:500}")
+    private int batchSize;
+
+    private final BlockingQueue<PendingReview> queue;
+
+    // Aggregates of the stored results plus everything recorded since startup
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder answered = new LongAdder();
+    private final LongAdder correct = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLongArray qualityCounts = new AtomicLongArray(6);
+    private final LatencySketch responseTimes = new LatencySketch();
+
+    public ReviewTelemetryService(@Value("${review.telemetry.queue-capacity:10000}") int queueCapacity) {
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * One review result; invalid values are rejected when the event is created
+     */
+    public record ReviewEvent(Long wordId, LocalDate reviewDate, Integer quality, Boolean wasCorrect,
+            Long responseTimeMs, String reviewType) {
+
+        public ReviewEvent {
+            if (wordId == null) {
+                throw new IllegalArgumentException("wordId is required");
+            }
+            if (quality != null && (quality < 0 || quality > 5)) {
+                throw new IllegalArgumentException("Quality must be between 0 and 5");
+            }
+            // Rows with a result are told apart from manual reviews (WordReviewService.addReview) by it
+            if (quality == null && wasCorrect == null) {
+                throw new IllegalArgumentException("quality or wasCorrect is required");
+            }
+            if (reviewDate == null) {
+                reviewDate = LocalDate.now();
+            }
+            if (reviewType == null) {
+                reviewType = "practice";
+            }
+        }
+    }
+
+    /**
+     * Load the stored results into the counters, so stats do not start from zero after a restart.
+     * Response times are stored in whole seconds, older samples are therefore coarser.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadStoredStats() {
+        try {
+            long rows = 0;
+            for (Object[] row : wordReviewRepository.countTelemetryResults()) {
+                Integer quality = (Integer) row[0];
+                Boolean wasCorrect = (Boolean) row[1];
+                Integer responseTimeSeconds = (Integer) row[2];
+                long count = (Long) row[3];
+
+                rows += count;
+                if (quality != null && quality >= 0 && quality <= 5) {
+                    qualityCounts.addAndGet(quality, count);
+                }
+                if (wasCorrect != null) {
+                    answered.add(count);
+                    if (wasCorrect) {
+                        correct.add(count);
+                    }
+                }
+                if (responseTimeSeconds != null && responseTimeSeconds >= 0) {
+                    responseTimes.record(responseTimeSeconds * 1000L, count);
+                }
+            }
+            recorded.add(rows);
+            logger.info("Review telemetry stats loaded from {} stored results", rows);
+        } catch (Exception e) {
+            logger.warn("Could not load stored review telemetry stats: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Queue a result of the current transaction once it commits (right away without a transaction)
+     */
+    public void recordAfterCommit(ReviewEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(event);
+            }
+        });
+    }
+
+    /**
+     * Queue one review result. Returns false if the buffer is full (result is still counted in the stats)
+     */
+    public boolean record(ReviewEvent event) {
+        Long wordId = event.wordId();
+        Integer quality = event.quality();
+        Boolean wasCorrect = event.wasCorrect();
+        Long responseTimeMs = event.responseTimeMs();
+
+        recorded.increment();
+        if (quality != null) {
+            qualityCounts.incrementAndGet(quality);
+        }
+        if (wasCorrect != null) {
+            answered.increment();
+            if (wasCorrect) {
+                correct.increment();
+            }
+        }
+        if (responseTimeMs != null && responseTimeMs >= 0) {
+            responseTimes.record(responseTimeMs);
+        }
+
+        PendingReview pending = new PendingReview(wordId, event.reviewDate(), quality, wasCorrect, responseTimeMs,
+                event.reviewType());
+        if (!queue.offer(pending)) {
+            dropped.increment();
+            logger.warn("Review telemetry buffer full, dropping review of word {}", wordId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Write queued reviews in batches (runs until the queue is drained)
+     */
+    @Scheduled(fixedDelayString = "${review.telemetry.flush-interval-ms:2000}")
+    public synchronized void flush() {
+        List<PendingReview> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                writeBatch(batch);
+            } catch (Exception e) {
+                logger.error("Failed to write {} review telemetry rows: {}", batch.size(), e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void writeBatch(List<PendingReview> batch) {
+        Set<Long> wordIds = new HashSet<>();
+        for (PendingReview pending : batch) {
+            wordIds.add(pending.wordId);
+        }
+        // Words deleted since the result was queued would fail the whole batch on the foreign key
+        Set<Long> existing = new HashSet<>(wordRepository.findExistingIds(wordIds));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<WordReview> reviews = new ArrayList<>(batch.size());
+            // Sorted so row locks for the bitmaps are always taken in the same order
+            Map<Long, Set<LocalDate>> datesByWord = new TreeMap<>();
+            for (PendingReview pending : batch) {
+                if (!existing.contains(pending.wordId)) {
+                    continue;
+                }
+                WordReview review = new WordReview(wordRepository.getReferenceById(pending.wordId), pending.reviewDate);
+                review.setReviewType(pending.reviewType);
+                review.setQuality(pending.quality);
+                review.setWasCorrect(pending.wasCorrect);
+                if (pending.responseTimeMs != null) {
+                    review.setResponseTimeSeconds((int) Math.round(pending.responseTimeMs / 1000.0));
+                }
+                reviews.add(review);
+                datesByWord.computeIfAbsent(pending.wordId, k -> new HashSet<>()).add(pending.reviewDate);
+            }
+
+            wordReviewRepository.saveAll(reviews);
+            datesByWord.forEach(wordReviewService::markReviewed);
+        });
+
+        logger.debug("Flushed {} review telemetry rows", batch.size());
+    }
+
+    /**
+     * Accuracy, quality distribution and response time percentiles of all recorded results
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long answeredCount = answered.sum();
+        stats.put("reviewsRecorded", recorded.sum());
+        stats.put("accuracy", answeredCount == 0 ? null : Math.round(correct.sum() * 1000.0 / answeredCount) / 1000.0);
+
+        Map<Integer, Long> qualities = new LinkedHashMap<>();
+        for (int q = 0; q < qualityCounts.length(); q++) {
+            qualities.put(q, qualityCounts.get(q));
+        }
+        stats.put("qualityDistribution", qualities);
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("count", responseTimes.getCount());
+        latency.put("meanMs", Math.round(responseTimes.getMean()));
+        latency.put("p50Ms", responseTimes.quantile(0.50));
+        latency.put("p90Ms", responseTimes.quantile(0.90));
+        latency.put("p99Ms", responseTimes.quantile(0.99));
+        stats.put("responseTime", latency);
+
+        stats.put("pendingWrites", queue.size());
+        stats.put("dropped", dropped.sum());
+        return stats;
+    }
+
+    private static class PendingReview {
+        final Long wordId;
+        final LocalDate reviewDate;
+        final Integer quality;
+        final Boolean wasCorrect;
+        final Long responseTimeMs;
+        final String reviewType;
+
+        PendingReview(Long wordId, LocalDate reviewDate, Integer quality, Boolean wasCorrect,
+                Long responseTimeMs, String reviewType) {
+            this.wordId = wordId;
+            this.reviewDate = reviewDate;
+            this.quality = quality;
+            this.wasCorrect = wasCorrect;
+            this.responseTimeMs = responseTimeMs;
+            this.reviewType = reviewType;
+        }
+    }
+}
@@ -26,6 +26,9 @@ public class SRSService {
     @Autowired
     private ProgressService progressService;
 
+    @Autowired
+    private ReviewTelemetryService reviewTelemetryService;
+
     // SM-2 Algorithm Constants
     private static final double MIN_EASE_FACTOR = 1.3;
     private static final int INITIAL_INTERVAL = 1; // days
@@ -62,6 +65,16 @@ public class SRSService {
      */
     @Transactional
     public Word submitReview(Long wordId, int quality) {
+        return submitReview(wordId, quality, null);
+    }
+
+    /**
+     * Submit a review result together with the time the user needed to answer
+     * 
+     * @param responseTimeMs Answer time in milliseconds, may be null
+     */
+    @Transactional
+    public Word submitReview(Long wordId, int quality, Long responseTimeMs) {
         if (quality < 0 || quality > 5) {
             throw new IllegalArgumentException("Quality must be between 0 and 5");
         }
@@ -119,6 +132,11 @@ public class SRSService {
         progressService.awardXp(xpEarned, "Review: " + word.getEnglishWord() + " (Quality: " + quality + ")");
         progressService.updateStreak(); // Update daily streak
 
+        // Quality >= 3 counts as a correct recall in SM-2; queued only if this transaction commits
+        reviewTelemetryService.recordAfterCommit(
+                new ReviewTelemetryService.ReviewEvent(wordId, LocalDate.now(), quality, quality >= 3, responseTimeMs,
+                        "srs"));
+
         return savedWord;
     }
 
@@ -208,6 +226,9 @@ public class SRSService {
         List<Word> reviewedWords = wordRepository.findByReviewCountGreaterThan(0);
         stats.put("reviewedWords", reviewedWords.size());
 
+        // Accuracy and response time percentiles (streaming, no table scan)
+        stats.put("telemetry", reviewTelemetryService.getStats());
+
         logger.info("SRS Stats: dueToday={}, totalWords={}, reviewedWords={}",
                 dueToday.size(), totalWords, reviewedWords.size());
 
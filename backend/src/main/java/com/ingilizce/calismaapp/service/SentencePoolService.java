@@ -0,0 +1,283 @@
+package com.ingilizce.calismaapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ingilizce.calismaapp.dto.PracticeSentence;
+import com.ingilizce.calismaapp.model.LlmOperation;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pre-generated practice sentence pools
+ * For each (word, level, length) Redis keeps a set of 20-50 generated sentences.
+ * Requests draw a random subset the user has not seen yet, so answers stay varied
+ * without an LLM round trip. Pools below the low watermark are refilled in the background.
+ *
+ * Keys:
+ * sentencepool:{word}:{level}:{length} -> set of PracticeSentence JSON
+ * sentencepool:seen:{userId}:{word}:{level}:{length} -> members already served to the user
+ */
+@Service
+public class SentencePoolService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SentencePoolService.class);
+
+    private static final String POOL_KEY_PREFIX = "sentencepool:";
+    private static final String SEEN_KEY_PREFIX = "sentencepool:seen:";
+    private static final int GENERATION_BATCH_SIZE = 10;
+
+    @Autowired
+    private ChatbotService chatbotService;
+
+    @Autowired
+    private PracticeSentenceParser practiceSentenceParser;
+
+    @Autowired(required = false)
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${sentences.pool.target-size:40}")
+    private int targetSize;
+
+    @Value("${sentences.pool.low-watermark:20}")
+    private int lowWatermark;
+
+    @Value("${cache.sentences.ttl:604800}") // Default: 7 days
+    private long poolTtlSeconds;
+
+    @Value("${sentences.pool.seen-ttl-seconds:604800}")
+    private long seenTtlSeconds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Set<String> refillsInFlight = ConcurrentHashMap.newKeySet();
+    // Redis writes after a background generation completes (keeps them off HttpClient threads)
+    private final ExecutorService refillExecutor = Executors.newFixedThreadPool(2);
+
+    public record PoolDraw(List<PracticeSentence> sentences, boolean fromPool) {
+    }
+
+    private record ColdDraw(String poolKey, String seenKey, String level, String length, int needed,
+            List<PracticeSentence> drawn, CompletableFuture<List<PracticeSentence>> generation) {
+    }
+
+    public boolean isAvailable() {
+        return redisTemplate != null;
+    }
+
+    /**
+     * Draw sentences for a word, spread over the requested level/length combinations
+     *
+     * @param userId           Sentences already served to this user are skipped until the pool is exhausted
+     * @param count            Total number of sentences
+     * @param beforeGeneration Run once before the first LLM request of a pool miss (e.g. the user's rate limit);
+     *                         if it throws, the draw fails and no sentence is marked as seen
+     * @return The drawn sentences; fewer than count when a pool was short and its generation failed
+     * @throws RuntimeException The generation error when nothing could be drawn at all, Redis errors as they are
+     */
+    public PoolDraw draw(String userId, String word, List<String> levels, List<String> lengths, int count,
+            Runnable beforeGeneration) {
+        List<String[]> combinations = new ArrayList<>();
+        for (String level : levels) {
+            for (String length : lengths) {
+                combinations.add(new String[] { level, length });
+            }
+        }
+        Collections.shuffle(combinations);
+
+        // Round robin so every combination gets its share (the first ones get the remainder)
+        Map<String[], Integer> perCombination = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            perCombination.merge(combinations.get(i % combinations.size()), 1, Integer::sum);
+        }
+
+        // Draw from every pool first; cold pools are generated concurrently and waited for once,
+        // so a cold request costs one LLM round trip however many combinations it spans
+        List<ColdDraw> cold = new ArrayList<>();
+        Map<String, List<PracticeSentence>> hits = new LinkedHashMap<>();
+        List<PracticeSentence> sentences = new ArrayList<>();
+        for (Map.Entry<String[], Integer> entry : perCombination.entrySet()) {
+            String level = entry.getKey()[0];
+            String length = entry.getKey()[1];
+            int needed = entry.getValue();
+
+            String poolKey = POOL_KEY_PREFIX + word + ":" + level + ":" + length;
+            String seenKey = SEEN_KEY_PREFIX + userId + ":" + word + ":" + level + ":" + length;
+
+            List<PracticeSentence> drawn = drawFromPool(poolKey, seenKey, needed);
+            if (drawn.size() < needed) {
+                if (cold.isEmpty()) {
+                    beforeGeneration.run();
+                }
+                // Stored by the generation itself, so a failed sibling does not lose this batch
+                CompletableFuture<List<PracticeSentence>> generation = generate(word, level, length,
+                        GENERATION_BATCH_SIZE, LlmOperation.GENERATE_SENTENCES)
+                        .thenApplyAsync(generated -> {
+                            addToPool(poolKey, generated);
+                            return generated;
+                        }, refillExecutor);
+                cold.add(new ColdDraw(poolKey, seenKey, level, length, needed, drawn, generation));
+            } else {
+                hits.put(seenKey, drawn);
+                sentences.addAll(drawn);
+                refillIfLow(poolKey, word, level, length);
+            }
+        }
+
+        RuntimeException generationFailure = null;
+        for (ColdDraw draw : cold) {
+            List<PracticeSentence> drawn = draw.drawn();
+            List<PracticeSentence> generated;
+            try {
+                generated = GroqService.await(draw.generation());
+            } catch (RuntimeException e) {
+                // Serve what the pool had; the caller must not retry the generation
+                logger.warn("Generating sentences for {} failed, serving {} pooled: {}", draw.poolKey(),
+                        drawn.size(), e.getMessage());
+                generationFailure = e;
+                generated = List.of();
+            }
+            for (PracticeSentence sentence : generated) {
+                if (drawn.size() >= draw.needed()) {
+                    break;
+                }
+                if (!drawn.contains(sentence)) {
+                    drawn.add(sentence);
+                }
+            }
+            markSeen(draw.seenKey(), drawn);
+            sentences.addAll(drawn);
+
+            // The rest of the pool is filled in the background
+            refillIfLow(draw.poolKey(), word, draw.level(), draw.length());
+        }
+        if (sentences.isEmpty() && generationFailure != null) {
+            throw generationFailure;
+        }
+        hits.forEach(this::markSeen);
+        boolean fromPool = cold.isEmpty();
+
+        Collections.shuffle(sentences);
+        return new PoolDraw(sentences, fromPool);
+    }
+
+    private List<PracticeSentence> drawFromPool(String poolKey, String seenKey, int needed) {
+        List<Object> candidates = new ArrayList<>(nullToEmpty(redisTemplate.opsForSet().difference(poolKey, seenKey)));
+        if (candidates.size() < needed) {
+            // User has seen (almost) the whole pool: start a new round
+            Set<Object> all = redisTemplate.opsForSet().members(poolKey);
+            if (all != null && all.size() >= needed) {
+                redisTemplate.delete(seenKey);
+                candidates = new ArrayList<>(all);
+            }
+        }
+
+        Collections.shuffle(candidates);
+        List<PracticeSentence> drawn = new ArrayList<>();
+        for (Object member : candidates.subList(0, Math.min(needed, candidates.size()))) {
+            try {
+                drawn.add(objectMapper.readValue(member.toString(), PracticeSentence.class));
+            } catch (Exception e) {
+                redisTemplate.opsForSet().remove(poolKey, member);
+            }
+        }
+        // Marked as seen by the caller once the draw cannot fail any more
+        return drawn;
+    }
+
+    private void markSeen(String seenKey, List<PracticeSentence> sentences) {
+        if (sentences.isEmpty()) {
+            return;
+        }
+        redisTemplate.opsForSet().add(seenKey, toMembers(sentences));
+        redisTemplate.expire(seenKey, Duration.ofSeconds(seenTtlSeconds));
+    }
+
+    private void addToPool(String poolKey, List<PracticeSentence> sentences) {
+        if (sentences.isEmpty()) {
+            return;
+        }
+        redisTemplate.opsForSet().add(poolKey, toMembers(sentences));
+        redisTemplate.expire(poolKey, Duration.ofSeconds(poolTtlSeconds));
+    }
+
+    private void refillIfLow(String poolKey, String word, String level, String length) {
+        Long size = redisTemplate.opsForSet().size(poolKey);
+        long current = size != null ? size : 0;
+        if (current >= lowWatermark || !refillsInFlight.add(poolKey)) {
+            return;
+        }
+
+        int batches = (int) Math.ceil((targetSize - current) / (double) GENERATION_BATCH_SIZE);
+        logger.info("Refilling sentence pool {} ({} sentences, {} batches)", poolKey, current, batches);
+
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (int i = 0; i < batches; i++) {
+            pending.add(generate(word, level, length, GENERATION_BATCH_SIZE, LlmOperation.SENTENCE_POOL_REFILL)
+                    .thenAcceptAsync(sentences -> addToPool(poolKey, sentences), refillExecutor));
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]))
+                .whenComplete((ignored, error) -> {
+                    refillsInFlight.remove(poolKey);
+                    if (error != null) {
+                        logger.warn("Sentence pool refill for {} failed: {}", poolKey, error.getMessage());
+                    }
+                });
+    }
+
+    private CompletableFuture<List<PracticeSentence>> generate(String word, String level, String length, int count,
+            LlmOperation operation) {
+        String message = String.format("Target word: '%s'.\n"
+                + "Generate %d diverse sentences, all at Level: %s, Length: %s.\n"
+                + "Make sentences diverse and cover different meanings if the word has multiple meanings.",
+                word, count, level, length);
+        return chatbotService.generateSentencesAsync(message, count, operation)
+                .thenApply(practiceSentenceParser::parse)
+                .thenApply(sentences -> {
+                    List<PracticeSentence> valid = new ArrayList<>();
+                    for (PracticeSentence sentence : sentences) {
+                        if (sentence != null && sentence.englishSentence() != null
+                                && !sentence.englishSentence().isBlank()) {
+                            valid.add(sentence);
+                        }
+                    }
+                    return valid;
+                });
+    }
+
+    private Object[] toMembers(List<PracticeSentence> sentences) {
+        List<String> members = new ArrayList<>();
+        for (PracticeSentence sentence : sentences) {
+            try {
+                members.add(objectMapper.writeValueAsString(sentence));
+            } catch (Exception e) {
+                logger.warn("Could not serialize practice sentence: {}", e.getMessage());
+            }
+        }
+        return members.toArray();
+    }
+
+    private static Collection<Object> nullToEmpty(Set<Object> set) {
+        return set != null ? set : Collections.emptySet();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refillExecutor.shutdown();
+    }
+}
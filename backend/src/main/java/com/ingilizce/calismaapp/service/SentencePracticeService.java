@@ -15,6 +15,9 @@ public class SentencePracticeService {
     @Autowired
     private SentencePracticeRepository sentencePracticeRepository;
     
+    @Autowired
+    private SentenceStatsService sentenceStatsService;
+    
     // Get all sentences
     public List<SentencePractice> getAllSentences() {
         return sentencePracticeRepository.findAllByOrderByCreatedDateDesc();
@@ -27,7 +30,19 @@ public class SentencePracticeService {
     
     // Save a new sentence
     public SentencePractice saveSentence(SentencePractice sentencePractice) {
-        return sentencePracticeRepository.save(sentencePractice);
+        Optional<SentencePractice> existing = sentencePractice.getId() != null
+                ? sentencePracticeRepository.findById(sentencePractice.getId())
+                : Optional.empty();
+        SentencePractice.DifficultyLevel previousDifficulty = existing.map(SentencePractice::getDifficulty).orElse(null);
+        
+        SentencePractice saved = sentencePracticeRepository.save(sentencePractice);
+        
+        if (existing.isPresent()) {
+            sentenceStatsService.onPracticeSentenceChanged(previousDifficulty, saved.getDifficulty());
+        } else {
+            sentenceStatsService.onPracticeSentenceAdded(saved.getDifficulty());
+        }
+        return saved;
     }
     
     // Update an existing sentence
@@ -35,18 +50,23 @@ public class SentencePracticeService {
         Optional<SentencePractice> existingSentence = sentencePracticeRepository.findById(id);
         if (existingSentence.isPresent()) {
             SentencePractice sentence = existingSentence.get();
+            SentencePractice.DifficultyLevel previousDifficulty = sentence.getDifficulty();
             sentence.setEnglishSentence(updatedSentence.getEnglishSentence());
             sentence.setTurkishTranslation(updatedSentence.getTurkishTranslation());
             sentence.setDifficulty(updatedSentence.getDifficulty());
-            return sentencePracticeRepository.save(sentence);
+            SentencePractice saved = sentencePracticeRepository.save(sentence);
+            sentenceStatsService.onPracticeSentenceChanged(previousDifficulty, saved.getDifficulty());
+            return saved;
         }
         return null;
     }
     
     // Delete a sentence
     public boolean deleteSentence(Long id) {
-        if (sentencePracticeRepository.existsById(id)) {
-            sentencePracticeRepository.deleteById(id);
+        Optional<SentencePractice> existing = sentencePracticeRepository.findById(id);
+        if (existing.isPresent()) {
+            sentencePracticeRepository.delete(existing.get());
+            sentenceStatsService.onPracticeSentenceRemoved(existing.get().getDifficulty());
             return true;
         }
         return false;
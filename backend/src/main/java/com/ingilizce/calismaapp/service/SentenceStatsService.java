@@ -0,0 +1,164 @@
+package com.ingilizce.calismaapp.service;
+
+import com.ingilizce.calismaapp.entity.SentencePractice;
+import com.ingilizce.calismaapp.repository.SentencePracticeRepository;
+import com.ingilizce.calismaapp.repository.SentenceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sentence statistics rollup
+ * Per-difficulty counters for sentence_practices and sentences, kept current by the
+ * write paths so GET /api/sentences/stats is answered from memory.
+ * A periodic reconcile job corrects any drift (e.g. rows changed outside the app).
+ */
+@Service
+public class SentenceStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SentenceStatsService.class);
+
+    // sentences.difficulty is nullable, ConcurrentHashMap does not accept null keys
+    private static final String NO_DIFFICULTY = "";
+
+    @Autowired
+    private SentencePracticeRepository sentencePracticeRepository;
+
+    @Autowired
+    private SentenceRepository sentenceRepository;
+
+    private final Map<SentencePractice.DifficultyLevel, AtomicLong> practiceCounts = new EnumMap<>(
+            SentencePractice.DifficultyLevel.class);
+    private final Map<String, AtomicLong> wordSentenceCounts = new ConcurrentHashMap<>();
+
+    private volatile boolean initialized = false;
+
+    public SentenceStatsService() {
+        for (SentencePractice.DifficultyLevel level : SentencePractice.DifficultyLevel.values()) {
+            practiceCounts.put(level, new AtomicLong());
+        }
+    }
+
+    /**
+     * Load counters once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reconcile();
+    }
+
+    /**
+     * Recount both tables with one grouped query each and replace the counters
+     */
+    @Scheduled(fixedDelayString = "${stats.sentences.reconcile-interval-ms:300000}", initialDelayString = "${stats.sentences.reconcile-interval-ms:300000}")
+    public synchronized void reconcile() {
+        Map<SentencePractice.DifficultyLevel, Long> practice = new EnumMap<>(SentencePractice.DifficultyLevel.class);
+        for (Object[] row : sentencePracticeRepository.countGroupedByDifficulty()) {
+            practice.put((SentencePractice.DifficultyLevel) row[0], (Long) row[1]);
+        }
+
+        Map<String, Long> word = new LinkedHashMap<>();
+        for (Object[] row : sentenceRepository.countGroupedByDifficulty()) {
+            word.merge(key((String) row[0]), (Long) row[1], Long::sum);
+        }
+
+        long drift = 0;
+        for (SentencePractice.DifficultyLevel level : SentencePractice.DifficultyLevel.values()) {
+            long actual = practice.getOrDefault(level, 0L);
+            drift += Math.abs(practiceCounts.get(level).getAndSet(actual) - actual);
+        }
+        for (Map.Entry<String, AtomicLong> entry : wordSentenceCounts.entrySet()) {
+            if (!word.containsKey(entry.getKey())) {
+                drift += Math.abs(entry.getValue().getAndSet(0));
+            }
+        }
+        for (Map.Entry<String, Long> entry : word.entrySet()) {
+            long previous = wordSentenceCounts.computeIfAbsent(entry.getKey(), k -> new AtomicLong())
+                    .getAndSet(entry.getValue());
+            drift += Math.abs(previous - entry.getValue());
+        }
+
+        if (initialized && drift > 0) {
+            logger.warn("Sentence stats reconciled with drift of {}", drift);
+        }
+        initialized = true;
+    }
+
+    // Practice sentence hooks (SentencePracticeService)
+    public void onPracticeSentenceAdded(SentencePractice.DifficultyLevel difficulty) {
+        if (difficulty != null) {
+            practiceCounts.get(difficulty).incrementAndGet();
+        }
+    }
+
+    public void onPracticeSentenceRemoved(SentencePractice.DifficultyLevel difficulty) {
+        if (difficulty != null) {
+            practiceCounts.get(difficulty).decrementAndGet();
+        }
+    }
+
+    public void onPracticeSentenceChanged(SentencePractice.DifficultyLevel oldDifficulty,
+            SentencePractice.DifficultyLevel newDifficulty) {
+        if (oldDifficulty != newDifficulty) {
+            onPracticeSentenceRemoved(oldDifficulty);
+            onPracticeSentenceAdded(newDifficulty);
+        }
+    }
+
+    // Word sentence hooks (WordService)
+    public void onWordSentenceAdded(String difficulty) {
+        wordSentenceCounts.computeIfAbsent(key(difficulty), k -> new AtomicLong()).incrementAndGet();
+    }
+
+    public void onWordSentenceRemoved(String difficulty) {
+        wordSentenceCounts.computeIfAbsent(key(difficulty), k -> new AtomicLong()).decrementAndGet();
+    }
+
+    /**
+     * Combined statistics for both tables (same shape as the old count queries)
+     */
+    public Map<String, Object> getStats() {
+        if (!initialized) {
+            reconcile();
+        }
+
+        long practiceTotal = 0;
+        for (AtomicLong count : practiceCounts.values()) {
+            practiceTotal += count.get();
+        }
+        long wordTotal = 0;
+        for (AtomicLong count : wordSentenceCounts.values()) {
+            wordTotal += count.get();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("total", practiceTotal + wordTotal);
+        stats.put("easy", practiceCount(SentencePractice.DifficultyLevel.EASY) + wordCount("easy"));
+        stats.put("medium", practiceCount(SentencePractice.DifficultyLevel.MEDIUM) + wordCount("medium"));
+        stats.put("hard", practiceCount(SentencePractice.DifficultyLevel.HARD) + wordCount("hard"));
+        return stats;
+    }
+
+    private long practiceCount(SentencePractice.DifficultyLevel level) {
+        return practiceCounts.get(level).get();
+    }
+
+    private long wordCount(String difficulty) {
+        AtomicLong count = wordSentenceCounts.get(difficulty);
+        return count != null ? count.get() : 0;
+    }
+
+    private static String key(String difficulty) {
+        return difficulty != null ? difficulty : NO_DIFFICULTY;
+    }
+}
@@ -0,0 +1,336 @@
+package com.ingilizce.calismaapp.service;
+
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ingilizce.calismaapp.entity.SpeakingEvaluationJob;
+import com.ingilizce.calismaapp.entity.SpeakingEvaluationJob.Status;
+import com.ingilizce.calismaapp.repository.SpeakingEvaluationJobRepository;
+import com.ingilizce.calismaapp.util.LlmJsonExtractor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous speaking test evaluations
+ * Jobs are stored in speaking_evaluation_jobs and picked up by up to speaking.jobs.workers
+ * workers. The evaluation itself is a non-blocking LLM call, so a worker is a slot rather
+ * than a thread: it is taken when a job is claimed and given back when the LLM answers.
+ * Claiming is a conditional UPDATE, so several instances can share the table; RUNNING jobs
+ * older than stale-after-ms (well over the evaluation timeout) are requeued, which also
+ * resumes the jobs of an instance that was restarted.
+ * State changes are pushed to SSE subscribers and to the user's Socket.IO clients (the
+ * userId of join_queue, or the userId query parameter of the connection).
+ */
+@Service
+public class SpeakingEvaluationJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpeakingEvaluationJobService.class);
+
+    public static final String SOCKET_EVENT = "speaking_evaluation";
+    public static final Set<String> TEST_TYPES = Set.of("IELTS", "TOEFL");
+
+    @Autowired
+    private ChatbotService chatbotService;
+
+    @Autowired
+    private SpeakingEvaluationJobRepository repository;
+
+    @Autowired(required = false)
+    private SocketIOServer socketIOServer;
+
+    @Value("${speaking.jobs.workers:4}")
+    private int workers;
+
+    @Value("${speaking.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${speaking.jobs.retry-delay-ms:10000}")
+    private long retryDelayMs;
+
+    @Value("${speaking.jobs.stale-after-ms:300000}")
+    private long staleAfterMs;
+
+    @Value("${speaking.jobs.retention-hours:24}")
+    private long retentionHours;
+
+    private Semaphore slots;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Claims and state writes, off request and HttpClient threads
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor();
+    private final Map<String, List<Consumer<Map<String, Object>>>> subscribers = new ConcurrentHashMap<>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        this.slots = new Semaphore(Math.max(1, workers));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        poll();
+    }
+
+    /**
+     * Store a new job and start it if a worker is free
+     */
+    public SpeakingEvaluationJob submit(String userId, String testType, String question, String response) {
+        SpeakingEvaluationJob job = repository.save(new SpeakingEvaluationJob(userId, testType, question, response));
+        submitted.increment();
+        jobExecutor.execute(this::dispatch);
+        return job;
+    }
+
+    public Optional<SpeakingEvaluationJob> find(String id) {
+        return repository.findById(id);
+    }
+
+    /**
+     * Receive the job's state changes until it is finished (right away if it already is)
+     */
+    public void subscribe(String id, Consumer<Map<String, Object>> listener) {
+        subscribers.computeIfAbsent(id, key -> new CopyOnWriteArrayList<>()).add(listener);
+        repository.findById(id).filter(SpeakingEvaluationJob::isFinished).ifPresent(job -> {
+            List<Consumer<Map<String, Object>>> listeners = subscribers.get(id);
+            if (listeners != null && listeners.remove(listener)) {
+                subscribers.computeIfPresent(id, (key, list) -> list.isEmpty() ? null : list);
+                listener.accept(toMap(job));
+            }
+        });
+    }
+
+    public void unsubscribe(String id, Consumer<Map<String, Object>> listener) {
+        List<Consumer<Map<String, Object>>> listeners = subscribers.get(id);
+        if (listeners != null && listeners.remove(listener)) {
+            subscribers.computeIfPresent(id, (key, list) -> list.isEmpty() ? null : list);
+        }
+    }
+
+    /**
+     * Requeue jobs of dead workers and start pending ones (also picks up jobs submitted while all workers were busy)
+     */
+    @Scheduled(fixedDelayString = "${speaking.jobs.poll-interval-ms:5000}")
+    public void poll() {
+        try {
+            int requeued = repository.requeueStale(LocalDateTime.now().minus(Duration.ofMillis(staleAfterMs)),
+                    Status.RUNNING, Status.PENDING);
+            if (requeued > 0) {
+                logger.warn("Requeued {} stale speaking evaluation jobs", requeued);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not requeue stale speaking evaluation jobs: {}", e.getMessage());
+        }
+        jobExecutor.execute(this::dispatch);
+    }
+
+    @Scheduled(cron = "${speaking.jobs.cleanup-cron:0 15 * * * *}")
+    public void cleanup() {
+        int deleted = repository.deleteFinishedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) {
+            logger.info("Deleted {} finished speaking evaluation jobs", deleted);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workers", workers);
+        stats.put("busyWorkers", workers - slots.availablePermits());
+        stats.put("submitted", submitted.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("retried", retried.sum());
+        return stats;
+    }
+
+    /**
+     * Job as returned by the API: status, timestamps and the parsed evaluation once done
+     */
+    public Map<String, Object> toMap(SpeakingEvaluationJob job) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", job.getId());
+        map.put("status", job.getStatus().name());
+        map.put("testType", job.getTestType());
+        map.put("attempts", job.getAttempts());
+        map.put("createdAt", job.getCreatedAt() != null ? job.getCreatedAt().toString() : null);
+        map.put("startedAt", job.getStartedAt() != null ? job.getStartedAt().toString() : null);
+        map.put("finishedAt", job.getFinishedAt() != null ? job.getFinishedAt().toString() : null);
+        if (job.getResult() != null) {
+            try {
+                map.put("result", objectMapper.readValue(job.getResult(), Map.class));
+            } catch (Exception e) {
+                map.put("result", job.getResult());
+            }
+        }
+        if (job.getError() != null) {
+            map.put("error", job.getError());
+        }
+        return map;
+    }
+
+    // Runs on jobExecutor: claim pending jobs while workers are free
+    private void dispatch() {
+        try {
+            while (slots.tryAcquire()) {
+                SpeakingEvaluationJob job = claimNext();
+                if (job == null) {
+                    slots.release();
+                    return;
+                }
+                start(job);
+            }
+        } catch (Exception e) {
+            logger.warn("Speaking evaluation dispatch failed: {}", e.getMessage());
+        }
+    }
+
+    private SpeakingEvaluationJob claimNext() {
+        LocalDateTime readyBefore = LocalDateTime.now().minus(Duration.ofMillis(retryDelayMs));
+        List<String> ready = repository.findReadyIds(Status.PENDING, readyBefore,
+                PageRequest.of(0, Math.max(1, workers)));
+        for (String id : ready) {
+            if (repository.claim(id, LocalDateTime.now(), Status.PENDING, Status.RUNNING) == 1) {
+                SpeakingEvaluationJob job = repository.findById(id).orElse(null);
+                if (job != null) {
+                    return job;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void start(SpeakingEvaluationJob job) {
+        if (job.getAttempts() > maxAttempts) {
+            // Requeued by the stale check too often (worker died every time)
+            try {
+                finish(job, null, "Evaluation abandoned after " + maxAttempts + " attempts");
+            } finally {
+                slots.release();
+            }
+            return;
+        }
+        notify(job);
+        String message = String.format(
+                "Evaluate this %s Speaking test response. Question: %s. Candidate's response: %s. Return ONLY JSON.",
+                job.getTestType(), job.getQuestion(), job.getResponse());
+        try {
+            chatbotService.evaluateSpeakingTestAsync(message)
+                    .whenCompleteAsync((response, error) -> complete(job, response, error), jobExecutor);
+        } catch (RuntimeException e) {
+            complete(job, null, e);
+        }
+    }
+
+    private void complete(SpeakingEvaluationJob job, String response, Throwable error) {
+        try {
+            if (error == null) {
+                try {
+                    Map<String, Object> evaluation = LlmJsonExtractor.object(response);
+                    finish(job, objectMapper.writeValueAsString(evaluation), null);
+                } catch (Exception e) {
+                    finish(job, null, "Invalid JSON from AI service: " + e.getMessage());
+                }
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+                    : error;
+            if (isRetryable(cause) && job.getAttempts() < maxAttempts) {
+                // Back to the queue after retry-delay-ms (startedAt marks the failed attempt)
+                retried.increment();
+                job.setStatus(Status.PENDING);
+                job.setStartedAt(LocalDateTime.now());
+                job.setError(cause.getMessage());
+                repository.save(job);
+                notify(job);
+            } else {
+                finish(job, null, "Failed to evaluate response: " + cause.getMessage());
+            }
+        } catch (Exception e) {
+            logger.error("Could not store speaking evaluation job {}: {}", job.getId(), e.getMessage());
+        } finally {
+            slots.release();
+            dispatch();
+        }
+    }
+
+    private void finish(SpeakingEvaluationJob job, String result, String error) {
+        job.setStatus(error == null ? Status.DONE : Status.FAILED);
+        job.setResult(result);
+        job.setError(error);
+        job.setFinishedAt(LocalDateTime.now());
+        repository.save(job);
+        (error == null ? completed : failed).increment();
+        if (error != null) {
+            logger.warn("Speaking evaluation job {} failed: {}", job.getId(), error);
+        }
+        notify(job);
+    }
+
+    // Busy/unavailable AI service and timeouts are worth another attempt, bad requests are not
+    private static boolean isRetryable(Throwable cause) {
+        if (cause instanceof LlmApiException) {
+            int status = ((LlmApiException) cause).getStatusCode();
+            return status == LlmApiException.TOO_MANY_REQUESTS || status >= 500;
+        }
+        return cause instanceof HttpTimeoutException || cause instanceof TimeoutException
+                || "AI service timed out".equals(cause.getMessage());
+    }
+
+    private void notify(SpeakingEvaluationJob job) {
+        Map<String, Object> update = toMap(job);
+        List<Consumer<Map<String, Object>>> listeners = job.isFinished() ? subscribers.remove(job.getId())
+                : subscribers.get(job.getId());
+        if (listeners != null) {
+            for (Consumer<Map<String, Object>> listener : listeners) {
+                try {
+                    listener.accept(update);
+                } catch (Exception e) {
+                    logger.debug("Speaking evaluation subscriber failed: {}", e.getMessage());
+                }
+            }
+        }
+        if (socketIOServer != null) {
+            for (SocketIOClient client : socketIOServer.getAllClients()) {
+                if (job.getUserId().equals(client.get("userId"))
+                        || job.getUserId().equals(client.getHandshakeData().getSingleUrlParam("userId"))) {
+                    client.sendEvent(SOCKET_EVENT, update);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Running evaluations are requeued by the next instance once they are stale
+        jobExecutor.shutdown();
+    }
+}
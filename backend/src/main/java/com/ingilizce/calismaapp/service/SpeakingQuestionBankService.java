@@ -0,0 +1,399 @@
+package com.ingilizce.calismaapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ingilizce.calismaapp.entity.SpeakingQuestionSet;
+import com.ingilizce.calismaapp.model.LlmOperation;
+import com.ingilizce.calismaapp.repository.SpeakingQuestionSetRepository;
+import com.ingilizce.calismaapp.util.LlmJsonExtractor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pre-generated speaking test question bank (see V010)
+ * Each (testType, part) bucket keeps target-size question sets generated in the background.
+ * A request picks a random set the user has not been served yet: the bucket's ids are held
+ * in memory and the set itself comes from the second-level cache, so no LLM call is made.
+ * After refresh-after-serves draws from a bucket, refresh-batch new sets are generated
+ * asynchronously; buckets over max-size drop their oldest sets.
+ */
+@Service
+public class SpeakingQuestionBankService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpeakingQuestionBankService.class);
+
+    private static final int RECENT_TOPICS = 15;
+
+    @Autowired
+    private ChatbotService chatbotService;
+
+    @Autowired
+    private SpeakingQuestionSetRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${speaking.bank.enabled:true}")
+    private boolean enabled;
+
+    // testType:part pairs that are banked, other combinations are always generated live
+    @Value("${speaking.bank.buckets:IELTS:part1,IELTS:part2,IELTS:part3,TOEFL:task1,TOEFL:task2,TOEFL:task3,TOEFL:task4}")
+    private String[] bucketNames;
+
+    @Value("${speaking.bank.target-size:30}")
+    private int targetSize;
+
+    @Value("${speaking.bank.max-size:200}")
+    private int maxSize;
+
+    @Value("${speaking.bank.refresh-after-serves:50}")
+    private int refreshAfterServes;
+
+    @Value("${speaking.bank.refresh-batch:5}")
+    private int refreshBatch;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Bucket> buckets = new LinkedHashMap<>();
+    // DB writes after a generation completes (keeps them off HttpClient threads)
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private static class Bucket {
+        final String testType;
+        final String part;
+        volatile List<Long> ids = List.of();
+        final AtomicLong servesSinceRefresh = new AtomicLong();
+        final AtomicBoolean generating = new AtomicBoolean(false);
+        final LongAdder served = new LongAdder();
+        final LongAdder generated = new LongAdder();
+        final LongAdder duplicates = new LongAdder();
+
+        Bucket(String testType, String part) {
+            this.testType = testType;
+            this.part = part;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        for (String name : bucketNames) {
+            String[] parts = name.trim().split(":");
+            if (parts.length == 2) {
+                String testType = normalizeTestType(parts[0]);
+                String part = normalizePart(parts[1]);
+                buckets.put(key(testType, part), new Bucket(testType, part));
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        for (Bucket bucket : buckets.values()) {
+            reloadIds(bucket);
+        }
+        fill();
+    }
+
+    /**
+     * Top up buckets below target-size (also covers buckets emptied by a failed generation)
+     */
+    @Scheduled(fixedDelayString = "${speaking.bank.fill-interval-ms:600000}",
+            initialDelayString = "${speaking.bank.fill-interval-ms:600000}")
+    public void fill() {
+        if (!enabled) {
+            return;
+        }
+        for (Bucket bucket : buckets.values()) {
+            int missing = targetSize - bucket.ids.size();
+            if (missing > 0) {
+                generate(bucket, missing);
+            }
+        }
+    }
+
+    /**
+     * A random question set of the bucket the user has not seen yet
+     *
+     * @return Same shape as a generate-questions answer, null when the bucket is not banked or still empty
+     */
+    public Map<String, Object> draw(String userId, String testType, String part) {
+        Bucket bucket = enabled ? buckets.get(key(normalizeTestType(testType), normalizePart(part))) : null;
+        if (bucket == null) {
+            return null;
+        }
+        List<Long> ids = bucket.ids;
+        if (ids.isEmpty()) {
+            misses.increment();
+            generate(bucket, targetSize);
+            return null;
+        }
+
+        Set<Long> seen = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT h.set_id FROM speaking_question_served h JOIN speaking_question_sets s ON s.id = h.set_id "
+                        + "WHERE h.user_id = ? AND s.test_type = ? AND s.part = ?",
+                Long.class, userId, bucket.testType, bucket.part));
+        List<Long> candidates = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (!seen.contains(id)) {
+                candidates.add(id);
+            }
+        }
+        if (candidates.isEmpty()) {
+            // User has seen the whole bucket: start a new round and grow the bucket
+            jdbcTemplate.update("DELETE FROM speaking_question_served h USING speaking_question_sets s "
+                    + "WHERE s.id = h.set_id AND h.user_id = ? AND s.test_type = ? AND s.part = ?",
+                    userId, bucket.testType, bucket.part);
+            candidates = new ArrayList<>(ids);
+            refresh(bucket);
+        }
+
+        while (!candidates.isEmpty()) {
+            Long id = candidates.remove(ThreadLocalRandom.current().nextInt(candidates.size()));
+            SpeakingQuestionSet set = repository.findById(id).orElse(null);
+            if (set == null) {
+                continue; // pruned since the ids were loaded
+            }
+            jdbcTemplate.update("INSERT INTO speaking_question_served (user_id, set_id) VALUES (?, ?) "
+                    + "ON CONFLICT DO NOTHING", userId, id);
+            hits.increment();
+            bucket.served.increment();
+            if (bucket.servesSinceRefresh.incrementAndGet() >= refreshAfterServes) {
+                refresh(bucket);
+            }
+            return toResponse(set);
+        }
+        misses.increment();
+        reloadIds(bucket);
+        return null;
+    }
+
+    /**
+     * Keep a live generated answer in the bank (no-op for combinations that are not banked)
+     */
+    public void store(String testType, String part, Map<String, Object> questionSet) {
+        Bucket bucket = enabled ? buckets.get(key(normalizeTestType(testType), normalizePart(part))) : null;
+        if (bucket != null) {
+            writeExecutor.execute(() -> save(bucket, questionSet));
+        }
+    }
+
+    /**
+     * Bucket sizes and serve counters
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        List<Map<String, Object>> bucketStats = new ArrayList<>();
+        for (Bucket bucket : buckets.values()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("testType", bucket.testType);
+            entry.put("part", bucket.part);
+            entry.put("size", bucket.ids.size());
+            entry.put("served", bucket.served.sum());
+            entry.put("generated", bucket.generated.sum());
+            entry.put("duplicatesSkipped", bucket.duplicates.sum());
+            entry.put("generating", bucket.generating.get());
+            bucketStats.add(entry);
+        }
+        stats.put("buckets", bucketStats);
+        return stats;
+    }
+
+    private void refresh(Bucket bucket) {
+        bucket.servesSinceRefresh.set(0);
+        generate(bucket, refreshBatch);
+    }
+
+    /**
+     * Generate count sets one after another in the background (one generation per bucket at a time)
+     */
+    private void generate(Bucket bucket, int count) {
+        if (count <= 0 || !bucket.generating.compareAndSet(false, true)) {
+            return;
+        }
+        logger.info("Generating {} speaking question sets for {} {} (bank size {})", count, bucket.testType,
+                bucket.part, bucket.ids.size());
+
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (int i = 0; i < count; i++) {
+            chain = chain.thenCompose(ignored -> generateOne(bucket));
+        }
+        chain.whenComplete((ignored, error) -> {
+            bucket.generating.set(false);
+            if (error != null) {
+                logger.warn("Speaking question generation for {} {} failed: {}", bucket.testType, bucket.part,
+                        error.getMessage());
+            }
+        });
+    }
+
+    private CompletableFuture<Void> generateOne(Bucket bucket) {
+        String message = String.format("%s Speaking test questions for %s", bucket.testType, bucket.part);
+        List<String> recentTopics = recentTopics(bucket);
+        if (!recentTopics.isEmpty()) {
+            message += ". Choose a different topic than these existing questions: " + String.join(" | ", recentTopics);
+        }
+        return chatbotService.generateSpeakingTestQuestionsAsync(message, LlmOperation.SPEAKING_QUESTION_REFILL)
+                .thenAcceptAsync(response -> save(bucket, LlmJsonExtractor.object(response)), writeExecutor);
+    }
+
+    private void save(Bucket bucket, Map<String, Object> questionSet) {
+        Object questions = questionSet.get("questions");
+        if (!(questions instanceof List) || ((List<?>) questions).isEmpty()) {
+            logger.warn("Skipping speaking question set without questions for {} {}", bucket.testType, bucket.part);
+            return;
+        }
+        try {
+            List<String> texts = new ArrayList<>();
+            for (Object question : (List<?>) questions) {
+                texts.add(String.valueOf(question).trim());
+            }
+            String hash = contentHash(texts);
+            if (repository.existsByTestTypeAndPartAndContentHash(bucket.testType, bucket.part, hash)) {
+                bucket.duplicates.increment();
+                return;
+            }
+            repository.save(new SpeakingQuestionSet(bucket.testType, bucket.part,
+                    objectMapper.writeValueAsString(texts), asString(questionSet.get("instructions")),
+                    asInteger(questionSet.get("timeLimit")), asInteger(questionSet.get("preparationTime")), hash));
+            bucket.generated.increment();
+            prune(bucket);
+        } catch (Exception e) {
+            logger.warn("Could not store speaking question set for {} {}: {}", bucket.testType, bucket.part,
+                    e.getMessage());
+        }
+    }
+
+    // Drop the oldest sets over max-size (served history goes with them, ON DELETE CASCADE)
+    private void prune(Bucket bucket) {
+        List<Long> ids = repository.findIdsByBucket(bucket.testType, bucket.part);
+        if (ids.size() > maxSize) {
+            List<Long> oldest = ids.subList(0, ids.size() - maxSize);
+            repository.deleteAllById(oldest);
+            ids = new ArrayList<>(ids.subList(oldest.size(), ids.size()));
+        }
+        bucket.ids = List.copyOf(ids);
+    }
+
+    private void reloadIds(Bucket bucket) {
+        try {
+            bucket.ids = List.copyOf(repository.findIdsByBucket(bucket.testType, bucket.part));
+        } catch (Exception e) {
+            logger.warn("Could not load speaking question bank for {} {}: {}", bucket.testType, bucket.part,
+                    e.getMessage());
+        }
+    }
+
+    // First question of the newest sets
+    private List<String> recentTopics(Bucket bucket) {
+        List<String> topics = new ArrayList<>();
+        try {
+            for (String questions : repository.findRecentQuestions(bucket.testType, bucket.part,
+                    PageRequest.of(0, RECENT_TOPICS))) {
+                List<?> list = objectMapper.readValue(questions, List.class);
+                if (!list.isEmpty()) {
+                    topics.add(String.valueOf(list.get(0)));
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Could not load recent speaking topics: {}", e.getMessage());
+        }
+        return topics;
+    }
+
+    private Map<String, Object> toResponse(SpeakingQuestionSet set) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        try {
+            response.put("questions", objectMapper.readValue(set.getQuestions(), List.class));
+        } catch (Exception e) {
+            throw new IllegalStateException("Corrupt speaking question set " + set.getId(), e);
+        }
+        response.put("instructions", set.getInstructions() != null ? set.getInstructions() : "");
+        if (set.getTimeLimit() != null) {
+            response.put("timeLimit", set.getTimeLimit());
+        }
+        if (set.getPreparationTime() != null) {
+            response.put("preparationTime", set.getPreparationTime());
+        }
+        return response;
+    }
+
+    private static String contentHash(List<String> questions) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (String question : questions) {
+            digest.update(question.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    // timeLimit may come back as 45, "45" or "45 seconds"
+    private static Integer asInteger(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value != null) {
+            String digits = value.toString().trim().replaceAll("[^0-9].*$", "");
+            if (!digits.isEmpty()) {
+                return Integer.parseInt(digits);
+            }
+        }
+        return null;
+    }
+
+    private static String normalizeTestType(String testType) {
+        return testType.trim().toUpperCase(Locale.ROOT);
+    }
+
+    // "Part 1", "part-1", "PART1" -> "part1"
+    private static String normalizePart(String part) {
+        return part.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    private static String key(String testType, String part) {
+        return testType + ":" + part;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeExecutor.shutdown();
+    }
+}
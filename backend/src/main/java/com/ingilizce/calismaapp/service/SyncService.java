@@ -0,0 +1,146 @@
+package com.ingilizce.calismaapp.service;
+
+import com.ingilizce.calismaapp.entity.SyncTombstone;
+import com.ingilizce.calismaapp.entity.UserProgress;
+import com.ingilizce.calismaapp.repository.SentenceRepository;
+import com.ingilizce.calismaapp.repository.SyncTombstoneRepository;
+import com.ingilizce.calismaapp.repository.UserProgressRepository;
+import com.ingilizce.calismaapp.repository.WordRepository;
+import com.ingilizce.calismaapp.repository.WordReviewRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Delta sync for offline-first clients
+ * Every insert/update on words, sentences, word_reviews and user_progress is stamped
+ * with a value from the global sync_change_seq and the id of the writing transaction
+ * (database trigger), deletes leave a tombstone.
+ *
+ * Versions are taken when a row is written, not when it commits: a transaction holding
+ * version 100 may commit after another one with 101, so "highest version seen" would skip
+ * it. The token is therefore the xmin of the sync snapshot ("x" + xid): every row the
+ * client has not seen was written by that transaction or a later one. Rows written by
+ * transactions that were already visible may be sent again; clients upsert by id.
+ * Plain numeric tokens from older versions are still accepted once (version based).
+ */
+@Service
+public class SyncService {
+
+    private static final Long DEFAULT_USER_ID = 1L;
+
+    @Autowired
+    private WordRepository wordRepository;
+
+    @Autowired
+    private SentenceRepository sentenceRepository;
+
+    @Autowired
+    private WordReviewRepository wordReviewRepository;
+
+    @Autowired
+    private UserProgressRepository progressRepository;
+
+    @Autowired
+    private SyncTombstoneRepository tombstoneRepository;
+
+    /**
+     * Parse a token of {@link #getChangesSince}
+     *
+     * @return { sinceVersion, sinceXid }, null if the token is invalid
+     */
+    public static long[] parseToken(String token) {
+        if (token == null || token.isBlank()) {
+            return new long[] { 0, 0 };
+        }
+        try {
+            String t = token.trim();
+            long[] since = t.startsWith("x")
+                    ? new long[] { 0, Long.parseLong(t.substring(1)) }
+                    : new long[] { Long.parseLong(t), 0 }; // Before the watermark: highest version seen
+            return since[0] < 0 || since[1] < 0 ? null : since;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get everything that changed after the given token
+     *
+     * @param sinceVersion Version token of an older client (0 if not used)
+     * @param sinceXid     Watermark from the previous sync (0 if not used)
+     * @return Changed rows, deleted ids and the next token (both 0 = full sync, no tombstones)
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public Map<String, Object> getChangesSince(long sinceVersion, long sinceXid) {
+        // REPEATABLE_READ: all queries below see the same snapshot; the watermark is read first so it
+        // belongs to that snapshot. Transactions running now are >= watermark and picked up next time
+        long watermark = tombstoneRepository.currentSnapshotXmin();
+        List<Map<String, Object>> words = wordRepository.findSyncRowsChangedSince(sinceVersion, sinceXid);
+        List<Map<String, Object>> sentences = sentenceRepository.findSyncRowsChangedSince(sinceVersion, sinceXid);
+        List<Map<String, Object>> reviews = wordReviewRepository.findSyncRowsChangedSince(sinceVersion, sinceXid);
+        Optional<UserProgress> progress = progressRepository
+                .findByUserIdAndChangeVersionGreaterThanAndChangeXidGreaterThanEqual(DEFAULT_USER_ID, sinceVersion,
+                        sinceXid);
+        boolean full = sinceVersion == 0 && sinceXid == 0;
+
+        Map<String, Object> deleted = new LinkedHashMap<>();
+        List<Long> deletedWords = new ArrayList<>();
+        List<Long> deletedSentences = new ArrayList<>();
+        List<Long> deletedReviews = new ArrayList<>();
+        if (!full) {
+            for (SyncTombstone tombstone : tombstoneRepository
+                    .findByChangeVersionGreaterThanAndChangeXidGreaterThanEqualOrderByChangeVersionAsc(sinceVersion,
+                            sinceXid)) {
+                switch (tombstone.getEntityType()) {
+                    case "word":
+                        deletedWords.add(tombstone.getEntityId());
+                        break;
+                    case "sentence":
+                        deletedSentences.add(tombstone.getEntityId());
+                        break;
+                    case "review":
+                        deletedReviews.add(tombstone.getEntityId());
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        deleted.put("words", deletedWords);
+        deleted.put("sentences", deletedSentences);
+        deleted.put("reviews", deletedReviews);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("since", sinceXid > 0 ? "x" + sinceXid : String.valueOf(sinceVersion));
+        result.put("full", full);
+        result.put("words", words);
+        result.put("sentences", sentences);
+        result.put("reviews", reviews);
+        if (progress.isPresent()) {
+            UserProgress p = progress.get();
+            Map<String, Object> progressMap = new LinkedHashMap<>();
+            progressMap.put("totalXp", p.getTotalXp());
+            progressMap.put("level", p.getLevel());
+            progressMap.put("currentStreak", p.getCurrentStreak());
+            progressMap.put("longestStreak", p.getLongestStreak());
+            progressMap.put("lastActivityDate", p.getLastActivityDate());
+            progressMap.put("changeVersion", p.getChangeVersion());
+            result.put("progress", progressMap);
+        } else {
+            result.put("progress", null);
+        }
+        result.put("deleted", deleted);
+        // Opaque to clients: send it back as ?since= on the next sync
+        result.put("token", "x" + watermark);
+
+        return result;
+    }
+}
@@ -4,43 +4,68 @@ import com.ingilizce.calismaapp.entity.Word;
 import com.ingilizce.calismaapp.entity.WordReview;
 import com.ingilizce.calismaapp.repository.WordRepository;
 import com.ingilizce.calismaapp.repository.WordReviewRepository;
+import com.ingilizce.calismaapp.util.ReviewDateBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class WordReviewService {
     
+    public static final Set<String> REPORT_GROUPINGS = Set.of("day", "word", "type");
+    
     @Autowired
     private WordReviewRepository wordReviewRepository;
     
     @Autowired
     private WordRepository wordRepository;
     
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
     // Add a review for a word on a specific date
+    @Transactional
     public WordReview addReview(Long wordId, LocalDate reviewDate, String reviewType, String notes) {
-        Word word = wordRepository.findById(wordId)
+        // Locked so concurrent reviews of the same word do not overwrite each other's bitmap
+        Word word = wordRepository.findByIdForUpdate(wordId)
                 .orElseThrow(() -> new RuntimeException("Word not found"));
         
-        // Check if already reviewed on this date
-        if (wordReviewRepository.existsByWordIdAndReviewDate(wordId, reviewDate)) {
+        // Check if already reviewed on this date; telemetry results (SRS, quizzes) of the same day do not count
+        ReviewDateBitmap bitmap = getOrBuildBitmap(word);
+        if (bitmap.contains(reviewDate) && wordReviewRepository.existsManualReview(wordId, reviewDate)) {
             throw new RuntimeException("Word already reviewed on this date");
         }
         
         WordReview review = new WordReview(word, reviewDate);
         review.setReviewType(reviewType);
         review.setNotes(notes);
+        WordReview saved = wordReviewRepository.save(review);
         
-        return wordReviewRepository.save(review);
+        word.setReviewBitmap(bitmap.with(reviewDate));
+        wordRepository.save(word);
+        return saved;
     }
     
-    // Get all reviews for a word
+    // Get all reviews for a word, only on the dates in its bitmap so only the months it was reviewed in are read
     public List<WordReview> getWordReviews(Long wordId) {
-        return wordReviewRepository.findByWordIdOrderByReviewDateDesc(wordId);
+        ReviewDateBitmap bitmap = getBitmap(wordId);
+        if (bitmap.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return wordReviewRepository.findByWordIdAndReviewDateIn(wordId, bitmap.toDatesDescending());
     }
     
     // Get reviews for a specific date
@@ -50,40 +75,170 @@ public class WordReviewService {
     
     // Check if a word was reviewed on a specific date
     public boolean isWordReviewedOnDate(Long wordId, LocalDate date) {
-        return wordReviewRepository.existsByWordIdAndReviewDate(wordId, date);
+        return getBitmap(wordId).contains(date);
     }
     
-    // Get review count for a word
+    // Get review count for a word (rows, a day can hold several telemetry results)
     public long getReviewCount(Long wordId) {
-        return wordReviewRepository.countByWordId(wordId);
+        ReviewDateBitmap bitmap = getBitmap(wordId);
+        if (bitmap.isEmpty()) {
+            return 0;
+        }
+        return wordReviewRepository.countByWordIdAndReviewDateIn(wordId, bitmap.toDatesDescending());
     }
     
     // Get review dates for a word (for calendar display)
     public List<LocalDate> getReviewDates(Long wordId) {
-        return wordReviewRepository.findByWordIdOrderByReviewDateDesc(wordId)
-                .stream()
-                .map(WordReview::getReviewDate)
-                .collect(Collectors.toList());
+        return getBitmap(wordId).toDatesDescending();
+    }
+    
+    // Get review dates for a word within a range, either bound optional
+    public List<LocalDate> getReviewDates(Long wordId, LocalDate from, LocalDate to) {
+        return getBitmap(wordId).between(from, to);
     }
     
     // Get review summary for a word (date -> review info)
     public Map<LocalDate, WordReview> getReviewSummary(Long wordId) {
-        return wordReviewRepository.findByWordIdOrderByReviewDateDesc(wordId)
+        // Most calendar cells are empty, skip the reviews table when there is nothing to show
+        ReviewDateBitmap bitmap = getBitmap(wordId);
+        if (bitmap.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        // The bitmap's dates let Postgres prune word_reviews to the months this word was reviewed in
+        return wordReviewRepository.findByWordIdAndReviewDateIn(wordId, bitmap.toDatesDescending())
                 .stream()
                 .collect(Collectors.toMap(
                     WordReview::getReviewDate,
-                    review -> review
+                    review -> review,
+                    (first, second) -> first // telemetry can record several reviews per day
                 ));
     }
     
+    // Review activity across all words in [from, to], grouped by day, word or type.
+    // Rows are handed to the consumer while the cursor is open, nothing is collected in memory
+    @Transactional(readOnly = true)
+    public void streamReport(LocalDate from, LocalDate to, String groupBy, Consumer<Map<String, Object>> rowConsumer) {
+        switch (groupBy) {
+            case "day":
+                try (Stream<Object[]> rows = wordReviewRepository.streamReportByDay(from, to)) {
+                    rows.forEach(row -> {
+                        Map<String, Object> item = new LinkedHashMap<>();
+                        item.put("date", row[0].toString());
+                        item.put("reviews", row[1]);
+                        item.put("words", row[2]);
+                        rowConsumer.accept(item);
+                    });
+                }
+                break;
+            case "word":
+                try (Stream<Object[]> rows = wordReviewRepository.streamReportByWord(from, to)) {
+                    rows.forEach(row -> {
+                        Map<String, Object> item = new LinkedHashMap<>();
+                        item.put("wordId", row[0]);
+                        item.put("englishWord", row[1]);
+                        item.put("reviews", row[2]);
+                        item.put("firstReview", row[3].toString());
+                        item.put("lastReview", row[4].toString());
+                        rowConsumer.accept(item);
+                    });
+                }
+                break;
+            case "type":
+                try (Stream<Object[]> rows = wordReviewRepository.streamReportByType(from, to)) {
+                    rows.forEach(row -> {
+                        Map<String, Object> item = new LinkedHashMap<>();
+                        item.put("reviewType", row[0]);
+                        item.put("reviews", row[1]);
+                        item.put("words", row[2]);
+                        rowConsumer.accept(item);
+                    });
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown groupBy: " + groupBy);
+        }
+    }
+    
     // Delete a review
+    @Transactional
     public void deleteReview(Long reviewId) {
-        wordReviewRepository.deleteById(reviewId);
+        Optional<WordReview> review = wordReviewRepository.findById(reviewId);
+        if (review.isEmpty()) {
+            return;
+        }
+        
+        Long wordId = review.get().getWord().getId();
+        LocalDate date = review.get().getReviewDate();
+        wordReviewRepository.delete(review.get());
+        
+        // Keep the date if another review of the same day is still there
+        if (!wordReviewRepository.existsByWordIdAndReviewDate(wordId, date)) {
+            clearBitmapDate(wordId, date);
+        }
     }
     
     // Delete review for a word on a specific date
+    @Transactional
     public void deleteReviewByWordAndDate(Long wordId, LocalDate date) {
         List<WordReview> reviews = wordReviewRepository.findByWordIdAndReviewDate(wordId, date);
         wordReviewRepository.deleteAll(reviews);
+        clearBitmapDate(wordId, date);
+    }
+    
+    // Reviews written in bulk (telemetry batches) bypass addReview, keep their bitmaps current
+    @Transactional
+    public void markReviewed(Long wordId, Collection<LocalDate> dates) {
+        wordRepository.findByIdForUpdate(wordId).ifPresent(word -> {
+            // Not built yet: it will be built from the table later
+            if (word.getReviewBitmap() != null) {
+                ReviewDateBitmap bitmap = word.getReviewBitmap();
+                for (LocalDate date : dates) {
+                    bitmap = bitmap.with(date);
+                }
+                word.setReviewBitmap(bitmap);
+                wordRepository.save(word);
+            }
+        });
+    }
+    
+    // Bitmap of a word, empty if the word does not exist
+    private ReviewDateBitmap getBitmap(Long wordId) {
+        Optional<Word> word = wordRepository.findById(wordId);
+        if (word.isEmpty()) {
+            return ReviewDateBitmap.empty();
+        }
+        if (word.get().getReviewBitmap() != null) {
+            return word.get().getReviewBitmap();
+        }
+        // Stored through the locked entity: only this word's L2 cache entry is updated, and a
+        // bitmap written by a concurrent review in the meantime is kept
+        return transactionTemplate.execute(status -> wordRepository.findByIdForUpdate(wordId)
+                .map(locked -> {
+                    if (locked.getReviewBitmap() == null) {
+                        locked.setReviewBitmap(buildBitmap(wordId));
+                        wordRepository.save(locked);
+                    }
+                    return locked.getReviewBitmap();
+                })
+                .orElseGet(ReviewDateBitmap::empty));
+    }
+    
+    private ReviewDateBitmap getOrBuildBitmap(Word word) {
+        return word.getReviewBitmap() != null ? word.getReviewBitmap() : buildBitmap(word.getId());
+    }
+    
+    // Words reviewed before the bitmap column existed are backfilled from the table on first access
+    private ReviewDateBitmap buildBitmap(Long wordId) {
+        return ReviewDateBitmap.of(wordReviewRepository.findReviewDatesByWordId(wordId));
+    }
+    
+    private void clearBitmapDate(Long wordId, LocalDate date) {
+        wordRepository.findByIdForUpdate(wordId).ifPresent(word -> {
+            // Not built yet: it will be built from the table later, nothing to clear
+            if (word.getReviewBitmap() != null) {
+                word.setReviewBitmap(word.getReviewBitmap().without(date));
+                wordRepository.save(word);
+            }
+        });
     }
 }
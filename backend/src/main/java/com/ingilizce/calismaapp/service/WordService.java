@@ -7,6 +7,7 @@ import com.ingilizce.calismaapp.repository.WordRepository;
 import com.ingilizce.calismaapp.repository.SentenceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -24,6 +25,9 @@ public class WordService {
     @Autowired
     private ProgressService progressService;
 
+    @Autowired
+    private SentenceStatsService sentenceStatsService;
+
     public List<Word> getAllWords() {
         return wordRepository.findAll();
     }
@@ -45,6 +49,9 @@ public class WordService {
         Word savedWord = wordRepository.save(word);
 
         if (isNew) {
+            for (Sentence sentence : savedWord.getSentences()) {
+                sentenceStatsService.onWordSentenceAdded(sentence.getDifficulty());
+            }
             progressService.awardXp(5, "New Word: " + word.getEnglishWord());
             progressService.updateStreak();
         }
@@ -71,7 +78,15 @@ public class WordService {
     }
 
     public void deleteWord(Long id) {
-        wordRepository.deleteById(id);
+        Optional<Word> wordOpt = wordRepository.findById(id);
+        if (wordOpt.isPresent()) {
+            Word word = wordOpt.get();
+            wordRepository.delete(word);
+            // Sentences are removed by cascade
+            for (Sentence sentence : word.getSentences()) {
+                sentenceStatsService.onWordSentenceRemoved(sentence.getDifficulty());
+            }
+        }
     }
 
     public Word updateWord(Long id, Word wordDetails) {
@@ -95,11 +110,46 @@ public class WordService {
             Sentence newSentence = new Sentence(sentence, translation, difficulty != null ? difficulty : "easy", word);
             word.addSentence(newSentence);
             progressService.awardXp(3, "New Sentence for: " + word.getEnglishWord());
-            return wordRepository.save(word);
+            Word savedWord = wordRepository.save(word);
+            sentenceStatsService.onWordSentenceAdded(newSentence.getDifficulty());
+            return savedWord;
         }
         return null;
     }
 
+    /**
+     * Add several sentences to a word in one go.
+     * Inserts the Sentence rows directly (the word's sentence collection is never
+     * loaded) and awards the sentence XP once for the whole batch.
+     *
+     * @return saved sentences, or null if the word does not exist
+     */
+    @Transactional
+    public List<Sentence> addSentences(Long wordId, List<Sentence> sentences) {
+        Optional<String> englishWord = wordRepository.findEnglishWordById(wordId);
+        if (englishWord.isEmpty()) {
+            return null;
+        }
+
+        Word wordRef = wordRepository.getReferenceById(wordId);
+        for (Sentence sentence : sentences) {
+            sentence.setWord(wordRef);
+            if (sentence.getDifficulty() == null) {
+                sentence.setDifficulty("easy");
+            }
+        }
+
+        List<Sentence> saved = sentenceRepository.saveAll(sentences);
+        for (Sentence sentence : saved) {
+            sentenceStatsService.onWordSentenceAdded(sentence.getDifficulty());
+        }
+        if (!saved.isEmpty()) {
+            progressService.awardXp(3 * saved.size(),
+                    saved.size() + " New Sentences for: " + englishWord.get());
+        }
+        return saved;
+    }
+
     public Word deleteSentence(Long wordId, Long sentenceId) {
         Optional<Word> wordOpt = wordRepository.findById(wordId);
         Optional<Sentence> sentenceOpt = sentenceRepository.findById(sentenceId);
@@ -112,9 +162,22 @@ public class WordService {
             if (sentence.getWord().getId().equals(wordId)) {
                 word.removeSentence(sentence);
                 sentenceRepository.delete(sentence);
+                sentenceStatsService.onWordSentenceRemoved(sentence.getDifficulty());
                 return wordRepository.save(word);
             }
         }
         return null;
     }
+
+    // Delete a sentence when only its id is known (e.g. "word_" ids from /api/sentences)
+    public boolean deleteSentenceById(Long sentenceId) {
+        Optional<Sentence> sentenceOpt = sentenceRepository.findById(sentenceId);
+        if (sentenceOpt.isEmpty()) {
+            return false;
+        }
+        Sentence sentence = sentenceOpt.get();
+        sentenceRepository.delete(sentence);
+        sentenceStatsService.onWordSentenceRemoved(sentence.getDifficulty());
+        return true;
+    }
 }
@@ -0,0 +1,74 @@
+package com.ingilizce.calismaapp.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size, lock-free latency histogram with logarithmic buckets.
+ * Each bucket covers a ~5% wide range of values, so quantiles are accurate to
+ * about 2.5% relative error regardless of how many samples were recorded.
+ * Values are in milliseconds, from 1 ms up to ~1 hour (larger values are clamped).
+ */
+public class LatencySketch {
+
+    private static final double GAMMA = 1.05;
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final long MAX_VALUE_MS = 3_600_000L;
+    private static final int BUCKETS = bucketIndex(MAX_VALUE_MS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    public void record(long valueMs) {
+        record(valueMs, 1);
+    }
+
+    // The same value seen several times (e.g. loaded from a grouped query)
+    public void record(long valueMs, long times) {
+        if (times <= 0) {
+            return;
+        }
+        long clamped = Math.max(1, Math.min(valueMs, MAX_VALUE_MS));
+        counts.addAndGet(bucketIndex(clamped), times);
+        count.add(times);
+        sum.add(clamped * times);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Approximate value at quantile q (0..1), 0 when empty
+     */
+    public long quantile(double q) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= Math.max(rank, 1)) {
+                return bucketValue(i);
+            }
+        }
+        return MAX_VALUE_MS;
+    }
+
+    private static int bucketIndex(long valueMs) {
+        return (int) Math.ceil(Math.log(valueMs) / LOG_GAMMA);
+    }
+
+    // Midpoint of the bucket (GAMMA^(i-1), GAMMA^i]
+    private static long bucketValue(int index) {
+        return Math.round(2 * Math.pow(GAMMA, index) / (GAMMA + 1));
+    }
+}
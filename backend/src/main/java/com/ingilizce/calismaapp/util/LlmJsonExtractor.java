@@ -0,0 +1,224 @@
+package com.ingilizce.calismaapp.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ingilizce.calismaapp.dto.PracticeSentence;
+import com.ingilizce.calismaapp.dto.TranslationCheckResult;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Single-pass JSON extraction from LLM answers
+ * The answer is tokenized once with Jackson's streaming JsonParser, starting at the first
+ * '{' or '[' (so ```json fences and prose before the JSON are skipped without copying) and
+ * stopping when the root value closes (text after it is never read). Field names are
+ * canonicalized while tokenizing (turkish_translation, turkish -> turkishTranslation, ...)
+ * and values are bound straight to the DTOs.
+ * Lenient about the usual LLM slips: trailing commas, single quotes, unquoted field names,
+ * raw newlines inside strings.
+ */
+public final class LlmJsonExtractor {
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+            .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+            .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .enable(JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS)
+            .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+            .build();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper(JSON_FACTORY);
+
+    // Keys are lower case without '_' / '-'
+    private static final Map<String, String> SENTENCE_FIELDS = Map.ofEntries(
+            Map.entry("englishsentence", "englishSentence"),
+            Map.entry("english", "englishSentence"),
+            Map.entry("sentence", "englishSentence"),
+            Map.entry("turkishtranslation", "turkishTranslation"),
+            Map.entry("turkishtransliteration", "turkishTranslation"),
+            Map.entry("turkish", "turkishTranslation"),
+            Map.entry("turkishfulltranslation", "turkishFullTranslation"),
+            Map.entry("fulltranslation", "turkishFullTranslation"),
+            Map.entry("turkishsentence", "turkishFullTranslation"));
+
+    private static final Map<String, String> TRANSLATION_CHECK_FIELDS = Map.of(
+            "iscorrect", "isCorrect",
+            "correct", "isCorrect",
+            "correcttranslation", "correctTranslation",
+            "correctedtranslation", "correctTranslation",
+            "feedback", "feedback",
+            "explanation", "feedback");
+
+    // Wrapper keys of {"sentences": [...]}
+    private static final Map<String, String> SENTENCE_LIST_FIELDS = Map.of(
+            "sentences", "sentences",
+            "practicesentences", "sentences",
+            "items", "sentences");
+
+    private LlmJsonExtractor() {
+    }
+
+    /**
+     * Practice sentences from an array, an object with a "sentences" array, or a single sentence object
+     *
+     * @throws IllegalArgumentException when the answer contains no usable JSON
+     */
+    public static List<PracticeSentence> practiceSentences(String llmResponse) {
+        try (JsonParser parser = open(llmResponse)) {
+            JsonToken root = parser == null ? null : parser.nextToken();
+            if (root == JsonToken.START_ARRAY) {
+                return readSentenceArray(parser);
+            }
+            if (root != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("No JSON array or object in LLM response");
+            }
+
+            // Either a wrapper ({"sentences": [...]}) or a single sentence object
+            Map<String, String> single = new HashMap<>();
+            List<PracticeSentence> sentences = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = canonical(parser.currentName());
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_ARRAY && SENTENCE_LIST_FIELDS.containsKey(name)) {
+                    sentences = readSentenceArray(parser);
+                } else {
+                    readField(parser, value, SENTENCE_FIELDS.get(name), single);
+                }
+            }
+            if (sentences != null) {
+                return sentences;
+            }
+            if (single.get("englishSentence") == null) {
+                throw new IllegalArgumentException(
+                        "LLM returned unexpected JSON format. Expected array or object with 'sentences' key.");
+            }
+            List<PracticeSentence> result = new ArrayList<>();
+            result.add(toSentence(single));
+            return result;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON in LLM response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Translation check result, null when the answer contains no JSON object
+     *
+     * @throws IllegalArgumentException when the JSON is malformed
+     */
+    public static TranslationCheckResult translationCheck(String llmResponse) {
+        try (JsonParser parser = open(llmResponse, '{')) {
+            if (parser == null || parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            Map<String, String> fields = new HashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = canonical(parser.currentName());
+                readField(parser, parser.nextToken(), TRANSLATION_CHECK_FIELDS.get(name), fields);
+            }
+            String isCorrect = fields.get("isCorrect");
+            return new TranslationCheckResult(isCorrect == null ? null : parseBoolean(isCorrect),
+                    fields.get("correctTranslation"), fields.get("feedback"));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON in LLM response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Generic JSON object (speaking test questions / evaluation), keys as sent by the LLM
+     */
+    public static Map<String, Object> object(String llmResponse) {
+        try (JsonParser parser = open(llmResponse, '{')) {
+            if (parser == null) {
+                throw new IllegalArgumentException("No JSON object in LLM response");
+            }
+            return OBJECT_MAPPER.readValue(parser, new TypeReference<Map<String, Object>>() {
+            });
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON in LLM response: " + e.getMessage(), e);
+        }
+    }
+
+    private static List<PracticeSentence> readSentenceArray(JsonParser parser) throws IOException {
+        List<PracticeSentence> sentences = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            Map<String, String> fields = new HashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = canonical(parser.currentName());
+                readField(parser, parser.nextToken(), SENTENCE_FIELDS.get(name), fields);
+            }
+            if (fields.get("englishSentence") != null) {
+                sentences.add(toSentence(fields));
+            }
+        }
+        return sentences;
+    }
+
+    // Scalar value of a known field; unknown fields and nested values are skipped without building anything
+    private static void readField(JsonParser parser, JsonToken value, String field, Map<String, String> target)
+            throws IOException {
+        if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+        } else if (field != null && value != JsonToken.VALUE_NULL) {
+            target.putIfAbsent(field, parser.getValueAsString());
+        }
+    }
+
+    private static PracticeSentence toSentence(Map<String, String> fields) {
+        return new PracticeSentence(fields.get("englishSentence"), fields.get("turkishTranslation"),
+                fields.get("turkishFullTranslation"));
+    }
+
+    private static JsonParser open(String text) throws IOException {
+        return open(text, '\0');
+    }
+
+    /**
+     * Parser positioned before the first JSON value of the text, null when there is none
+     *
+     * @param only '{' to accept only objects, '\0' for objects and arrays
+     */
+    private static JsonParser open(String text, char only) throws IOException {
+        if (text == null) {
+            return null;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '{' || (c == '[' && only == '\0')) {
+                StringReader reader = new StringReader(text);
+                reader.skip(i);
+                return JSON_FACTORY.createParser(reader);
+            }
+        }
+        return null;
+    }
+
+    private static String canonical(String name) {
+        StringBuilder key = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != '_' && c != '-' && c != ' ') {
+                key.append(Character.toLowerCase(c));
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean parseBoolean(String value) {
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        return v.equals("true") || v.equals("yes") || v.equals("evet") || v.equals("1");
+    }
+}
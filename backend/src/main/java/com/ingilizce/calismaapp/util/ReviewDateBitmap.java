@@ -0,0 +1,300 @@
+package com.ingilizce.calismaapp.util;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Compact, immutable set of review dates for one word.
+ * Dates are stored as runs of consecutive epoch days (run-length encoding), so a
+ * daily review streak of any length costs two numbers. Serialized form:
+ * [version][runCount][start0][length0][gap1][length1]... as unsigned varints,
+ * where gap is the distance from the end of the previous run.
+ */
+public final class ReviewDateBitmap {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final ReviewDateBitmap EMPTY = new ReviewDateBitmap(new int[0], new int[0]);
+
+    // Sorted, non-overlapping and non-adjacent runs: [starts[i], starts[i] + lengths[i])
+    private final int[] starts;
+    private final int[] lengths;
+
+    private ReviewDateBitmap(int[] starts, int[] lengths) {
+        this.starts = starts;
+        this.lengths = lengths;
+    }
+
+    public static ReviewDateBitmap empty() {
+        return EMPTY;
+    }
+
+    public static ReviewDateBitmap of(Collection<LocalDate> dates) {
+        TreeSet<Integer> days = new TreeSet<>();
+        for (LocalDate date : dates) {
+            days.add(toDay(date));
+        }
+
+        List<int[]> runs = new ArrayList<>();
+        int[] current = null;
+        for (int day : days) {
+            if (current != null && day == current[0] + current[1]) {
+                current[1]++;
+            } else {
+                current = new int[] { day, 1 };
+                runs.add(current);
+            }
+        }
+        return fromRuns(runs);
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    /**
+     * Number of distinct review dates
+     */
+    public int cardinality() {
+        int total = 0;
+        for (int length : lengths) {
+            total += length;
+        }
+        return total;
+    }
+
+    /**
+     * Earliest review date, null when empty
+     */
+    public LocalDate first() {
+        return isEmpty() ? null : LocalDate.ofEpochDay(starts[0]);
+    }
+
+    /**
+     * Latest review date, null when empty
+     */
+    public LocalDate last() {
+        int i = starts.length - 1;
+        return isEmpty() ? null : LocalDate.ofEpochDay(starts[i] + lengths[i] - 1);
+    }
+
+    public boolean contains(LocalDate date) {
+        return runIndexContaining(toDay(date)) >= 0;
+    }
+
+    /**
+     * Copy of this set with the date added
+     */
+    public ReviewDateBitmap with(LocalDate date) {
+        int day = toDay(date);
+        if (runIndexContaining(day) >= 0) {
+            return this;
+        }
+
+        int before = lastRunStartingAtOrBefore(day);
+        int after = before + 1;
+        boolean extendsBefore = before >= 0 && starts[before] + lengths[before] == day;
+        boolean extendsAfter = after < starts.length && starts[after] == day + 1;
+
+        List<int[]> runs = toRuns();
+        if (extendsBefore && extendsAfter) {
+            runs.get(before)[1] += 1 + runs.get(after)[1];
+            runs.remove(after);
+        } else if (extendsBefore) {
+            runs.get(before)[1]++;
+        } else if (extendsAfter) {
+            runs.get(after)[0]--;
+            runs.get(after)[1]++;
+        } else {
+            runs.add(after, new int[] { day, 1 });
+        }
+        return fromRuns(runs);
+    }
+
+    /**
+     * Copy of this set with the date removed
+     */
+    public ReviewDateBitmap without(LocalDate date) {
+        int day = toDay(date);
+        int index = runIndexContaining(day);
+        if (index < 0) {
+            return this;
+        }
+
+        List<int[]> runs = toRuns();
+        int start = starts[index];
+        int end = start + lengths[index]; // exclusive
+        runs.remove(index);
+        if (day + 1 < end) {
+            runs.add(index, new int[] { day + 1, end - day - 1 });
+        }
+        if (day > start) {
+            runs.add(index, new int[] { start, day - start });
+        }
+        return fromRuns(runs);
+    }
+
+    /**
+     * All dates, newest first
+     */
+    public List<LocalDate> toDatesDescending() {
+        return between(null, null);
+    }
+
+    /**
+     * Dates within [from, to] (either bound may be null), newest first
+     */
+    public List<LocalDate> between(LocalDate from, LocalDate to) {
+        int fromDay = from != null ? toDay(from) : Integer.MIN_VALUE;
+        int toDay = to != null ? toDay(to) : Integer.MAX_VALUE;
+
+        List<LocalDate> dates = new ArrayList<>();
+        for (int i = starts.length - 1; i >= 0; i--) {
+            int first = Math.max(starts[i], fromDay);
+            int last = Math.min(starts[i] + lengths[i] - 1, toDay);
+            for (int day = last; day >= first; day--) {
+                dates.add(LocalDate.ofEpochDay(day));
+            }
+        }
+        return dates;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + starts.length * 4);
+        out.write(FORMAT_VERSION);
+        writeVarInt(out, starts.length);
+        int previousEnd = 0;
+        for (int i = 0; i < starts.length; i++) {
+            // First start is an absolute epoch day, the rest are gaps from the previous run
+            writeVarInt(out, i == 0 ? zigZag(starts[i]) : starts[i] - previousEnd);
+            writeVarInt(out, lengths[i]);
+            previousEnd = starts[i] + lengths[i];
+        }
+        return out.toByteArray();
+    }
+
+    public static ReviewDateBitmap fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return EMPTY;
+        }
+        if (bytes[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported review bitmap format: " + bytes[0]);
+        }
+
+        int[] position = { 1 };
+        int count = readVarInt(bytes, position);
+        int[] starts = new int[count];
+        int[] lengths = new int[count];
+        int previousEnd = 0;
+        for (int i = 0; i < count; i++) {
+            int value = readVarInt(bytes, position);
+            starts[i] = i == 0 ? unZigZag(value) : previousEnd + value;
+            lengths[i] = readVarInt(bytes, position);
+            previousEnd = starts[i] + lengths[i];
+        }
+        return new ReviewDateBitmap(starts, lengths);
+    }
+
+    private int runIndexContaining(int day) {
+        int index = lastRunStartingAtOrBefore(day);
+        if (index >= 0 && day < starts[index] + lengths[index]) {
+            return index;
+        }
+        return -1;
+    }
+
+    private int lastRunStartingAtOrBefore(int day) {
+        int low = 0;
+        int high = starts.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= day) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    private List<int[]> toRuns() {
+        List<int[]> runs = new ArrayList<>(starts.length + 1);
+        for (int i = 0; i < starts.length; i++) {
+            runs.add(new int[] { starts[i], lengths[i] });
+        }
+        return runs;
+    }
+
+    private static ReviewDateBitmap fromRuns(List<int[]> runs) {
+        if (runs.isEmpty()) {
+            return EMPTY;
+        }
+        int[] starts = new int[runs.size()];
+        int[] lengths = new int[runs.size()];
+        for (int i = 0; i < runs.size(); i++) {
+            starts[i] = runs.get(i)[0];
+            lengths[i] = runs.get(i)[1];
+        }
+        return new ReviewDateBitmap(starts, lengths);
+    }
+
+    private static int toDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(byte[] bytes, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ReviewDateBitmap)) {
+            return false;
+        }
+        ReviewDateBitmap other = (ReviewDateBitmap) o;
+        return Arrays.equals(starts, other.starts) && Arrays.equals(lengths, other.lengths);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(starts) + Arrays.hashCode(lengths);
+    }
+
+    @Override
+    public String toString() {
+        return "ReviewDateBitmap{runs=" + starts.length + ", dates=" + cardinality() + "}";
+    }
+}
@@ -1,6 +1,7 @@
 package com.ingilizce.calismaapp.util;
 
 import javax.net.ssl.*;
+import java.security.GeneralSecurityException;
 import java.security.cert.X509Certificate;
 
 import org.slf4j.Logger;
@@ -14,24 +15,8 @@ public class SSLUtils {
         try {
             logger.warn("Disabling SSL Verification for Development environment...");
 
-            // Create a trust manager that does not validate certificate chains
-            TrustManager[] trustAllCerts = new TrustManager[] {
-                    new X509TrustManager() {
-                        public X509Certificate[] getAcceptedIssuers() {
-                            return null;
-                        }
-
-                        public void checkClientTrusted(X509Certificate[] certs, String authType) {
-                        }
-
-                        public void checkServerTrusted(X509Certificate[] certs, String authType) {
-                        }
-                    }
-            };
-
             // Install the all-trusting trust manager
-            SSLContext sc = SSLContext.getInstance("TLS");
-            sc.init(null, trustAllCerts, new java.security.SecureRandom());
+            SSLContext sc = createTrustAllContext();
             HttpsURLConnection.setDefaultSSLSocketFactory(sc.getSocketFactory());
 
             // Create all-trusting host name verifier
@@ -43,4 +28,28 @@ public class SSLUtils {
             logger.error("Failed to disable SSL verification", e);
         }
     }
+
+    /**
+     * SSL context that accepts any certificate chain. Development only (self-signed proxies)
+     */
+    public static SSLContext createTrustAllContext() throws GeneralSecurityException {
+        // Create a trust manager that does not validate certificate chains
+        TrustManager[] trustAllCerts = new TrustManager[] {
+                new X509TrustManager() {
+                    public X509Certificate[] getAcceptedIssuers() {
+                        return new X509Certificate[0];
+                    }
+
+                    public void checkClientTrusted(X509Certificate[] certs, String authType) {
+                    }
+
+                    public void checkServerTrusted(X509Certificate[] certs, String authType) {
+                    }
+                }
+        };
+
+        SSLContext sc = SSLContext.getInstance("TLS");
+        sc.init(null, trustAllCerts, new java.security.SecureRandom());
+        return sc;
+    }
 }
@@ -0,0 +1,77 @@
+-- Migration 004: Delta Sync
+-- Description: Change versions on synced tables and tombstones for deletes (GET /api/sync)
+
+-- One global, monotonically increasing version counter shared by all synced tables
+CREATE SEQUENCE IF NOT EXISTS sync_change_seq;
+
+ALTER TABLE words ADD COLUMN IF NOT EXISTS change_version BIGINT;
+ALTER TABLE sentences ADD COLUMN IF NOT EXISTS change_version BIGINT;
+ALTER TABLE word_reviews ADD COLUMN IF NOT EXISTS change_version BIGINT;
+ALTER TABLE user_progress ADD COLUMN IF NOT EXISTS change_version BIGINT;
+
+-- Deleted rows, so clients can drop them locally
+CREATE TABLE IF NOT EXISTS sync_tombstones (
+    id BIGSERIAL PRIMARY KEY,
+    entity_type VARCHAR(20) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    change_version BIGINT NOT NULL,
+    deleted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Backfill existing rows
+UPDATE words SET change_version = nextval('sync_change_seq') WHERE change_version IS NULL;
+UPDATE sentences SET change_version = nextval('sync_change_seq') WHERE change_version IS NULL;
+UPDATE word_reviews SET change_version = nextval('sync_change_seq') WHERE change_version IS NULL;
+UPDATE user_progress SET change_version = nextval('sync_change_seq') WHERE change_version IS NULL;
+
+-- Stamp every insert/update with the next change version
+CREATE OR REPLACE FUNCTION sync_bump_change_version() RETURNS TRIGGER AS $$
+BEGIN
+    NEW.change_version := nextval('sync_change_seq');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Record a tombstone for every delete (TG_ARGV[0] = entity type)
+CREATE OR REPLACE FUNCTION sync_record_tombstone() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO sync_tombstones (entity_type, entity_id, change_version)
+    VALUES (TG_ARGV[0], OLD.id, nextval('sync_change_seq'));
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_words_change_version ON words;
+CREATE TRIGGER trg_words_change_version BEFORE INSERT OR UPDATE ON words
+    FOR EACH ROW EXECUTE FUNCTION sync_bump_change_version();
+DROP TRIGGER IF EXISTS trg_words_tombstone ON words;
+CREATE TRIGGER trg_words_tombstone AFTER DELETE ON words
+    FOR EACH ROW EXECUTE FUNCTION sync_record_tombstone('word');
+
+DROP TRIGGER IF EXISTS trg_sentences_change_version ON sentences;
+CREATE TRIGGER trg_sentences_change_version BEFORE INSERT OR UPDATE ON sentences
+    FOR EACH ROW EXECUTE FUNCTION sync_bump_change_version();
+DROP TRIGGER IF EXISTS trg_sentences_tombstone ON sentences;
+CREATE TRIGGER trg_sentences_tombstone AFTER DELETE ON sentences
+    FOR EACH ROW EXECUTE FUNCTION sync_record_tombstone('sentence');
+
+DROP TRIGGER IF EXISTS trg_word_reviews_change_version ON word_reviews;
+CREATE TRIGGER trg_word_reviews_change_version BEFORE INSERT OR UPDATE ON word_reviews
+    FOR EACH ROW EXECUTE FUNCTION sync_bump_change_version();
+DROP TRIGGER IF EXISTS trg_word_reviews_tombstone ON word_reviews;
+CREATE TRIGGER trg_word_reviews_tombstone AFTER DELETE ON word_reviews
+    FOR EACH ROW EXECUTE FUNCTION sync_record_tombstone('review');
+
+DROP TRIGGER IF EXISTS trg_user_progress_change_version ON user_progress;
+CREATE TRIGGER trg_user_progress_change_version BEFORE INSERT OR UPDATE ON user_progress
+    FOR EACH ROW EXECUTE FUNCTION sync_bump_change_version();
+
+-- Indexes for "changed since" lookups
+CREATE INDEX IF NOT EXISTS idx_words_change_version ON words(change_version);
+CREATE INDEX IF NOT EXISTS idx_sentences_change_version ON sentences(change_version);
+CREATE INDEX IF NOT EXISTS idx_word_reviews_change_version ON word_reviews(change_version);
+CREATE INDEX IF NOT EXISTS idx_user_progress_change_version ON user_progress(change_version);
+CREATE INDEX IF NOT EXISTS idx_sync_tombstones_change_version ON sync_tombstones(change_version);
+
+COMMENT ON SEQUENCE sync_change_seq IS 'Global change version for delta sync';
+COMMENT ON TABLE sync_tombstones IS 'Deleted words/sentences/reviews for delta sync clients';
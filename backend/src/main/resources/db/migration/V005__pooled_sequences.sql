@@ -0,0 +1,40 @@
+-- Migration 005: Pooled Sequence IDs
+-- Description: Entities now take ids from their table sequence with a pooled optimizer
+-- (allocationSize = 50), so Hibernate can batch inserts. Each sequence must step by 50
+-- and start above the current max(id).
+
+DO $$
+DECLARE
+    tbl TEXT;
+    seq TEXT;
+    is_identity BOOLEAN;
+BEGIN
+    FOREACH tbl IN ARRAY ARRAY['words', 'sentences', 'word_reviews', 'sentence_practices',
+                               'user_progress', 'user_achievements'] LOOP
+        IF to_regclass(tbl) IS NULL THEN
+            CONTINUE;
+        END IF;
+
+        seq := pg_get_serial_sequence(tbl, 'id');
+        SELECT a.attidentity <> '' INTO is_identity
+        FROM pg_attribute a
+        WHERE a.attrelid = tbl::regclass AND a.attname = 'id';
+
+        IF seq IS NULL THEN
+            -- No backing sequence yet: create <table>_id_seq and use it as column default
+            seq := tbl || '_id_seq';
+            EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I', seq);
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET DEFAULT nextval(%L)', tbl, seq);
+        END IF;
+
+        IF is_identity THEN
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET INCREMENT BY 50', tbl);
+        ELSE
+            EXECUTE format('ALTER SEQUENCE %s INCREMENT BY 50', seq);
+        END IF;
+
+        -- Pooled optimizer reads nextval as the top of a 50 id block,
+        -- so the next block starts right after the current max(id)
+        EXECUTE format('SELECT setval(%L, GREATEST((SELECT COALESCE(MAX(id), 0) FROM %I), 1))', seq, tbl);
+    END LOOP;
+END $$;
@@ -0,0 +1,3 @@
+-- Per-word review calendar, run-length encoded epoch days (see ReviewDateBitmap).
+-- Left NULL here: WordReviewService builds it from word_reviews on first access.
+ALTER TABLE words ADD COLUMN IF NOT EXISTS review_bitmap BYTEA;
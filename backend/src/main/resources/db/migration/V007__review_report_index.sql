@@ -0,0 +1,5 @@
+-- Migration 007: Review Report Index
+-- Description: Composite index for GET /api/reviews/report (date range scans grouped by day/word/type)
+
+-- review_type is included so grouping by type is answered from the index alone
+CREATE INDEX IF NOT EXISTS idx_word_reviews_date_word ON word_reviews(review_date, word_id) INCLUDE (review_type);
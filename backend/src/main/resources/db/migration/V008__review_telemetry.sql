@@ -0,0 +1,7 @@
+-- Migration 008: Review Telemetry
+-- Description: Recall quality next to the was_correct/response_time_seconds columns from V002
+
+ALTER TABLE word_reviews ADD COLUMN IF NOT EXISTS quality SMALLINT;
+
+COMMENT ON COLUMN word_reviews.quality IS 'SM-2 recall quality (0-5) reported with the review';
+COMMENT ON COLUMN word_reviews.response_time_seconds IS 'Time the user needed to answer the card';
@@ -0,0 +1,154 @@
+-- Migration 009: Partitioned word_reviews
+-- Description: word_reviews becomes a monthly RANGE partitioned table on review_date.
+-- Partitions older than the archive horizon are folded into word_reviews_archive
+-- (compressed jsonb) by ReviewPartitionService.
+
+-- 1. Move the old table and its id sequence out of the way
+DO $$
+DECLARE
+    seq TEXT;
+BEGIN
+    seq := pg_get_serial_sequence('word_reviews', 'id');
+    ALTER TABLE word_reviews RENAME TO word_reviews_unpartitioned;
+    IF seq IS NULL AND to_regclass('word_reviews_id_seq') IS NOT NULL THEN
+        seq := 'word_reviews_id_seq'; -- created by V005 without ownership
+    END IF;
+    IF seq IS NOT NULL THEN
+        EXECUTE format('ALTER SEQUENCE %s RENAME TO word_reviews_unpartitioned_id_seq', seq);
+    END IF;
+END $$;
+
+-- Pooled ids (allocationSize = 50, see V005)
+CREATE SEQUENCE word_reviews_id_seq INCREMENT BY 50;
+SELECT setval('word_reviews_id_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM word_reviews_unpartitioned), 1));
+
+-- 2. Partitioned table (the partition key has to be part of the primary key)
+CREATE TABLE word_reviews (
+    id BIGINT NOT NULL DEFAULT nextval('word_reviews_id_seq'),
+    word_id BIGINT NOT NULL REFERENCES words(id),
+    review_date DATE NOT NULL,
+    review_type VARCHAR(255),
+    notes VARCHAR(255),
+    quality SMALLINT,
+    was_correct BOOLEAN,
+    response_time_seconds INT,
+    change_version BIGINT,
+    PRIMARY KEY (id, review_date)
+) PARTITION BY RANGE (review_date);
+
+ALTER SEQUENCE word_reviews_id_seq OWNED BY word_reviews.id;
+
+-- Catches dates without a monthly partition (far past/future); emptied by word_reviews_ensure_partition
+CREATE TABLE word_reviews_default PARTITION OF word_reviews DEFAULT;
+
+-- Creates the partition for one month. Rows of that month already sitting in the
+-- default partition are moved into it first (attach would fail otherwise).
+CREATE OR REPLACE FUNCTION word_reviews_ensure_partition(month_start DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    first_day DATE := date_trunc('month', month_start)::DATE;
+    next_month DATE := (date_trunc('month', month_start) + INTERVAL '1 month')::DATE;
+    part TEXT := 'word_reviews_' || to_char(month_start, 'YYYY_MM');
+BEGIN
+    IF to_regclass(part) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE word_reviews INCLUDING DEFAULTS)', part);
+    EXECUTE format('INSERT INTO %I SELECT * FROM word_reviews_default WHERE review_date >= %L AND review_date < %L',
+                   part, first_day, next_month);
+    -- Rows only move between partitions, no tombstones for sync clients
+    PERFORM set_config('sync.suppress_tombstones', 'on', true);
+    DELETE FROM word_reviews_default WHERE review_date >= first_day AND review_date < next_month;
+    PERFORM set_config('sync.suppress_tombstones', 'off', true);
+    EXECUTE format('ALTER TABLE word_reviews ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   part, first_day, next_month);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Detaches one month, stores it per word as a jsonb array in the archive and drops it.
+-- Returns the number of archived reviews (0 if the partition does not exist).
+CREATE OR REPLACE FUNCTION word_reviews_archive_partition(month_start DATE) RETURNS INT AS $$
+DECLARE
+    first_day DATE := date_trunc('month', month_start)::DATE;
+    part TEXT := 'word_reviews_' || to_char(month_start, 'YYYY_MM');
+    archived INT;
+BEGIN
+    IF to_regclass(part) IS NULL THEN
+        RETURN 0;
+    END IF;
+
+    EXECUTE format('ALTER TABLE word_reviews DETACH PARTITION %I', part);
+    EXECUTE format(
+        'INSERT INTO word_reviews_archive (partition_month, word_id, review_count, reviews)
+         SELECT %L, word_id, COUNT(*), jsonb_agg(to_jsonb(r) - ''word_id'' ORDER BY review_date, id)
+         FROM %I r GROUP BY word_id
+         ON CONFLICT (partition_month, word_id) DO UPDATE
+         SET review_count = word_reviews_archive.review_count + EXCLUDED.review_count,
+             reviews = word_reviews_archive.reviews || EXCLUDED.reviews',
+        first_day, part);
+    EXECUTE format('SELECT COUNT(*) FROM %I', part) INTO archived;
+    EXECUTE format('DROP TABLE %I', part);
+    RETURN archived;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 3. Archive tier: one compressed row per word and month
+CREATE TABLE IF NOT EXISTS word_reviews_archive (
+    partition_month DATE NOT NULL,
+    word_id BIGINT NOT NULL,
+    review_count INT NOT NULL,
+    reviews JSONB NOT NULL,
+    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (partition_month, word_id)
+);
+ALTER TABLE word_reviews_archive ALTER COLUMN reviews SET COMPRESSION lz4;
+CREATE INDEX IF NOT EXISTS idx_word_reviews_archive_word ON word_reviews_archive(word_id);
+
+-- 4. Partitions for existing data up to three months ahead, then copy the rows over
+DO $$
+DECLARE
+    m DATE;
+BEGIN
+    m := date_trunc('month', COALESCE((SELECT MIN(review_date) FROM word_reviews_unpartitioned), CURRENT_DATE))::DATE;
+    WHILE m <= date_trunc('month', CURRENT_DATE + INTERVAL '3 months')::DATE LOOP
+        PERFORM word_reviews_ensure_partition(m);
+        m := (m + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+-- Triggers are not created yet, so change versions are kept as they are
+INSERT INTO word_reviews (id, word_id, review_date, review_type, notes, quality, was_correct,
+                          response_time_seconds, change_version)
+SELECT id, word_id, review_date, review_type, notes, quality, was_correct,
+       response_time_seconds, change_version
+FROM word_reviews_unpartitioned;
+
+DROP TABLE word_reviews_unpartitioned;
+DROP SEQUENCE IF EXISTS word_reviews_unpartitioned_id_seq;
+
+-- 5. Indexes (created on every partition)
+CREATE INDEX IF NOT EXISTS idx_word_reviews_word_date ON word_reviews(word_id, review_date);
+CREATE INDEX IF NOT EXISTS idx_word_reviews_date_word ON word_reviews(review_date, word_id) INCLUDE (review_type);
+CREATE INDEX IF NOT EXISTS idx_word_reviews_change_version ON word_reviews(change_version);
+CREATE INDEX IF NOT EXISTS idx_word_reviews_was_correct ON word_reviews(was_correct);
+
+-- 6. Delta sync triggers (V004), tombstones can now be suppressed for partition moves
+CREATE OR REPLACE FUNCTION sync_record_tombstone() RETURNS TRIGGER AS $$
+BEGIN
+    IF current_setting('sync.suppress_tombstones', true) = 'on' THEN
+        RETURN OLD;
+    END IF;
+    INSERT INTO sync_tombstones (entity_type, entity_id, change_version)
+    VALUES (TG_ARGV[0], OLD.id, nextval('sync_change_seq'));
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_word_reviews_change_version BEFORE INSERT OR UPDATE ON word_reviews
+    FOR EACH ROW EXECUTE FUNCTION sync_bump_change_version();
+CREATE TRIGGER trg_word_reviews_tombstone AFTER DELETE ON word_reviews
+    FOR EACH ROW EXECUTE FUNCTION sync_record_tombstone('review');
+
+COMMENT ON TABLE word_reviews IS 'Review history, monthly partitions on review_date';
+COMMENT ON TABLE word_reviews_archive IS 'Archived word_reviews partitions, one jsonb array per word and month';
@@ -0,0 +1,33 @@
+-- Migration 010: Speaking Question Bank
+-- Description: Pre-generated IELTS/TOEFL speaking question sets per (test_type, part),
+-- served by /api/chatbot/speaking-test/generate-questions, and the sets each user has seen
+
+CREATE SEQUENCE IF NOT EXISTS speaking_question_sets_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS speaking_question_sets (
+    id BIGINT PRIMARY KEY DEFAULT nextval('speaking_question_sets_id_seq'),
+    test_type VARCHAR(10) NOT NULL,
+    part VARCHAR(10) NOT NULL,
+    questions TEXT NOT NULL,
+    instructions TEXT,
+    time_limit INTEGER,
+    preparation_time INTEGER,
+    content_hash VARCHAR(64) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uq_speaking_question_sets_content UNIQUE (test_type, part, content_hash)
+);
+
+CREATE INDEX IF NOT EXISTS idx_speaking_question_sets_bucket ON speaking_question_sets(test_type, part, created_at);
+
+-- Per-user no-repeat history (cleared for a bucket once the user has seen all of its sets)
+CREATE TABLE IF NOT EXISTS speaking_question_served (
+    user_id VARCHAR(64) NOT NULL,
+    set_id BIGINT NOT NULL REFERENCES speaking_question_sets(id) ON DELETE CASCADE,
+    served_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, set_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_speaking_question_served_set ON speaking_question_served(set_id);
+
+COMMENT ON TABLE speaking_question_sets IS 'Pre-generated speaking test question sets (questions = JSON array)';
+COMMENT ON TABLE speaking_question_served IS 'Question sets already served to a user';
@@ -0,0 +1,24 @@
+-- Migration 011: Speaking Evaluation Jobs
+-- Description: Asynchronous speaking test evaluations (POST /api/chatbot/speaking-test/evaluations).
+-- Jobs survive restarts: RUNNING jobs older than speaking.jobs.stale-after-ms go back to PENDING.
+
+CREATE TABLE IF NOT EXISTS speaking_evaluation_jobs (
+    id VARCHAR(36) PRIMARY KEY,
+    user_id VARCHAR(64) NOT NULL,
+    test_type VARCHAR(10) NOT NULL,
+    question TEXT NOT NULL,
+    response TEXT NOT NULL,
+    status VARCHAR(10) NOT NULL,
+    result TEXT,
+    error TEXT,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP
+);
+
+-- Work queue lookups (pending jobs oldest first, stale running jobs) and cleanup
+CREATE INDEX IF NOT EXISTS idx_speaking_evaluation_jobs_status ON speaking_evaluation_jobs(status, created_at);
+CREATE INDEX IF NOT EXISTS idx_speaking_evaluation_jobs_finished ON speaking_evaluation_jobs(finished_at);
+
+COMMENT ON TABLE speaking_evaluation_jobs IS 'Speaking test evaluation jobs (status PENDING/RUNNING/DONE/FAILED, result = evaluation JSON)';
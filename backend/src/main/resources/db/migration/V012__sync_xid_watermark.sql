@@ -0,0 +1,39 @@
+-- Migration 012: Delta Sync Watermark
+-- Description: change_version is taken when a row is written, not when its transaction commits,
+-- so "highest version seen" skips rows of transactions that commit late. Every synced row now also
+-- records the id of the transaction that wrote it; the sync token is the xmin of the sync snapshot
+-- (oldest transaction still running) and the next sync returns everything written by that
+-- transaction or a later one (GET /api/sync).
+
+ALTER TABLE words ADD COLUMN IF NOT EXISTS change_xid BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE sentences ADD COLUMN IF NOT EXISTS change_xid BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE word_reviews ADD COLUMN IF NOT EXISTS change_xid BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE user_progress ADD COLUMN IF NOT EXISTS change_xid BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE sync_tombstones ADD COLUMN IF NOT EXISTS change_xid BIGINT NOT NULL DEFAULT 0;
+
+-- Existing rows keep 0: they were committed before any watermark token was handed out
+
+CREATE OR REPLACE FUNCTION sync_bump_change_version() RETURNS TRIGGER AS $$
+BEGIN
+    NEW.change_xid := pg_current_xact_id()::text::bigint;
+    NEW.change_version := nextval('sync_change_seq');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION sync_record_tombstone() RETURNS TRIGGER AS $$
+BEGIN
+    IF current_setting('sync.suppress_tombstones', true) = 'on' THEN
+        RETURN OLD;
+    END IF;
+    INSERT INTO sync_tombstones (entity_type, entity_id, change_version, change_xid)
+    VALUES (TG_ARGV[0], OLD.id, nextval('sync_change_seq'), pg_current_xact_id()::text::bigint);
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE INDEX IF NOT EXISTS idx_words_change_xid ON words(change_xid);
+CREATE INDEX IF NOT EXISTS idx_sentences_change_xid ON sentences(change_xid);
+CREATE INDEX IF NOT EXISTS idx_word_reviews_change_xid ON word_reviews(change_xid);
+CREATE INDEX IF NOT EXISTS idx_user_progress_change_xid ON user_progress(change_xid);
+CREATE INDEX IF NOT EXISTS idx_sync_tombstones_change_xid ON sync_tombstones(change_xid);
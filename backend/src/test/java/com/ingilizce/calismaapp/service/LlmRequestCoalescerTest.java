@@ -0,0 +1,145 @@
+package com.ingilizce.calismaapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LlmRequestCoalescerTest {
+
+    private static final String KEY = LlmRequestCoalescer.key("model",
+            List.of(Map.of("role", "user", "content", "hello")), false);
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    // Upstream call that stays open until the test completes it
+    private CompletableFuture<String> call(CompletableFuture<String> upstream) {
+        calls.incrementAndGet();
+        return upstream;
+    }
+
+    @Test
+    void identicalRequestJoinsTheOneInFlight() {
+        LlmRequestCoalescer coalescer = new LlmRequestCoalescer(Duration.ZERO);
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = coalescer.execute(KEY, () -> call(upstream));
+        CompletableFuture<String> second = coalescer.execute(KEY, () -> call(new CompletableFuture<>()));
+        assertEquals(1, calls.get());
+        assertFalse(second.isDone());
+
+        upstream.complete("answer");
+        assertEquals("answer", first.join());
+        assertEquals("answer", second.join());
+        assertEquals(1L, coalescer.getStats().get("coalesced"));
+        assertEquals(0, coalescer.getStats().get("inFlight"));
+    }
+
+    @Test
+    void differentRequestsAreNotJoined() {
+        String other = LlmRequestCoalescer.key("model", List.of(Map.of("role", "user", "content", "hello")), true);
+        assertNotEquals(KEY, other);
+        // Length prefixed: moving text between messages changes the key
+        assertNotEquals(
+                LlmRequestCoalescer.key("model", List.of(Map.of("role", "user", "content", "ab"),
+                        Map.of("role", "user", "content", "c")), false),
+                LlmRequestCoalescer.key("model", List.of(Map.of("role", "user", "content", "a"),
+                        Map.of("role", "user", "content", "bc")), false));
+
+        LlmRequestCoalescer coalescer = new LlmRequestCoalescer(Duration.ZERO);
+        coalescer.execute(KEY, () -> call(new CompletableFuture<>()));
+        coalescer.execute(other, () -> call(new CompletableFuture<>()));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void failureReachesEveryJoinedCallerAndIsNotRemembered() {
+        LlmRequestCoalescer coalescer = new LlmRequestCoalescer(Duration.ofMinutes(1));
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> first = coalescer.execute(KEY, () -> call(upstream));
+        CompletableFuture<String> second = coalescer.execute(KEY, () -> call(new CompletableFuture<>()));
+
+        LlmApiException failure = new LlmApiException("Groq API Error", 500, -1);
+        upstream.completeExceptionally(failure);
+        assertSame(failure, assertThrows(CompletionException.class, first::join).getCause());
+        assertSame(failure, assertThrows(CompletionException.class, second::join).getCause());
+
+        // The next request goes upstream again
+        CompletableFuture<String> retry = coalescer.execute(KEY, () -> call(CompletableFuture.completedFuture("ok")));
+        assertEquals("ok", retry.join());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void supplierThatThrowsFailsTheSharedFuture() {
+        LlmRequestCoalescer coalescer = new LlmRequestCoalescer(Duration.ZERO);
+        CompletableFuture<String> result = coalescer.execute(KEY, () -> {
+            throw new IllegalStateException("no provider");
+        });
+        assertInstanceOf(IllegalStateException.class,
+                assertThrows(CompletionException.class, result::join).getCause());
+        assertEquals(0, coalescer.getStats().get("inFlight"));
+    }
+
+    @Test
+    void cancelledUpstreamFailsJoinedCallers() {
+        LlmRequestCoalescer coalescer = new LlmRequestCoalescer(Duration.ZERO);
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> first = coalescer.execute(KEY, () -> call(upstream));
+        CompletableFuture<String> second = coalescer.execute(KEY, () -> call(new CompletableFuture<>()));
+
+        upstream.cancel(true);
+        assertInstanceOf(CancellationException.class,
+                assertThrows(CompletionException.class, first::join).getCause());
+        assertInstanceOf(CancellationException.class,
+                assertThrows(CompletionException.class, second::join).getCause());
+        assertEquals(0, coalescer.getStats().get("inFlight"));
+    }
+
+    @Test
+    void cancellingOneCallerLeavesTheOthers() {
+        LlmRequestCoalescer coalescer = new LlmRequestCoalescer(Duration.ZERO);
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> first = coalescer.execute(KEY, () -> call(upstream));
+        CompletableFuture<String> second = coalescer.execute(KEY, () -> call(new CompletableFuture<>()));
+
+        first.cancel(true);
+        assertFalse(upstream.isCancelled());
+        upstream.complete("answer");
+        assertEquals("answer", second.join());
+    }
+
+    @Test
+    void resultIsReusedUntilItsTtlExpires() throws InterruptedException {
+        LlmRequestCoalescer coalescer = new LlmRequestCoalescer(Duration.ofMillis(100));
+        assertEquals("first", coalescer.execute(KEY, () -> call(CompletableFuture.completedFuture("first"))).join());
+        assertEquals("first", coalescer.execute(KEY, () -> call(CompletableFuture.completedFuture("second"))).join());
+        assertEquals(1, calls.get());
+        assertEquals(1L, coalescer.getStats().get("resultHits"));
+
+        Thread.sleep(150);
+        assertEquals("second", coalescer.execute(KEY, () -> call(CompletableFuture.completedFuture("second"))).join());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void zeroTtlOnlyJoinsRequestsInFlight() {
+        LlmRequestCoalescer coalescer = new LlmRequestCoalescer(Duration.ZERO);
+        coalescer.execute(KEY, () -> call(CompletableFuture.completedFuture("first"))).join();
+        assertEquals("second", coalescer.execute(KEY, () -> call(CompletableFuture.completedFuture("second"))).join());
+        assertEquals(2, calls.get());
+        assertEquals(0, coalescer.getStats().get("cachedResults"));
+    }
+}
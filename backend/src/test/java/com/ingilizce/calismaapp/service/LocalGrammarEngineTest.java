@@ -0,0 +1,120 @@
+package com.ingilizce.calismaapp.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class LocalGrammarEngineTest {
+
+    private static LocalGrammarEngine engine;
+
+    @BeforeAll
+    static void loadLexicon() {
+        engine = new LocalGrammarEngine();
+        ReflectionTestUtils.setField(engine, "enabled", true);
+        ReflectionTestUtils.setField(engine, "maxTokens", 15);
+        engine.init();
+    }
+
+    // Number of a coordinated subject is not checked locally, the LLM decides
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "You and I are friends.",
+            "The boy and the girl are friends.",
+            "My mother or my father is at home.",
+            "He and she were late.",
+            "You, he and I are a team.",
+            "Neither he nor I am ready.",
+            "Tom and I play football.",
+            "You or he is wrong.",
+            "My sister and I was at home."
+    })
+    void coordinatedSubjectIsNeverAnError(String sentence) {
+        assertNotEquals(LocalGrammarEngine.Verdict.ERRORS, engine.check(sentence).verdict(), sentence);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "He go to school.|goes",
+            "She don't like apples.|doesn't",
+            "They is happy.|are",
+            "I goes home.|go",
+            "We was at home.|were",
+            "My friends plays football.|play",
+            "Cats likes milk.|like",
+            "She did went home.|go",
+            "He can swims.|swim",
+            "She has went home.|gone",
+            "I went with he.|him",
+            "I have a apple.|an",
+            "The the cat is here.|The",
+            "i like tea.|I"
+    })
+    void reportsError(String sentence, String suggestion) {
+        LocalGrammarEngine.Result result = engine.check(sentence);
+
+        assertEquals(LocalGrammarEngine.Verdict.ERRORS, result.verdict(), sentence);
+        assertEquals(1, result.errors().size(), sentence);
+        Map<String, Object> error = result.errors().get(0);
+        assertEquals(List.of(suggestion), error.get("suggestions"), sentence);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "I am happy.",
+            "She likes apples.",
+            "They are students.",
+            "She is a teacher.",
+            "She likes the apple.",
+            "I like to swim.",
+            "I go to school.",
+            "I went to school yesterday.",
+            "He played football last week.",
+            "I visited my friend two days ago.",
+            "We discussed the problem."
+    })
+    void simpleSentenceIsCorrect(String sentence) {
+        assertEquals(LocalGrammarEngine.Verdict.CORRECT, engine.check(sentence).verdict(), sentence);
+    }
+
+    // Errors the rules do not report must not be declared correct (no LLM check would follow)
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "He is like apples.",
+            "I go to school yesterday.",
+            "He plays football yesterday.",
+            "I visit my friend two days ago.",
+            "I like to swimming.",
+            "She likes apple.",
+            "She is teacher.",
+            "We discussed about the problem."
+    })
+    void unreportedLearnerErrorIsNotCorrect(String sentence) {
+        assertNotEquals(LocalGrammarEngine.Verdict.CORRECT, engine.check(sentence).verdict(), sentence);
+    }
+
+    // An amount is one quantity: no agreement error for a plural time or measure noun
+    @ParameterizedTest
+    @ValueSource(strings = { "Two years is a long time.", "Five minutes is enough.", "Ten days is too long." })
+    void measurePhraseIsNeverAnError(String sentence) {
+        assertNotEquals(LocalGrammarEngine.Verdict.ERRORS, engine.check(sentence).verdict(), sentence);
+    }
+
+    // Second clauses and longer sentences are left to the LLM
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "I went home and he go to bed.",
+            "He plays football and she watches."
+    })
+    void undecided(String sentence) {
+        assertEquals(LocalGrammarEngine.Verdict.UNDECIDED, engine.check(sentence).verdict(), sentence);
+    }
+}
@@ -0,0 +1,85 @@
+package com.ingilizce.calismaapp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class LocalTranslationCheckerTest {
+
+    private LocalTranslationChecker checker;
+
+    @BeforeEach
+    void setUp() {
+        checker = new LocalTranslationChecker();
+        ReflectionTestUtils.setField(checker, "enabled", true);
+        ReflectionTestUtils.setField(checker, "initialThreshold", 0.90);
+        ReflectionTestUtils.setField(checker, "minThreshold", 0.85);
+        ReflectionTestUtils.setField(checker, "maxThreshold", 0.98);
+        ReflectionTestUtils.setField(checker, "targetPrecision", 0.97);
+        ReflectionTestUtils.setField(checker, "minSamples", 30);
+        // No random audits, every accept is deterministic
+        ReflectionTestUtils.setField(checker, "auditRate", 0.0);
+    }
+
+    // Opposite meaning or a different word must never be accepted without the LLM
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "EN_TO_TR|gitmeyeceğim|gideceğim",
+            "EN_TO_TR|gitmeyecegim|gideceğim",
+            "EN_TO_TR|gitmeyiz|gideriz",
+            "EN_TO_TR|gitmem|giderim",
+            "EN_TO_TR|yapmam|yaparım",
+            "EN_TO_TR|gitmemeli|gitmeli",
+            "EN_TO_TR|çay|kahve",
+            "EN_TO_TR|Kız|Erkek",
+            "TR_TO_EN|tea|coffee",
+            "TR_TO_EN|brother|sister",
+            // Long enough that the character score alone would accept them
+            "EN_TO_TR|Ben her sabah erken kalkıp okula yürüyerek gidiyorum ve çay içiyorum"
+                    + "|Ben her sabah erken kalkıp okula yürüyerek gidiyorum ve kahve içiyorum",
+            "EN_TO_TR|Ben her sabah erken kalkıp okula yürüyerek gitmeyeceğim"
+                    + "|Ben her sabah erken kalkıp okula yürüyerek gideceğim",
+            "TR_TO_EN|I usually drink a cup of hot tea every morning before I go to school"
+                    + "|I usually drink a cup of hot coffee every morning before I go to school",
+            "TR_TO_EN|My older brother lives in Istanbul with his wife and their two little children"
+                    + "|My older sister lives in Istanbul with his wife and their two little children"
+    })
+    void differentMeaningIsNotAccepted(String direction, String answer, String reference) {
+        assertNotEquals(LocalTranslationChecker.Verdict.CORRECT,
+                checker.check(direction, answer, reference).verdict(), answer + " / " + reference);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "EN_TO_TR|Gideceğim.|gideceğim",
+            "EN_TO_TR|cay|çay",
+            "EN_TO_TR|Ben her sabah erken kalkıp okula yürüyerek gidiyorum|Ben her sabah erken kalkıp okula yürüyerek gidiyorm",
+            "TR_TO_EN|I don't like coffee|I do not like coffee",
+            "TR_TO_EN|I wake up early every morning and walk to scholl|I wake up early every morning and walk to school"
+    })
+    void sameMeaningIsAccepted(String direction, String answer, String reference) {
+        assertEquals(LocalTranslationChecker.Verdict.CORRECT,
+                checker.check(direction, answer, reference).verdict(), answer + " / " + reference);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "gitmeyeceğim, 1", "gitmeyecegim, 1", "gideceğim, 0", "gitmeyiz, 1", "gideriz, 0",
+            "gitmem, 1", "yapmam, 1", "gitmemeli, 1", "gitmeli, 0", "gitmiyorum, 1", "gelmedi, 1", "yapmaz, 1"
+    })
+    void turkishNegationSuffixes(String token, int expected) {
+        assertEquals(expected, LocalTranslationChecker.negationCount(new String[] { token }, true), token);
+    }
+
+    @Test
+    void typoToleranceGrowsWithWordLength() {
+        assertEquals(0, LocalTranslationChecker.typoTolerance("tea"));
+        assertEquals(1, LocalTranslationChecker.typoTolerance("school"));
+        assertEquals(2, LocalTranslationChecker.typoTolerance("gidiyorum"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.ingilizce.calismaapp.util;
+
+import com.ingilizce.calismaapp.dto.PracticeSentence;
+import com.ingilizce.calismaapp.dto.TranslationCheckResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LlmJsonExtractorTest {
+
+    private static final String SENTENCE = "{\"englishSentence\":\"The plot is complex.\",\"turkishTranslation\":\"kurgu\","
+            + "\"turkishFullTranslation\":\"Kurgu karmaşık.\"}";
+
+    @Test
+    void codeFenceIsSkipped() {
+        List<PracticeSentence> sentences = LlmJsonExtractor.practiceSentences("```json\n[" + SENTENCE + "]\n```");
+        assertEquals(List.of(new PracticeSentence("The plot is complex.", "kurgu", "Kurgu karmaşık.")), sentences);
+    }
+
+    @Test
+    void proseBeforeAndAfterTheJsonIsIgnored() {
+        List<PracticeSentence> sentences = LlmJsonExtractor.practiceSentences(
+                "Sure! Here are your sentences:\n\n[" + SENTENCE + "]\n\nLet me know if you need more {or fewer}.");
+        assertEquals(1, sentences.size());
+        assertEquals("kurgu", sentences.get(0).turkishTranslation());
+
+        TranslationCheckResult check = LlmJsonExtractor.translationCheck(
+                "Here is my evaluation: {\"isCorrect\": true, \"feedback\": \"Great\"} Hope this helps!");
+        assertEquals(new TranslationCheckResult(true, null, "Great"), check);
+    }
+
+    @Test
+    void bracesAndBracketsInsideStringsDoNotEndTheValue() {
+        List<PracticeSentence> sentences = LlmJsonExtractor.practiceSentences(
+                "[{\"englishSentence\":\"Use {braces} and [brackets] here.\",\"turkishTranslation\":\"}]\"},"
+                        + "{\"englishSentence\":\"Second one.\"}]");
+        assertEquals(2, sentences.size());
+        assertEquals("Use {braces} and [brackets] here.", sentences.get(0).englishSentence());
+        assertEquals("}]", sentences.get(0).turkishTranslation());
+
+        Map<String, Object> object = LlmJsonExtractor.object(
+                "{\"questions\":[{\"text\":\"Describe a {place}\"}],\"note\":\"a } b\"}");
+        assertEquals(List.of(Map.of("text", "Describe a {place}")), object.get("questions"));
+        assertEquals("a } b", object.get("note"));
+    }
+
+    @Test
+    void escapedQuotesAreUnescaped() {
+        List<PracticeSentence> sentences = LlmJsonExtractor.practiceSentences(
+                "[{\"englishSentence\":\"She said \\\"hello\\\" to me.\",\"turkishTranslation\":\"\\\"merhaba\\\"\"}]");
+        assertEquals("She said \"hello\" to me.", sentences.get(0).englishSentence());
+        assertEquals("\"merhaba\"", sentences.get(0).turkishTranslation());
+    }
+
+    @Test
+    void fieldNameVariantsAndWrappersAreAccepted() {
+        assertEquals(List.of(new PracticeSentence("Hi.", "selam", null)), LlmJsonExtractor.practiceSentences(
+                "{\"sentences\": [{english_sentence: 'Hi.', 'turkish': 'selam',},]}"));
+        assertEquals(new TranslationCheckResult(false, "Okula gidiyorum.", null), LlmJsonExtractor.translationCheck(
+                "{\"is_correct\": \"no\", \"corrected_translation\": \"Okula gidiyorum.\"}"));
+    }
+
+    @Test
+    void truncatedOutputIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> LlmJsonExtractor.practiceSentences("[" + SENTENCE + ",{\"englishSentence\":\"The end of"));
+        assertThrows(IllegalArgumentException.class,
+                () -> LlmJsonExtractor.translationCheck("{\"isCorrect\": true, \"feedback\": \"Goo"));
+        assertThrows(IllegalArgumentException.class, () -> LlmJsonExtractor.object("{\"questions\": [\"Q1\","));
+    }
+
+    @Test
+    void answerWithoutJson() {
+        assertThrows(IllegalArgumentException.class,
+                () -> LlmJsonExtractor.practiceSentences("Sorry, I cannot help with that."));
+        assertThrows(IllegalArgumentException.class, () -> LlmJsonExtractor.practiceSentences(null));
+        assertNull(LlmJsonExtractor.translationCheck("The translation is correct."));
+        assertThrows(IllegalArgumentException.class, () -> LlmJsonExtractor.object("no json here"));
+    }
+}
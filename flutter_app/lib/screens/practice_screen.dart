@@ -316,6 +316,9 @@ class _PracticeScreenState extends State<PracticeScreen> {
         // EN -> TR
         // Question was English, Answer is Turkish
         requestBody['englishSentence'] = _generatedSentences[index];
+        if (index < _aiTranslations.length && _aiTranslations[index].isNotEmpty) {
+          requestBody['turkishSentence'] = _aiTranslations[index]; // Reference
+        }
       }
 
       final response = await http.post(